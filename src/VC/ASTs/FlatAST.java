@@ -0,0 +1,652 @@
+/*
+ * FlatAST.java
+ *
+ * An AST stored column by column in parallel arrays, as TokenArray
+ * stores tokens, instead of as a graph of objects. A node is an int id,
+ * and has
+ *
+ *   kind         which class of node it is, one of the constants below
+ *   firstChild   the id of its first child, or NONE
+ *   nextSibling  the id of the child after it of its parent, or NONE
+ *   position     the number of its position, whose four numbers are
+ *                kept once however many nodes share it
+ *   symbol       the number of its spelling, if it is a terminal, or
+ *                of the type the Checker decorated it with, if it is an
+ *                expression or a variable, or NONE
+ *   value        the value of an int literal, the bits of the value of
+ *                a float literal, or the id of an identifier
+ *
+ * The children of a node are the children of its object, in the order
+ * of the arguments of its constructor, and the nodes are numbered in
+ * preorder, so the root is 0 and a node comes before its children. A
+ * node takes 24 bytes, and each of its positions 16 more, about half
+ * of what its objects take.
+ *
+ * fromAST and toAST convert between the two forms, so that a pass that
+ * walks the arrays and one that visits the objects can be used on the
+ * same program. Neither recurses, so they convert the longest lists.
+ * A node that is shared in the object form, such as the type of
+ * several variables declared together, is copied into each of its
+ * parents. The links the Checker makes from identifiers to their
+ * declarations are not kept: they are made again when the AST is
+ * checked again.
+ */
+
+package VC.ASTs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import VC.Scanner.SourcePosition;
+
+public final class FlatAST {
+
+  public static final int NONE = -1;
+
+  // the kinds of the nodes, in the order of Visitor
+  public static final int
+    PROGRAM          = 0,
+    EMPTY_DECL_LIST  = 1,
+    EMPTY_STMT_LIST  = 2,
+    EMPTY_EXPR_LIST  = 3,
+    EMPTY_PARA_LIST  = 4,
+    EMPTY_ARG_LIST   = 5,
+    DECL_LIST        = 6,
+    FUNC_DECL        = 7,
+    GLOBAL_VAR_DECL  = 8,
+    LOCAL_VAR_DECL   = 9,
+    STMT_LIST        = 10,
+    IF_STMT          = 11,
+    WHILE_STMT       = 12,
+    FOR_STMT         = 13,
+    BREAK_STMT       = 14,
+    CONTINUE_STMT    = 15,
+    RETURN_STMT      = 16,
+    COMPOUND_STMT    = 17,
+    EXPR_STMT        = 18,
+    EMPTY_COMP_STMT  = 19,
+    EMPTY_STMT       = 20,
+    INT_EXPR         = 21,
+    FLOAT_EXPR       = 22,
+    BOOLEAN_EXPR     = 23,
+    STRING_EXPR      = 24,
+    UNARY_EXPR       = 25,
+    BINARY_EXPR      = 26,
+    INIT_EXPR        = 27,
+    EXPR_LIST        = 28,
+    ARRAY_EXPR       = 29,
+    VAR_EXPR         = 30,
+    CALL_EXPR        = 31,
+    ASSIGN_EXPR      = 32,
+    EMPTY_EXPR       = 33,
+    INT_LITERAL      = 34,
+    FLOAT_LITERAL    = 35,
+    BOOLEAN_LITERAL  = 36,
+    STRING_LITERAL   = 37,
+    IDENT            = 38,
+    OPERATOR         = 39,
+    PARA_LIST        = 40,
+    PARA_DECL        = 41,
+    ARG_LIST         = 42,
+    ARG              = 43,
+    VOID_TYPE        = 44,
+    BOOLEAN_TYPE     = 45,
+    INT_TYPE         = 46,
+    FLOAT_TYPE       = 47,
+    STRING_TYPE      = 48,
+    ARRAY_TYPE       = 49,
+    ERROR_TYPE       = 50,
+    SIMPLE_VAR       = 51;
+
+  private static final String[] kindNames = {
+    "Program",
+    "EmptyDeclList", "EmptyStmtList", "EmptyExprList", "EmptyParaList", "EmptyArgList",
+    "DeclList", "FuncDecl", "GlobalVarDecl", "LocalVarDecl",
+    "StmtList", "IfStmt", "WhileStmt", "ForStmt", "BreakStmt", "ContinueStmt",
+    "ReturnStmt", "CompoundStmt", "ExprStmt", "EmptyCompStmt", "EmptyStmt",
+    "IntExpr", "FloatExpr", "BooleanExpr", "StringExpr", "UnaryExpr", "BinaryExpr",
+    "InitExpr", "ExprList", "ArrayExpr", "VarExpr", "CallExpr", "AssignExpr", "EmptyExpr",
+    "IntLiteral", "FloatLiteral", "BooleanLiteral", "StringLiteral", "Ident", "Operator",
+    "ParaList", "ParaDecl", "ArgList", "Arg",
+    "VoidType", "BooleanType", "IntType", "FloatType", "StringType", "ArrayType", "ErrorType",
+    "SimpleVar"
+  };
+
+  private int size;
+  private int[] kinds, firstChildren, nextSiblings, positionIds, symbols, values;
+
+  private int positionCount;
+  private int[] positions;  // lineStart, charStart, lineFinish, charFinish of each
+  private String[] spellings;
+  private Type[] types;
+
+  private FlatAST(int capacity) {
+    capacity = Math.max(capacity, 16);
+    kinds = new int[capacity];
+    firstChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    positionIds = new int[capacity];
+    symbols = new int[capacity];
+    values = new int[capacity];
+    positions = new int[4 * capacity];
+  }
+
+  public static String kindName(int kind) {
+    return kindNames[kind];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int kind(int id) {
+    return kinds[id];
+  }
+
+  public int firstChild(int id) {
+    return firstChildren[id];
+  }
+
+  public int nextSibling(int id) {
+    return nextSiblings[id];
+  }
+
+  // The nth child of id, counting from 0, or NONE.
+
+  public int child(int id, int n) {
+    int c = firstChildren[id];
+    while (n-- > 0 && c != NONE)
+      c = nextSiblings[c];
+    return c;
+  }
+
+  public int lineStart(int id) {
+    return positions[4 * positionIds[id]];
+  }
+
+  public int charStart(int id) {
+    return positions[4 * positionIds[id] + 1];
+  }
+
+  public int lineFinish(int id) {
+    return positions[4 * positionIds[id] + 2];
+  }
+
+  public int charFinish(int id) {
+    return positions[4 * positionIds[id] + 3];
+  }
+
+  public static boolean isTerminal(int kind) {
+    return kind >= INT_LITERAL && kind <= OPERATOR;
+  }
+
+  public Type type(int id) {
+    return isTerminal(kinds[id]) || symbols[id] == NONE ? null : types[symbols[id]];
+  }
+
+  public String spelling(int id) {
+    return isTerminal(kinds[id]) ? spellings[symbols[id]] : null;
+  }
+
+  public int intValue(int id) {
+    return values[id];
+  }
+
+  public float floatValue(int id) {
+    return Float.intBitsToFloat(values[id]);
+  }
+
+  // ======================= From the objects =======================
+
+  public static FlatAST fromAST(AST ast) {
+    return new Flattener().flatten(ast);
+  }
+
+  private static int[] copyOf(int[] a, int capacity) {
+    int[] b = new int[capacity];
+    System.arraycopy(a, 0, b, 0, Math.min(a.length, capacity));
+    return b;
+  }
+
+  // Adds a node as the last child of parent, and returns its id.
+
+  private int add(int parent, int[] lastChildren) {
+    if (size == kinds.length) {
+      int capacity = 2 * size;
+      kinds = copyOf(kinds, capacity);
+      firstChildren = copyOf(firstChildren, capacity);
+      nextSiblings = copyOf(nextSiblings, capacity);
+      positionIds = copyOf(positionIds, capacity);
+      symbols = copyOf(symbols, capacity);
+      values = copyOf(values, capacity);
+    }
+    int id = size++;
+    firstChildren[id] = nextSiblings[id] = symbols[id] = NONE;
+    if (parent != NONE) {
+      if (firstChildren[parent] == NONE)
+        firstChildren[parent] = id;
+      else
+        nextSiblings[lastChildren[parent]] = id;
+      lastChildren[parent] = id;
+    }
+    return id;
+  }
+
+  private void trim() {
+    kinds = copyOf(kinds, size);
+    firstChildren = copyOf(firstChildren, size);
+    nextSiblings = copyOf(nextSiblings, size);
+    positionIds = copyOf(positionIds, size);
+    symbols = copyOf(symbols, size);
+    values = copyOf(values, size);
+    positions = copyOf(positions, 4 * positionCount);
+  }
+
+  private int addPosition(SourcePosition p) {
+    if (4 * positionCount == positions.length)
+      positions = copyOf(positions, 2 * positions.length);
+    int i = 4 * positionCount;
+    positions[i] = p.lineStart;
+    positions[i + 1] = p.charStart;
+    positions[i + 2] = p.lineFinish;
+    positions[i + 3] = p.charFinish;
+    return positionCount++;
+  }
+
+  // Visiting a node gives it its kind, position, type and spelling, and
+  // puts its children on a stack of nodes to be added after it, the
+  // first on top, so that the nodes are added in preorder without
+  // recursing.
+
+  private static final class Flattener implements Visitor {
+    private FlatAST flat = new FlatAST(1024);
+    private int[] lastChildren = new int[1024];
+    private int current;
+
+    private AST[] stack = new AST[64];
+    private int[] stackParents = new int[64];
+    private int top;
+
+    private IdentityHashMap<SourcePosition, Integer> positionNumbers =
+      new IdentityHashMap<SourcePosition, Integer>();
+    private HashMap<String, Integer> spellingNumbers = new HashMap<String, Integer>();
+    private ArrayList<String> spellings = new ArrayList<String>();
+    private IdentityHashMap<Type, Integer> typeNumbers = new IdentityHashMap<Type, Integer>();
+    private ArrayList<Type> types = new ArrayList<Type>();
+
+    FlatAST flatten(AST ast) {
+      push(ast, NONE);
+      while (top > 0) {
+        top--;
+        AST node = stack[top];
+        stack[top] = null;
+        if (flat.size == lastChildren.length)
+          lastChildren = copyOf(lastChildren, 2 * lastChildren.length);
+        current = flat.add(stackParents[top], lastChildren);
+        node.visit(this, null);
+      }
+      flat.trim();
+      flat.spellings = spellings.toArray(new String[spellings.size()]);
+      flat.types = types.toArray(new Type[types.size()]);
+      return flat;
+    }
+
+    private void push(AST ast, int parent) {
+      if (top == stack.length) {
+        AST[] s = new AST[2 * top];
+        System.arraycopy(stack, 0, s, 0, top);
+        stack = s;
+        stackParents = copyOf(stackParents, 2 * top);
+      }
+      stack[top] = ast;
+      stackParents[top++] = parent;
+    }
+
+    private Object node(int kind, AST ast, AST... children) {
+      flat.kinds[current] = kind;
+
+      Integer p = positionNumbers.get(ast.position);
+      if (p == null) {
+        p = flat.addPosition(ast.position);
+        positionNumbers.put(ast.position, p);
+      }
+      flat.positionIds[current] = p;
+
+      Type type = ast instanceof Expr ? ((Expr) ast).type
+                : ast instanceof Var ? ((Var) ast).type : null;
+      if (type != null) {
+        Integer t = typeNumbers.get(type);
+        if (t == null) {
+          t = types.size();
+          types.add(type);
+          typeNumbers.put(type, t);
+        }
+        flat.symbols[current] = t;
+      }
+
+      for (int i = children.length - 1; i >= 0; i--)
+        push(children[i], current);
+      return null;
+    }
+
+    private Object terminal(int kind, Terminal ast, int value) {
+      node(kind, ast);
+      Integer s = spellingNumbers.get(ast.spelling);
+      if (s == null) {
+        s = spellings.size();
+        spellings.add(ast.spelling);
+        spellingNumbers.put(ast.spelling, s);
+      }
+      flat.symbols[current] = s;
+      flat.values[current] = value;
+      return null;
+    }
+
+    public Object visitProgram(Program ast, Object o) {
+      return node(PROGRAM, ast, ast.FL);
+    }
+
+    public Object visitEmptyDeclList(EmptyDeclList ast, Object o) {
+      return node(EMPTY_DECL_LIST, ast);
+    }
+
+    public Object visitEmptyStmtList(EmptyStmtList ast, Object o) {
+      return node(EMPTY_STMT_LIST, ast);
+    }
+
+    public Object visitEmptyExprList(EmptyExprList ast, Object o) {
+      return node(EMPTY_EXPR_LIST, ast);
+    }
+
+    public Object visitEmptyParaList(EmptyParaList ast, Object o) {
+      return node(EMPTY_PARA_LIST, ast);
+    }
+
+    public Object visitEmptyArgList(EmptyArgList ast, Object o) {
+      return node(EMPTY_ARG_LIST, ast);
+    }
+
+    public Object visitDeclList(DeclList ast, Object o) {
+      return node(DECL_LIST, ast, ast.D, ast.DL);
+    }
+
+    public Object visitFuncDecl(FuncDecl ast, Object o) {
+      return node(FUNC_DECL, ast, ast.T, ast.I, ast.PL, ast.S);
+    }
+
+    public Object visitGlobalVarDecl(GlobalVarDecl ast, Object o) {
+      return node(GLOBAL_VAR_DECL, ast, ast.T, ast.I, ast.E);
+    }
+
+    public Object visitLocalVarDecl(LocalVarDecl ast, Object o) {
+      return node(LOCAL_VAR_DECL, ast, ast.T, ast.I, ast.E);
+    }
+
+    public Object visitStmtList(StmtList ast, Object o) {
+      return node(STMT_LIST, ast, ast.S, ast.SL);
+    }
+
+    public Object visitIfStmt(IfStmt ast, Object o) {
+      return node(IF_STMT, ast, ast.E, ast.S1, ast.S2);
+    }
+
+    public Object visitWhileStmt(WhileStmt ast, Object o) {
+      return node(WHILE_STMT, ast, ast.E, ast.S);
+    }
+
+    public Object visitForStmt(ForStmt ast, Object o) {
+      return node(FOR_STMT, ast, ast.E1, ast.E2, ast.E3, ast.S);
+    }
+
+    public Object visitBreakStmt(BreakStmt ast, Object o) {
+      return node(BREAK_STMT, ast);
+    }
+
+    public Object visitContinueStmt(ContinueStmt ast, Object o) {
+      return node(CONTINUE_STMT, ast);
+    }
+
+    public Object visitReturnStmt(ReturnStmt ast, Object o) {
+      return node(RETURN_STMT, ast, ast.E);
+    }
+
+    public Object visitCompoundStmt(CompoundStmt ast, Object o) {
+      return node(COMPOUND_STMT, ast, ast.DL, ast.SL);
+    }
+
+    public Object visitExprStmt(ExprStmt ast, Object o) {
+      return node(EXPR_STMT, ast, ast.E);
+    }
+
+    public Object visitEmptyCompStmt(EmptyCompStmt ast, Object o) {
+      return node(EMPTY_COMP_STMT, ast);
+    }
+
+    public Object visitEmptyStmt(EmptyStmt ast, Object o) {
+      return node(EMPTY_STMT, ast);
+    }
+
+    public Object visitIntExpr(IntExpr ast, Object o) {
+      return node(INT_EXPR, ast, ast.IL);
+    }
+
+    public Object visitFloatExpr(FloatExpr ast, Object o) {
+      return node(FLOAT_EXPR, ast, ast.FL);
+    }
+
+    public Object visitBooleanExpr(BooleanExpr ast, Object o) {
+      return node(BOOLEAN_EXPR, ast, ast.BL);
+    }
+
+    public Object visitStringExpr(StringExpr ast, Object o) {
+      return node(STRING_EXPR, ast, ast.SL);
+    }
+
+    public Object visitUnaryExpr(UnaryExpr ast, Object o) {
+      return node(UNARY_EXPR, ast, ast.O, ast.E);
+    }
+
+    public Object visitBinaryExpr(BinaryExpr ast, Object o) {
+      return node(BINARY_EXPR, ast, ast.E1, ast.O, ast.E2);
+    }
+
+    public Object visitInitExpr(InitExpr ast, Object o) {
+      return node(INIT_EXPR, ast, ast.IL);
+    }
+
+    public Object visitExprList(ExprList ast, Object o) {
+      return node(EXPR_LIST, ast, ast.E, ast.EL);
+    }
+
+    public Object visitArrayExpr(ArrayExpr ast, Object o) {
+      return node(ARRAY_EXPR, ast, ast.V, ast.E);
+    }
+
+    public Object visitVarExpr(VarExpr ast, Object o) {
+      return node(VAR_EXPR, ast, ast.V);
+    }
+
+    public Object visitCallExpr(CallExpr ast, Object o) {
+      return node(CALL_EXPR, ast, ast.I, ast.AL);
+    }
+
+    public Object visitAssignExpr(AssignExpr ast, Object o) {
+      return node(ASSIGN_EXPR, ast, ast.E1, ast.E2);
+    }
+
+    public Object visitEmptyExpr(EmptyExpr ast, Object o) {
+      return node(EMPTY_EXPR, ast);
+    }
+
+    public Object visitIntLiteral(IntLiteral ast, Object o) {
+      return terminal(INT_LITERAL, ast, ast.value);
+    }
+
+    public Object visitFloatLiteral(FloatLiteral ast, Object o) {
+      return terminal(FLOAT_LITERAL, ast, Float.floatToRawIntBits(ast.value));
+    }
+
+    public Object visitBooleanLiteral(BooleanLiteral ast, Object o) {
+      return terminal(BOOLEAN_LITERAL, ast, 0);
+    }
+
+    public Object visitStringLiteral(StringLiteral ast, Object o) {
+      return terminal(STRING_LITERAL, ast, 0);
+    }
+
+    public Object visitIdent(Ident ast, Object o) {
+      return terminal(IDENT, ast, ast.id);
+    }
+
+    public Object visitOperator(Operator ast, Object o) {
+      return terminal(OPERATOR, ast, 0);
+    }
+
+    public Object visitParaList(ParaList ast, Object o) {
+      return node(PARA_LIST, ast, ast.P, ast.PL);
+    }
+
+    public Object visitParaDecl(ParaDecl ast, Object o) {
+      return node(PARA_DECL, ast, ast.T, ast.I);
+    }
+
+    public Object visitArgList(ArgList ast, Object o) {
+      return node(ARG_LIST, ast, ast.A, ast.AL);
+    }
+
+    public Object visitArg(Arg ast, Object o) {
+      return node(ARG, ast, ast.E);
+    }
+
+    public Object visitVoidType(VoidType ast, Object o) {
+      return node(VOID_TYPE, ast);
+    }
+
+    public Object visitBooleanType(BooleanType ast, Object o) {
+      return node(BOOLEAN_TYPE, ast);
+    }
+
+    public Object visitIntType(IntType ast, Object o) {
+      return node(INT_TYPE, ast);
+    }
+
+    public Object visitFloatType(FloatType ast, Object o) {
+      return node(FLOAT_TYPE, ast);
+    }
+
+    public Object visitStringType(StringType ast, Object o) {
+      return node(STRING_TYPE, ast);
+    }
+
+    public Object visitArrayType(ArrayType ast, Object o) {
+      return node(ARRAY_TYPE, ast, ast.T, ast.E);
+    }
+
+    public Object visitErrorType(ErrorType ast, Object o) {
+      return node(ERROR_TYPE, ast);
+    }
+
+    public Object visitSimpleVar(SimpleVar ast, Object o) {
+      return node(SIMPLE_VAR, ast, ast.I);
+    }
+  }
+
+  // ========================= To the objects =========================
+
+  // The nodes are built from the last to the first, so that the
+  // children of each node are built before it. The nodes that shared
+  // a position share it again.
+
+  public AST toAST() {
+    AST[] nodes = new AST[size];
+    SourcePosition[] built = new SourcePosition[positionCount];
+    AST[] c = new AST[4];
+
+    for (int id = size - 1; id >= 0; id--) {
+      int n = 0;
+      for (int k = firstChildren[id]; k != NONE; k = nextSiblings[k]) {
+        c[n++] = nodes[k];
+        nodes[k] = null;
+      }
+      int pid = positionIds[id];
+      if (built[pid] == null) {
+        built[pid] = new SourcePosition(positions[4 * pid], positions[4 * pid + 2]);
+        built[pid].charStart = positions[4 * pid + 1];
+        built[pid].charFinish = positions[4 * pid + 3];
+      }
+      AST ast = build(id, c, built[pid]);
+      if (ast instanceof Expr)
+        ((Expr) ast).type = type(id);
+      else if (ast instanceof Var)
+        ((Var) ast).type = type(id);
+      nodes[id] = ast;
+    }
+    return size == 0 ? null : nodes[0];
+  }
+
+  private AST build(int id, AST[] c, SourcePosition p) {
+    switch (kinds[id]) {
+    case PROGRAM:         return new Program((List) c[0], p);
+    case EMPTY_DECL_LIST: return new EmptyDeclList(p);
+    case EMPTY_STMT_LIST: return new EmptyStmtList(p);
+    case EMPTY_EXPR_LIST: return new EmptyExprList(p);
+    case EMPTY_PARA_LIST: return new EmptyParaList(p);
+    case EMPTY_ARG_LIST:  return new EmptyArgList(p);
+    case DECL_LIST:       return new DeclList((Decl) c[0], (List) c[1], p);
+    case FUNC_DECL:
+      return new FuncDecl((Type) c[0], (Ident) c[1], (List) c[2], (Stmt) c[3], p);
+    case GLOBAL_VAR_DECL:
+      return new GlobalVarDecl((Type) c[0], (Ident) c[1], (Expr) c[2], p);
+    case LOCAL_VAR_DECL:
+      return new LocalVarDecl((Type) c[0], (Ident) c[1], (Expr) c[2], p);
+    case STMT_LIST:       return new StmtList((Stmt) c[0], (List) c[1], p);
+    case IF_STMT:         return new IfStmt((Expr) c[0], (Stmt) c[1], (Stmt) c[2], p);
+    case WHILE_STMT:      return new WhileStmt((Expr) c[0], (Stmt) c[1], p);
+    case FOR_STMT:
+      return new ForStmt((Expr) c[0], (Expr) c[1], (Expr) c[2], (Stmt) c[3], p);
+    case BREAK_STMT:      return new BreakStmt(p);
+    case CONTINUE_STMT:   return new ContinueStmt(p);
+    case RETURN_STMT:     return new ReturnStmt((Expr) c[0], p);
+    case COMPOUND_STMT:   return new CompoundStmt((List) c[0], (List) c[1], p);
+    case EXPR_STMT:       return new ExprStmt((Expr) c[0], p);
+    case EMPTY_COMP_STMT: return new EmptyCompStmt(p);
+    case EMPTY_STMT:      return new EmptyStmt(p);
+    case INT_EXPR:        return new IntExpr((IntLiteral) c[0], p);
+    case FLOAT_EXPR:      return new FloatExpr((FloatLiteral) c[0], p);
+    case BOOLEAN_EXPR:    return new BooleanExpr((BooleanLiteral) c[0], p);
+    case STRING_EXPR:     return new StringExpr((StringLiteral) c[0], p);
+    case UNARY_EXPR:      return new UnaryExpr((Operator) c[0], (Expr) c[1], p);
+    case BINARY_EXPR:     return new BinaryExpr((Expr) c[0], (Operator) c[1], (Expr) c[2], p);
+    case INIT_EXPR:       return new InitExpr((List) c[0], p);
+    case EXPR_LIST:       return new ExprList((Expr) c[0], (List) c[1], p);
+    case ARRAY_EXPR:      return new ArrayExpr((Var) c[0], (Expr) c[1], p);
+    case VAR_EXPR:        return new VarExpr((Var) c[0], p);
+    case CALL_EXPR:       return new CallExpr((Ident) c[0], (List) c[1], p);
+    case ASSIGN_EXPR:     return new AssignExpr((Expr) c[0], (Expr) c[1], p);
+    case EMPTY_EXPR:      return new EmptyExpr(p);
+    case INT_LITERAL:     return new IntLiteral(spelling(id), intValue(id), p);
+    case FLOAT_LITERAL:   return new FloatLiteral(spelling(id), floatValue(id), p);
+    case BOOLEAN_LITERAL: return new BooleanLiteral(spelling(id), p);
+    case STRING_LITERAL:  return new StringLiteral(spelling(id), p);
+    case IDENT:
+      Ident ident = new Ident(spelling(id), p);
+      ident.id = values[id];
+      return ident;
+    case OPERATOR:        return new Operator(spelling(id), p);
+    case PARA_LIST:       return new ParaList((ParaDecl) c[0], (List) c[1], p);
+    case PARA_DECL:       return new ParaDecl((Type) c[0], (Ident) c[1], p);
+    case ARG_LIST:        return new ArgList((Arg) c[0], (List) c[1], p);
+    case ARG:             return new Arg((Expr) c[0], p);
+    case VOID_TYPE:       return new VoidType(p);
+    case BOOLEAN_TYPE:    return new BooleanType(p);
+    case INT_TYPE:        return new IntType(p);
+    case FLOAT_TYPE:      return new FloatType(p);
+    case STRING_TYPE:     return new StringType(p);
+    case ARRAY_TYPE:      return new ArrayType((Type) c[0], (Expr) c[1], p);
+    case ERROR_TYPE:      return new ErrorType(p);
+    default:              return new SimpleVar((Ident) c[0], p);
+    }
+  }
+
+}
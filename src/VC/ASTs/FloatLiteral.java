@@ -8,8 +8,15 @@ import VC.Scanner.SourcePosition;
 
 public class FloatLiteral extends Terminal {
 
+  public float value;
+
   public FloatLiteral (String value, SourcePosition position) {
-    super (value, position);
+    this (value, Float.parseFloat(value), position);
+  }
+
+  public FloatLiteral (String spelling, float value, SourcePosition position) {
+    super (spelling, position);
+    this.value = value;
   }
 
   public Object visit(Visitor v, Object o) {
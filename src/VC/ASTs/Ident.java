@@ -9,10 +9,12 @@ import VC.Scanner.SourcePosition;
 public class Ident extends Terminal {
 
   public AST decl; 
+  public int id; // in the NamePool of the compilation, or -1
 
   public Ident(String value , SourcePosition position) {
     super (value, position);
     decl = null;
+    id = -1;
   }
 
   public Object visit(Visitor v, Object o) {
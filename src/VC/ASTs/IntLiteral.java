@@ -8,8 +8,17 @@ import VC.Scanner.SourcePosition;
 
 public class IntLiteral extends Terminal {
 
+  public int value;
+
   public IntLiteral (String value, SourcePosition position) {
-    super (value, position);
+    this (value, Integer.parseInt(value), position);
+  }
+
+  // value is the value of spelling, as decoded by the scanner
+
+  public IntLiteral (String spelling, int value, SourcePosition position) {
+    super (spelling, position);
+    this.value = value;
   }
 
   public Object visit(Visitor v, Object o) {
@@ -0,0 +1,59 @@
+/*
+ * LazyCompStmt.java
+ *
+ * The body of a function whose statements have not been parsed yet
+ * (see Parser.setLazyBodies). It stands in FuncDecl.S until a visitor
+ * first visits it, or asks whether it is empty, when its body is built
+ * and put in its place, and the visit goes on to the body. So it is
+ * never seen by a visitor, and needs no visit method of its own.
+ *
+ * Building the body is not thread-safe.
+ */
+
+package VC.ASTs;
+
+import VC.Scanner.SourcePosition;
+
+public class LazyCompStmt extends Stmt {
+
+  // builds the body, a CompoundStmt or an EmptyCompStmt
+  public interface Builder {
+    Stmt build(LazyCompStmt stmt);
+  }
+
+  private Builder builder;
+  private Stmt body;
+
+  public LazyCompStmt(Builder builder, SourcePosition Position) {
+    super (Position);
+    this.builder = builder;
+  }
+
+  public boolean isBuilt() {
+    return body != null;
+  }
+
+  public Stmt body() {
+    if (body == null) {
+      body = builder.build(this);
+      builder = null;
+      body.parent = parent;
+      if (parent instanceof FuncDecl && ((FuncDecl) parent).S == this)
+        ((FuncDecl) parent).S = body;
+    }
+    return body;
+  }
+
+  public boolean isEmptyStmt() {
+    return body().isEmptyStmt();
+  }
+
+  public boolean isEmptyCompStmt() {
+    return body().isEmptyCompStmt();
+  }
+
+  public Object visit(Visitor v, Object o) {
+    return body().visit(v, o);
+  }
+
+}
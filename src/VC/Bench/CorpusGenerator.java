@@ -0,0 +1,230 @@
+/*
+ * CorpusGenerator.java
+ *
+ * Generates synthetic VC programs for the benchmarks, each of which
+ * stresses one lexical class:
+ *
+ *   identifiers  long identifiers, most tokens being names
+ *   numbers      int and float literals, many with exponents
+ *   strings      long string literals full of escape sequences
+ *   comments     long block comments (with "/*" inside, which does not
+ *                nest in VC) and // comments
+ *   tabs         deeply tab-indented code
+ *   mixed        all of the above in turn
+ *
+ * The programs are made of whole functions whose declarations come
+ * before their statements, so that they can be parsed as well as
+ * scanned. The same seed always gives the same programs.
+ *
+ *   java VC.Bench.CorpusGenerator directory [size]
+ *
+ * writes one file per corpus, of about size chars each, to directory.
+ */
+
+package VC.Bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+public final class CorpusGenerator {
+
+  public static final String[] CORPORA = {
+    "identifiers", "numbers", "strings", "comments", "tabs", "mixed"
+  };
+
+  public static final int DEFAULT_SIZE = 4 << 20; // chars
+  public static final long SEED = 9102;
+
+  private Random random;
+  private StringBuffer out;
+  private int functions;
+
+  public CorpusGenerator(long seed) {
+    random = new Random(seed);
+  }
+
+  // Returns a program of the named corpus of at least size chars.
+
+  public String generate(String corpus, int size) {
+    out = new StringBuffer(size + 1024);
+    functions = 0;
+    int which = 0;
+
+    while (out.length() < size) {
+      if (corpus.equals("identifiers"))
+        identifiers();
+      else if (corpus.equals("numbers"))
+        numbers();
+      else if (corpus.equals("strings"))
+        strings();
+      else if (corpus.equals("comments"))
+        comments();
+      else if (corpus.equals("tabs"))
+        tabs();
+      else if (corpus.equals("mixed")) {
+        switch (which++ % 5) {
+        case 0: identifiers(); break;
+        case 1: numbers(); break;
+        case 2: strings(); break;
+        case 3: comments(); break;
+        default: tabs(); break;
+        }
+      } else
+        throw new IllegalArgumentException("no corpus " + corpus);
+    }
+    return out.toString();
+  }
+
+  // ============================ Corpora =============================
+
+  private static final String[] WORDS = {
+    "count", "index", "total", "value", "result", "buffer", "offset", "length",
+    "accumulator", "temporary", "position", "element", "maximum", "minimum"
+  };
+
+  private String name() {
+    String s = WORDS[random.nextInt(WORDS.length)];
+    if (random.nextBoolean())
+      s = s + "_" + WORDS[random.nextInt(WORDS.length)];
+    return s + random.nextInt(100);
+  }
+
+  private void identifiers() {
+    String[] vars = new String[8];
+
+    out.append("int function_").append(functions++).append("(int ")
+       .append(vars[0] = name()).append(", int ").append(vars[1] = name()).append(") {\n");
+    for (int i = 2; i < vars.length; i++)
+      out.append("  int ").append(vars[i] = name()).append(" = ")
+         .append(vars[random.nextInt(i)]).append(";\n");
+    for (int i = 0; i < 24; i++) {
+      out.append("  ").append(vars[random.nextInt(vars.length)]).append(" = ");
+      for (int j = 0; j < 6; j++) {
+        if (j > 0)
+          out.append(random.nextBoolean() ? " + " : " * ");
+        out.append(vars[random.nextInt(vars.length)]);
+      }
+      out.append(";\n");
+    }
+    out.append("  return ").append(vars[0]).append(";\n}\n");
+  }
+
+  private String intLiteral() {
+    return Integer.toString(random.nextInt(1000000));
+  }
+
+  private String floatLiteral() {
+    String mantissa;
+    switch (random.nextInt(4)) {
+    case 0:  mantissa = random.nextInt(1000) + "." + random.nextInt(1000); break;
+    case 1:  mantissa = "." + random.nextInt(100000); break;
+    case 2:  mantissa = random.nextInt(1000) + "."; break;
+    default: mantissa = Integer.toString(random.nextInt(1000)); break;
+    }
+    String[] exponents = { "e", "E", "e+", "E-", "e-" };
+    return mantissa + exponents[random.nextInt(exponents.length)] + random.nextInt(30);
+  }
+
+  private void numbers() {
+    out.append("float numbers_").append(functions++).append("() {\n");
+    out.append("  int i = ").append(intLiteral()).append(";\n");
+    out.append("  float f = ").append(floatLiteral()).append(";\n");
+    for (int i = 0; i < 24; i++) {
+      out.append(random.nextBoolean() ? "  f = " : "  i = ");
+      for (int j = 0; j < 6; j++) {
+        if (j > 0)
+          out.append(" + ");
+        out.append(random.nextInt(3) == 0 ? intLiteral() : floatLiteral());
+      }
+      out.append(";\n");
+    }
+    out.append("  return f;\n}\n");
+  }
+
+  private static final String[] ESCAPES = {
+    "\\n", "\\t", "\\\"", "\\\\", "\\'", "\\b", "\\f", "\\r"
+  };
+
+  private void strings() {
+    out.append("void strings_").append(functions++).append("() {\n");
+    for (int i = 0; i < 16; i++) {
+      out.append("  putString(\"");
+      for (int j = 0; j < 120; j++) {
+        if (random.nextInt(6) == 0)
+          out.append(ESCAPES[random.nextInt(ESCAPES.length)]);
+        else
+          out.append((char) ('a' + random.nextInt(26)));
+      }
+      out.append("\");\n");
+    }
+    out.append("}\n");
+  }
+
+  private void comments() {
+    out.append("/*\n");
+    for (int i = 0; i < 20; i++) {
+      out.append(" * ");
+      for (int j = 0; j < 10; j++)
+        out.append(random.nextInt(5) == 0 ? "/* " : WORDS[random.nextInt(WORDS.length)] + " ");
+      out.append('\n');
+    }
+    out.append(" */\n");
+    out.append("void comments_").append(functions++).append("() {\n");
+    for (int i = 0; i < 10; i++)
+      out.append("  // ").append(WORDS[random.nextInt(WORDS.length)])
+         .append(" /* */ ").append(WORDS[random.nextInt(WORDS.length)]).append('\n')
+         .append("  /* ").append(WORDS[random.nextInt(WORDS.length)]).append(" */ ;\n");
+    out.append("}\n");
+  }
+
+  private void tabs() {
+    out.append("void tabs_").append(functions++).append("(int n) {\n");
+    int depth = 1 + random.nextInt(8);
+    for (int d = 1; d <= depth; d++) {
+      indent(d);
+      out.append("while (n > ").append(d).append(") {\n");
+    }
+    for (int i = 0; i < 8; i++) {
+      indent(depth + 1);
+      out.append("n = n - 1;\t\t// down\n");
+    }
+    for (int d = depth; d >= 1; d--) {
+      indent(d);
+      out.append("}\n");
+    }
+    out.append("}\n");
+  }
+
+  private void indent(int depth) {
+    for (int i = 0; i < depth; i++)
+      out.append('\t');
+  }
+
+  // ============================== Files =============================
+
+  // Writes each corpus of about size chars to directory/corpus.vc.
+
+  public static void writeCorpora(String directory, int size) throws IOException {
+    for (int i = 0; i < CORPORA.length; i++) {
+      String program = new CorpusGenerator(SEED).generate(CORPORA[i], size);
+      Writer writer = new FileWriter(directory + "/" + CORPORA[i] + ".vc");
+      try {
+        writer.write(program);
+      } finally {
+        writer.close();
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.out.println("Usage: java VC.Bench.CorpusGenerator directory [size]");
+      System.exit(1);
+    }
+    int size = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+    writeCorpora(args[0], size);
+  }
+
+}
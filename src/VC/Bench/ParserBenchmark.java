@@ -0,0 +1,257 @@
+/*
+ * ParserBenchmark.java
+ *
+ * Measures the throughput of the parser on the programs of
+ * ProgramGenerator, or on the programs in a directory: each iteration
+ * parses a whole program with Parser.parseProgram. For each program it
+ * reports the median over the measured iterations of
+ *
+ *   ms/parse      milliseconds per parse
+ *   tokens/sec    tokens parsed per second
+ *   alloc/token   bytes allocated per token, where the JVM can tell
+ *
+ * Each program is scanned once, before it is timed, so that only the
+ * parser is measured. The first iterations only warm the JVM up and are
+ * not reported.
+ *
+ *   java VC.Bench.ParserBenchmark [-warmup n] [-iterations n] [-profile] [-arena]
+ *        [-depth n] [-statements n] [-functions n] [-initialiser n]
+ *        [-save file] [-check file] [-tolerance percent] [directory]
+ *
+ * parses the *.vc files in directory or, if none is given, the named
+ * shapes of ProgramGenerator. Given any of -depth, -statements,
+ * -functions and -initialiser, it parses a single program of that shape
+ * instead, the other numbers being those of the mixed shape.
+ *
+ * With -profile, the programs are parsed by a ProfilingParser, and the
+ * calls of each parse method and the time spent in it are reported
+ * under each program. The counters slow the parser down, so the
+ * throughput is then not comparable with that of the plain parser.
+ * With -arena, the parser takes its positions from a PositionArena,
+ * released after each parse, as a Compiler does.
+ *
+ * -save writes the tokens/sec of each program to file, and -check
+ * compares them with those saved in file, failing with status 1 if any
+ * program is slower by more than the tolerance (10% by default).
+ */
+
+package VC.Bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import VC.ErrorReporter;
+import VC.Parser.Parser;
+import VC.Parser.PositionArena;
+import VC.Parser.ProfilingParser;
+import VC.Scanner.ParallelScanner;
+import VC.Scanner.SourceFile;
+import VC.Scanner.SourcePosition;
+import VC.Scanner.TokenArray;
+
+public final class ParserBenchmark {
+
+  private static int warmup = 5;
+  private static int iterations = 10;
+  private static boolean profile = false;
+  private static boolean arena = false;
+
+  // the tokens/sec of each program parsed
+  private static Properties results = new Properties();
+
+  public static void main(String[] args) throws IOException {
+    int[] shape = ProgramGenerator.shape("mixed");
+    boolean custom = false;
+    String directory = null, save = null, check = null;
+    double tolerance = 10;
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-warmup") && i + 1 < args.length)
+        warmup = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-iterations") && i + 1 < args.length)
+        iterations = Math.max(Integer.parseInt(args[++i]), 1);
+      else if (args[i].equals("-profile"))
+        profile = true;
+      else if (args[i].equals("-arena"))
+        arena = true;
+      else if (args[i].equals("-depth") && i + 1 < args.length) {
+        shape[0] = Integer.parseInt(args[++i]);
+        custom = true;
+      } else if (args[i].equals("-statements") && i + 1 < args.length) {
+        shape[1] = Integer.parseInt(args[++i]);
+        custom = true;
+      } else if (args[i].equals("-functions") && i + 1 < args.length) {
+        shape[2] = Integer.parseInt(args[++i]);
+        custom = true;
+      } else if (args[i].equals("-initialiser") && i + 1 < args.length) {
+        shape[3] = Integer.parseInt(args[++i]);
+        custom = true;
+      } else if (args[i].equals("-save") && i + 1 < args.length)
+        save = args[++i];
+      else if (args[i].equals("-check") && i + 1 < args.length)
+        check = args[++i];
+      else if (args[i].equals("-tolerance") && i + 1 < args.length)
+        tolerance = Double.parseDouble(args[++i]);
+      else if (directory == null && !args[i].startsWith("-"))
+        directory = args[i];
+      else {
+        System.out.println("Usage: java VC.Bench.ParserBenchmark "
+                           + "[-warmup n] [-iterations n] [-profile] [-arena]\n"
+                           + "       [-depth n] [-statements n] [-functions n] [-initialiser n]\n"
+                           + "       [-save file] [-check file] [-tolerance percent] [directory]");
+        System.exit(1);
+      }
+    }
+
+    File[] files = custom ? customFile(shape) : programFiles(directory);
+    System.out.println(Report.pad("program", -16) + Report.pad("bytes", 12)
+                       + Report.pad("tokens", 12) + Report.pad("ms/parse", 12)
+                       + Report.pad("tokens/sec", 14) + Report.pad("alloc/token", 13));
+    for (int i = 0; i < files.length; i++)
+      run(files[i]);
+
+    if (save != null) {
+      OutputStream stream = new FileOutputStream(save);
+      try {
+        results.store(stream, "VC.Bench.ParserBenchmark tokens/sec");
+      } finally {
+        stream.close();
+      }
+    }
+    if (check != null && !check(check, tolerance))
+      System.exit(1);
+  }
+
+  private static File tempDirectory() throws IOException {
+    File dir = File.createTempFile("vc-programs", "");
+    dir.delete();
+    dir.mkdir();
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  private static File[] customFile(int[] shape) throws IOException {
+    File file = new File(tempDirectory(), "custom.vc");
+    file.deleteOnExit();
+    ProgramGenerator.write(file.getPath(), new ProgramGenerator(ProgramGenerator.SEED)
+                           .generate(shape[0], shape[1], shape[2], shape[3]));
+    return new File[] { file };
+  }
+
+  private static File[] programFiles(String directory) throws IOException {
+    File dir;
+
+    if (directory == null) {
+      dir = tempDirectory();
+      ProgramGenerator.writeShapes(dir.getPath());
+    } else
+      dir = new File(directory);
+
+    File[] files = dir.listFiles();
+    if (files == null) {
+      System.out.println("[# vc #]: can't read: " + dir);
+      System.exit(1);
+    }
+    int n = 0;
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].getName().endsWith(".vc"))
+        files[n++] = files[i];
+      if (directory == null)
+        files[i].deleteOnExit();
+    }
+    files = Arrays.copyOf(files, n);
+    Arrays.sort(files);
+    return files;
+  }
+
+  private static void run(File file) {
+    TokenArray tokens = ParallelScanner.scan(new SourceFile(file.getPath()));
+    double[] msPerParse = new double[iterations];
+    double[] tokensPerSec = new double[iterations];
+    double[] allocPerToken = new double[iterations];
+
+    // The errors, if any, are counted but not printed at every parse.
+    ErrorReporter reporter = new ErrorReporter() {
+      public void reportError(String message, String tokenName, SourcePosition pos) {
+        numErrors++;
+      }
+    };
+    Parser parser = profile ? new ProfilingParser(tokens.reader(reporter), reporter)
+                            : new Parser(tokens.reader(reporter), reporter);
+    PositionArena positions = arena ? new PositionArena() : null;
+    parser.setArena(positions);
+
+    for (int i = -warmup; i < iterations; i++) {
+      if (i == 0 && profile)
+        ((ProfilingParser) parser).clear();
+      reporter.numErrors = 0;
+      parser.reset(tokens.reader(reporter), reporter);
+      long allocated = Report.allocatedBytes();
+      long start = System.nanoTime();
+      parser.parseProgram();
+      long time = System.nanoTime() - start;
+      if (positions != null)
+        positions.release();
+      if (allocated >= 0)
+        allocated = Report.allocatedBytes() - allocated;
+      if (i >= 0) {
+        msPerParse[i] = time / 1e6;
+        tokensPerSec[i] = tokens.size() * 1e9 / time;
+        allocPerToken[i] = allocated < 0 ? Double.NaN : (double) allocated / tokens.size();
+      }
+    }
+
+    String name = file.getName();
+    name = name.substring(0, name.length() - 3);
+    results.setProperty(name, String.format("%.0f", Report.median(tokensPerSec)));
+    System.out.println(Report.pad(name, -16)
+                       + Report.pad(Long.toString(file.length()), 12)
+                       + Report.pad(Integer.toString(tokens.size()), 12)
+                       + Report.pad(String.format("%.3f", Report.median(msPerParse)), 12)
+                       + Report.pad(Report.format(Report.median(tokensPerSec)), 14)
+                       + Report.pad(String.format("%.1f", Report.median(allocPerToken)), 13));
+    if (reporter.numErrors > 0)
+      System.out.println("  (" + reporter.numErrors + " syntax errors)");
+    if (profile)
+      System.out.println(parser);
+  }
+
+  // Compares the results with the baseline in file, reporting each
+  // program slower by more than tolerance percent, and returns whether
+  // there were none. Programs not in the baseline are not compared.
+
+  private static boolean check(String file, double tolerance) throws IOException {
+    Properties baseline = new Properties();
+    InputStream stream = new FileInputStream(file);
+    try {
+      baseline.load(stream);
+    } finally {
+      stream.close();
+    }
+
+    boolean ok = true;
+    for (String name : results.stringPropertyNames()) {
+      String before = baseline.getProperty(name);
+      if (before == null)
+        continue;
+      double was = Double.parseDouble(before);
+      double now = Double.parseDouble(results.getProperty(name));
+      if (now < was * (1 - tolerance / 100)) {
+        System.out.println(String.format("[# vc #]: %s regressed: %s tokens/sec, was %s (%.1f%%)",
+                                         name, Report.format(now), Report.format(was),
+                                         100 * (now - was) / was));
+        ok = false;
+      }
+    }
+    if (ok)
+      System.out.println("[# vc #]: no regressions beyond " + tolerance + "% of " + file);
+    return ok;
+  }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * ProgramGenerator.java
+ *
+ * Generates synthetic VC programs for the parser benchmarks, whose shape
+ * is set by four numbers:
+ *
+ *   depth        how deeply each expression nests, in parentheses,
+ *                subscripts and unary operators
+ *   statements   the statements in the body of each function
+ *   functions    the functions in the program
+ *   initialiser  the elements of the global array initialiser before
+ *                each function, or 0 for none
+ *
+ * The named shapes stress one of these each:
+ *
+ *   expressions   few, deeply nested expressions
+ *   statements    long function bodies
+ *   functions     many small functions
+ *   initialisers  long array initialisers
+ *   mixed         a bit of everything
+ *
+ * The programs are syntactically correct, and the same seed always gives
+ * the same programs.
+ *
+ *   java VC.Bench.ProgramGenerator directory [depth statements functions initialiser]
+ *
+ * writes one file per named shape to directory, or, given the numbers,
+ * a single program of that shape, to directory/custom.vc.
+ */
+
+package VC.Bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+public final class ProgramGenerator {
+
+  public static final String[] SHAPES = {
+    "expressions", "statements", "functions", "initialisers", "mixed"
+  };
+
+  // depth, statements, functions and initialiser of each named shape
+  private static final int[][] SIZES = {
+    { 32,   8,  200,    0 },
+    {  2, 400,   40,    0 },
+    {  2,   2, 4000,    0 },
+    {  1,   2,  100, 1000 },
+    {  8,  40,  200,   50 },
+  };
+
+  public static final long SEED = 9102;
+
+  private static final String[] VARS = { "i", "j", "a", "b", "x", "y" };
+
+  private static final String[] OPERATORS = {
+    "+", "-", "*", "/", "<", "<=", ">", ">=", "==", "!=", "&&", "||"
+  };
+
+  private Random random;
+  private StringBuffer out;
+
+  public ProgramGenerator(long seed) {
+    random = new Random(seed);
+  }
+
+  // Returns the depth, statements, functions and initialiser of the
+  // named shape.
+
+  public static int[] shape(String name) {
+    for (int i = 0; i < SHAPES.length; i++)
+      if (SHAPES[i].equals(name))
+        return SIZES[i].clone();
+    throw new IllegalArgumentException("no shape " + name);
+  }
+
+  public String generate(int depth, int statements, int functions, int initialiser) {
+    out = new StringBuffer();
+
+    for (int f = 0; f < functions; f++) {
+      if (initialiser > 0)
+        initialiser(f, initialiser);
+      function(f, depth, statements);
+    }
+    out.append("int main() {\n  return 0;\n}\n");
+    return out.toString();
+  }
+
+  // ============================ Programs ============================
+
+  private void initialiser(int f, int size) {
+    out.append("int table").append(f).append("[").append(size).append("] = {");
+    for (int i = 0; i < size; i++) {
+      if (i > 0)
+        out.append(',');
+      out.append(i % 16 == 0 ? "\n  " : " ");
+      if (random.nextInt(4) == 0)
+        out.append('-');
+      out.append(random.nextInt(1000));
+    }
+    out.append("\n};\n");
+  }
+
+  private void function(int f, int depth, int statements) {
+    out.append("int f").append(f).append("(int a, int b, float table[]) {\n");
+    out.append("  int i = 0, j = a;\n");
+    out.append("  float x = table[0], y;\n");
+    out.append("  boolean done = false;\n");
+    for (int s = 0; s < statements; s++)
+      statement(depth);
+    out.append("  return j;\n}\n");
+  }
+
+  private void statement(int depth) {
+    String v = VARS[random.nextInt(VARS.length)];
+
+    switch (random.nextInt(8)) {
+    case 0:
+      out.append("  if (").append(expr(depth)).append(")\n    ").append(v)
+         .append(" = ").append(expr(depth)).append(";\n  else {\n    done = ")
+         .append(expr(depth)).append(";\n  }\n");
+      break;
+    case 1:
+      out.append("  while (i < b && !done) {\n    i = i + 1;\n    ").append(v)
+         .append(" = ").append(expr(depth)).append(";\n  }\n");
+      break;
+    case 2:
+      out.append("  for (i = 0; i < b; i = i + 1)\n    j = j + ")
+         .append(expr(depth)).append(";\n");
+      break;
+    case 3:
+      out.append("  putFloat(").append(expr(depth)).append(");\n");
+      break;
+    default:
+      out.append("  ").append(v).append(" = ").append(expr(depth)).append(";\n");
+      break;
+    }
+  }
+
+  private String leaf() {
+    switch (random.nextInt(5)) {
+    case 0:  return Integer.toString(random.nextInt(100));
+    case 1:  return random.nextInt(10) + "." + random.nextInt(100);
+    case 2:  return "table[i]";
+    default: return VARS[random.nextInt(VARS.length)];
+    }
+  }
+
+  private String operator() {
+    return OPERATORS[random.nextInt(OPERATORS.length)];
+  }
+
+  // An expression nested depth deep, whose size grows linearly with it.
+
+  private String expr(int depth) {
+    if (depth == 0)
+      return leaf() + " " + operator() + " " + leaf();
+
+    String e = expr(depth - 1);
+    switch (random.nextInt(5)) {
+    case 0:  return "(" + e + ") " + operator() + " " + leaf();
+    case 1:  return leaf() + " " + operator() + " (" + e + ")";
+    case 2:  return "-(" + e + ")";
+    case 3:  return "table[" + e + "]";
+    default: return "f0(" + e + ", " + leaf() + ", table)";
+    }
+  }
+
+  // ============================== Files =============================
+
+  public static void write(String file, String program) throws IOException {
+    Writer writer = new FileWriter(file);
+    try {
+      writer.write(program);
+    } finally {
+      writer.close();
+    }
+  }
+
+  // Writes each named shape to directory/shape.vc.
+
+  public static void writeShapes(String directory) throws IOException {
+    for (int i = 0; i < SHAPES.length; i++) {
+      int[] s = SIZES[i];
+      write(directory + "/" + SHAPES[i] + ".vc",
+            new ProgramGenerator(SEED).generate(s[0], s[1], s[2], s[3]));
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1 && args.length != 5) {
+      System.out.println("Usage: java VC.Bench.ProgramGenerator directory "
+                         + "[depth statements functions initialiser]");
+      System.exit(1);
+    }
+    if (args.length == 1)
+      writeShapes(args[0]);
+    else
+      write(args[0] + "/custom.vc",
+            new ProgramGenerator(SEED).generate(Integer.parseInt(args[1]),
+                                                Integer.parseInt(args[2]),
+                                                Integer.parseInt(args[3]),
+                                                Integer.parseInt(args[4])));
+  }
+
+}
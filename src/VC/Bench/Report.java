@@ -0,0 +1,54 @@
+/*
+ * Report.java
+ *
+ * What the benchmarks share: reading the bytes a thread has allocated,
+ * and the statistics and formatting of their tables.
+ */
+
+package VC.Bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+final class Report {
+
+  private Report() {
+  }
+
+  // The bytes allocated so far by this thread, or -1 if the JVM cannot
+  // tell.
+
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+    return -1;
+  }
+
+  static double median(double[] values) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  static String format(double value) {
+    if (value >= 1e9)
+      return String.format("%.2fG", value / 1e9);
+    if (value >= 1e6)
+      return String.format("%.2fM", value / 1e6);
+    if (value >= 1e3)
+      return String.format("%.2fK", value / 1e3);
+    return String.format("%.0f", value);
+  }
+
+  // Pads s with blanks to width chars, on the left if width > 0 and on
+  // the right otherwise.
+
+  static String pad(String s, int width) {
+    StringBuffer b = new StringBuffer();
+    for (int i = s.length(); i < Math.abs(width); i++)
+      b.append(' ');
+    return width > 0 ? b + s : s + b;
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * ScannerBenchmark.java
+ *
+ * Measures the throughput of the scanner on the corpora of
+ * CorpusGenerator: each iteration scans a whole program to EOF, once
+ * with getToken and once with nextKind, which builds no tokens. For
+ * each corpus and way of scanning it reports the median over the
+ * measured iterations of
+ *
+ *   tokens/sec    tokens scanned per second
+ *   bytes/sec     bytes of the file scanned per second
+ *   alloc/token   bytes allocated per token, where the JVM can tell
+ *
+ * Opening the file is not timed. The first iterations only warm the
+ * JVM up and are not reported.
+ *
+ *   java VC.Bench.ScannerBenchmark [-warmup n] [-iterations n] [-size n] [directory]
+ *
+ * scans the *.vc files in directory, or, if none is given, the corpora
+ * generated with the given size into a temporary directory.
+ */
+
+package VC.Bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import VC.ErrorReporter;
+import VC.Scanner.Scanner;
+import VC.Scanner.SourceFile;
+import VC.Scanner.Token;
+
+public final class ScannerBenchmark {
+
+  private static int warmup = 5;
+  private static int iterations = 10;
+
+  // the result of one iteration
+  private static int tokens;
+
+  public static void main(String[] args) throws IOException {
+    int size = CorpusGenerator.DEFAULT_SIZE;
+    String directory = null;
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-warmup") && i + 1 < args.length)
+        warmup = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-iterations") && i + 1 < args.length)
+        iterations = Math.max(Integer.parseInt(args[++i]), 1);
+      else if (args[i].equals("-size") && i + 1 < args.length)
+        size = Integer.parseInt(args[++i]);
+      else if (directory == null && !args[i].startsWith("-"))
+        directory = args[i];
+      else {
+        System.out.println("Usage: java VC.Bench.ScannerBenchmark "
+                           + "[-warmup n] [-iterations n] [-size n] [directory]");
+        System.exit(1);
+      }
+    }
+
+    File[] files = corpusFiles(directory, size);
+    System.out.println(Report.pad("corpus", -16) + Report.pad("method", -10)
+                       + Report.pad("bytes", 12) + Report.pad("tokens", 12)
+                       + Report.pad("tokens/sec", 14) + Report.pad("bytes/sec", 14)
+                       + Report.pad("alloc/token", 13));
+    for (int i = 0; i < files.length; i++) {
+      run(files[i], false);
+      run(files[i], true);
+    }
+  }
+
+  private static File[] corpusFiles(String directory, int size) throws IOException {
+    File dir;
+
+    if (directory == null) {
+      dir = File.createTempFile("vc-corpus", "");
+      dir.delete();
+      dir.mkdir();
+      dir.deleteOnExit();
+      CorpusGenerator.writeCorpora(dir.getPath(), size);
+    } else
+      dir = new File(directory);
+
+    File[] files = dir.listFiles();
+    if (files == null) {
+      System.out.println("[# vc #]: can't read: " + dir);
+      System.exit(1);
+    }
+    int n = 0;
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].getName().endsWith(".vc"))
+        files[n++] = files[i];
+      if (directory == null)
+        files[i].deleteOnExit();
+    }
+    files = Arrays.copyOf(files, n);
+    Arrays.sort(files);
+    return files;
+  }
+
+  private static void run(File file, boolean stream) {
+    String path = file.getPath();
+    long bytes = file.length();
+    double[] tokensPerSec = new double[iterations];
+    double[] bytesPerSec = new double[iterations];
+    double[] allocPerToken = new double[iterations];
+
+    for (int i = -warmup; i < iterations; i++) {
+      SourceFile source = new SourceFile(path);
+      long allocated = Report.allocatedBytes();
+      long start = System.nanoTime();
+      scan(source, stream);
+      long time = System.nanoTime() - start;
+      if (allocated >= 0)
+        allocated = Report.allocatedBytes() - allocated;
+      if (i >= 0) {
+        tokensPerSec[i] = tokens * 1e9 / time;
+        bytesPerSec[i] = bytes * 1e9 / time;
+        allocPerToken[i] = allocated < 0 ? Double.NaN : (double) allocated / tokens;
+      }
+    }
+
+    String name = file.getName();
+    System.out.println(Report.pad(name.substring(0, name.length() - 3), -16)
+                       + Report.pad(stream ? "nextKind" : "getToken", -10)
+                       + Report.pad(Long.toString(bytes), 12)
+                       + Report.pad(Integer.toString(tokens), 12)
+                       + Report.pad(Report.format(Report.median(tokensPerSec)), 14)
+                       + Report.pad(Report.format(Report.median(bytesPerSec)), 14)
+                       + Report.pad(String.format("%.1f", Report.median(allocPerToken)), 13));
+  }
+
+  private static void scan(SourceFile source, boolean stream) {
+    Scanner scanner = new Scanner(source, new ErrorReporter());
+    int n = 1;
+
+    if (stream) {
+      while (scanner.nextKind() != Token.EOF)
+        n++;
+    } else {
+      while (scanner.getToken().kind != Token.EOF)
+        n++;
+    }
+    tokens = n;
+  }
+
+}
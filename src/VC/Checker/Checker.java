@@ -8,6 +8,7 @@ package VC.Checker;
 import VC.ASTs.*;
 import VC.Scanner.SourcePosition;
 import VC.ErrorReporter;
+import VC.NamePool;
 import VC.StdEnvironment;
 
 public final class Checker implements Visitor {
@@ -74,6 +75,7 @@ public final class Checker implements Visitor {
 
 
   private SymbolTable idTable;
+  private NamePool names;
   private static SourcePosition dummyPos = new SourcePosition();
   private ErrorReporter reporter;
   private boolean func_return_mark;
@@ -85,8 +87,24 @@ public final class Checker implements Visitor {
   //  (2) Each expression and variable is decorated by its type.
 
   public Checker (ErrorReporter reporter) {
-    this.reporter = reporter;
+    this(reporter, new NamePool());
+  }
+
+  // names should be the pool the program was scanned with, if any, and
+  // is shared with the code generator.
+
+  public Checker (ErrorReporter reporter, NamePool names) {
     this.idTable = new SymbolTable ();
+    reset(reporter, names);
+  }
+
+  // Makes this checker ready to check another program, reusing its
+  // symbol table.
+
+  public void reset(ErrorReporter reporter, NamePool names) {
+    this.reporter = reporter;
+    this.names = names;
+    idTable.reset();
     establishStdEnvironment();
     func_return_mark = false;
   }
@@ -99,13 +117,13 @@ public final class Checker implements Visitor {
   // auxiliary methods
 
   private void declareVariable(Ident ident, Decl decl) {
-    IdEntry entry = idTable.retrieveOneLevel(ident.spelling);
+    IdEntry entry = idTable.retrieveOneLevel(names.id(ident));
 
     if (entry == null) {
       ; // no problem
     } else
       reporter.reportError(errMesg[2] + ": %", ident.spelling, ident.position);
-    idTable.insert(ident.spelling, decl);
+    idTable.insert(names.id(ident), decl);
   }
 
 // =========================== Program =============================================
@@ -114,7 +132,7 @@ public final class Checker implements Visitor {
   public Object visitProgram(Program ast, Object o) {
 	
     ast.FL.visit(this, null);
-    Decl check_main = idTable.retrieve("main");
+    Decl check_main = idTable.retrieve(names.id("main"));
     //Need check null-pointer
     if(check_main != null){
     	//main should be int type
@@ -137,11 +155,11 @@ public final class Checker implements Visitor {
 
   public Object visitFuncDecl(FuncDecl ast, Object o) {
 	  //Check duplicate defined function
-      IdEntry check_duplicate = idTable.retrieveOneLevel(ast.I.spelling);
+      IdEntry check_duplicate = idTable.retrieveOneLevel(names.id(ast.I));
 	  if(check_duplicate != null){
 		  reporter.reportError(errMesg[2]+": %", ast.I.spelling, ast.position);
 	  }
-      idTable.insert (ast.I.spelling, ast); 
+      idTable.insert (names.id(ast.I), ast); 
      // System.out.println("function name: "+ ast.I.spelling);
     // HINT
     // Pass ast as the 2nd argument (as done below) so that the
@@ -188,9 +206,9 @@ public final class Checker implements Visitor {
     	if(ast.E instanceof InitExpr){
     		Integer size = (Integer)r;
     		if(((ArrayType) ast.T).E.isEmptyExpr()){
-    			((ArrayType) ast.T).E = new IntExpr(new IntLiteral(size.toString(),dummyPos),dummyPos );
+    			((ArrayType) ast.T).E = new IntExpr(new IntLiteral(size.toString(),size,dummyPos),dummyPos );
     		}else{
-    			Integer d_size = Integer.parseInt(((IntExpr)((ArrayType) ast.T).E).IL.spelling);
+    			int d_size = ((IntExpr)((ArrayType) ast.T).E).IL.value;
     			if(d_size < size){
     				reporter.reportError(errMesg[16]+": %", ast.I.spelling, ast.E.position);
     			}
@@ -229,9 +247,9 @@ public final class Checker implements Visitor {
     	if(ast.E instanceof InitExpr){
     		Integer size = (Integer)r;
     		if(((ArrayType) ast.T).E.isEmptyExpr()){
-    			((ArrayType) ast.T).E = new IntExpr(new IntLiteral(size.toString(),dummyPos),dummyPos );
+    			((ArrayType) ast.T).E = new IntExpr(new IntLiteral(size.toString(),size,dummyPos),dummyPos );
     		}else{
-    			Integer d_size = Integer.parseInt(((IntExpr)((ArrayType) ast.T).E).IL.spelling);
+    			int d_size = ((IntExpr)((ArrayType) ast.T).E).IL.value;
     			if(d_size < size){
     				reporter.reportError(errMesg[16]+": %", ast.I.spelling, ast.E.position);
     			}
@@ -539,7 +557,7 @@ public final class Checker implements Visitor {
 	
 
 	public Object visitSimpleVar(SimpleVar ast, Object o) {
-		Decl ident = idTable.retrieve(ast.I.spelling);
+		Decl ident = idTable.retrieve(names.id(ast.I));
 		//Not declare
 		if(ident == null){
 			reporter.reportError(errMesg[5]+": %", ast.I.spelling, ast.I.position);
@@ -581,7 +599,7 @@ public final class Checker implements Visitor {
 	
 	// call function -> func(a, b);
 	public Object visitCallExpr(CallExpr ast, Object o) {
-		Decl funcId = idTable.retrieve(ast.I.spelling);
+		Decl funcId = idTable.retrieve(names.id(ast.I));
 		
 		if(funcId == null){
 			//function doesn't exist 
@@ -604,7 +622,7 @@ public final class Checker implements Visitor {
 		ast.E2.visit(this, o);
 		//left value E1 cannot be a function
 		if(ast.E1 instanceof VarExpr){
-			Decl ident = idTable.retrieve(((SimpleVar)((VarExpr) ast.E1).V).I.spelling);
+			Decl ident = idTable.retrieve(names.id(((SimpleVar)((VarExpr) ast.E1).V).I));
 			if(ident != null){
 				if(ident.isFuncDecl()){
 					reporter.reportError(errMesg[7]+": %", ((SimpleVar)((VarExpr) ast.E1).V).I.spelling, ast.E1.position);
@@ -771,7 +789,7 @@ public final class Checker implements Visitor {
   // Literals, Identifiers and Operators
 
   public Object visitIdent(Ident I, Object o) {
-    Decl binding = idTable.retrieve(I.spelling);
+    Decl binding = idTable.retrieve(names.id(I));
     if (binding != null)
       I.decl = binding;
     return binding;
@@ -797,82 +815,14 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  // Creates a small AST to represent the "declaration" of each built-in
-  // function, and enters it in the symbol table.
-
-  private FuncDecl declareStdFunc (Type resultType, String id, List pl) {
-
-    FuncDecl binding;
-
-    binding = new FuncDecl(resultType, new Ident(id, dummyPos), pl, 
-           new EmptyStmt(dummyPos), dummyPos);
-    idTable.insert (id, binding);
-    return binding;
-  }
-
-  // Creates small ASTs to represent "declarations" of all 
-  // build-in functions.
-  // Inserts these "declarations" into the symbol table.
-
-  private final static Ident dummyI = new Ident("x", dummyPos);
+  // Enters the "declarations" of all built-in functions, which are
+  // built once in StdEnvironment, into the symbol table.
 
   private void establishStdEnvironment () {
+    FuncDecl[] std = StdEnvironment.stdFunctions;
 
-    // Define four primitive types
-    // errorType is assigned to ill-typed expressions
-
-    StdEnvironment.booleanType = new BooleanType(dummyPos);
-    StdEnvironment.intType = new IntType(dummyPos);
-    StdEnvironment.floatType = new FloatType(dummyPos);
-    StdEnvironment.stringType = new StringType(dummyPos);
-    StdEnvironment.voidType = new VoidType(dummyPos);
-    StdEnvironment.errorType = new ErrorType(dummyPos);
-
-    // enter into the declarations for built-in functions into the table
-
-    StdEnvironment.getIntDecl = declareStdFunc( StdEnvironment.intType,
-	"getInt", new EmptyParaList(dummyPos)); 
-    StdEnvironment.putIntDecl = declareStdFunc( StdEnvironment.voidType,
-	"putInt", new ParaList(
-	new ParaDecl(StdEnvironment.intType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-    StdEnvironment.putIntLnDecl = declareStdFunc( StdEnvironment.voidType,
-	"putIntLn", new ParaList(
-	new ParaDecl(StdEnvironment.intType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-    StdEnvironment.getFloatDecl = declareStdFunc( StdEnvironment.floatType,
-	"getFloat", new EmptyParaList(dummyPos)); 
-    StdEnvironment.putFloatDecl = declareStdFunc( StdEnvironment.voidType,
-	"putFloat", new ParaList(
-	new ParaDecl(StdEnvironment.floatType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-    StdEnvironment.putFloatLnDecl = declareStdFunc( StdEnvironment.voidType,
-	"putFloatLn", new ParaList(
-	new ParaDecl(StdEnvironment.floatType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-    StdEnvironment.putBoolDecl = declareStdFunc( StdEnvironment.voidType,
-	"putBool", new ParaList(
-	new ParaDecl(StdEnvironment.booleanType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-    StdEnvironment.putBoolLnDecl = declareStdFunc( StdEnvironment.voidType,
-	"putBoolLn", new ParaList(
-	new ParaDecl(StdEnvironment.booleanType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-
-    StdEnvironment.putStringLnDecl = declareStdFunc( StdEnvironment.voidType,
-	"putStringLn", new ParaList(
-	new ParaDecl(StdEnvironment.stringType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-
-    StdEnvironment.putStringDecl = declareStdFunc( StdEnvironment.voidType,
-	"putString", new ParaList(
-	new ParaDecl(StdEnvironment.stringType, dummyI, dummyPos),
-	new EmptyParaList(dummyPos), dummyPos)); 
-
-    StdEnvironment.putLnDecl = declareStdFunc( StdEnvironment.voidType,
-	"putLn", new EmptyParaList(dummyPos));
-
+    for (int i = 0; i < std.length; i++)
+      idTable.insert(names.id(std[i].I.spelling), std[i]);
   }
 
-
 }
@@ -8,15 +8,17 @@ import VC.ASTs.Decl;
 
 public class IdEntry {
 
-  protected String id;
+  protected int id;
   protected Decl attr;
   protected int level;
   protected IdEntry previousEntry;
+  protected IdEntry shadowedEntry; // the entry of the same id it hides
 
-  IdEntry (String id, Decl attr, int level, IdEntry previousEntry) {
+  IdEntry (int id, Decl attr, int level, IdEntry previousEntry, IdEntry shadowedEntry) {
     this.id = id;
     this.attr = attr;
     this.level = level;
     this.previousEntry = previousEntry;
+    this.shadowedEntry = shadowedEntry;
   }
 }
@@ -23,6 +23,11 @@
  * such as Java and Ada, it is possible to use a quantified name 
  * such as x.y to access a nonlocal variable "y". In this case, the
  * symbol table for "y" has to be made accessible in some way.
+ *
+ * Identifiers are given by their ids in the NamePool. Besides the
+ * stack, the table keeps the top-most entry of every id in an array
+ * indexed by id, and each entry points to the entry it hides, so that
+ * retrieve takes constant time however many names are in scope.
  */
 
 package VC.Checker;
@@ -33,10 +38,22 @@ public final class SymbolTable {
 
   private int level;
   private IdEntry latest;
+  private IdEntry[] visible; // the top-most entry for each id
 
   public SymbolTable () {
     level = 1;
     latest = null;
+    visible = new IdEntry[64];
+  }
+
+  // Empties the table, keeping its storage for the next program.
+
+  public void reset () {
+    while (latest != null) {
+      visible[latest.id] = null;
+      latest = latest.previousEntry;
+    }
+    level = 1;
   }
 
   // Opens a new level in the symbol table, 1 higher than the
@@ -55,8 +72,10 @@ public final class SymbolTable {
 
     // Presumably, idTable.level > 0.
     entry = this.latest;
-    while (entry.level == this.level)
+    while (entry.level == this.level) {
+      visible[entry.id] = entry.shadowedEntry;
       entry = entry.previousEntry;
+    }
     this.level--;
     this.latest = entry;
   }
@@ -64,10 +83,17 @@ public final class SymbolTable {
   // Makes a new entry in the symbol table for the given identifier
   // and attribute. The new entry belongs to the current scope level.
 
-  public void insert(String id, Decl attr) {
+  public void insert(int id, Decl attr) {
 
     IdEntry entry;
-    entry = new IdEntry(id, attr, this.level, this.latest);
+
+    if (id >= visible.length) {
+      IdEntry[] v = new IdEntry[Math.max(visible.length * 2, id + 1)];
+      System.arraycopy(visible, 0, v, 0, visible.length);
+      visible = v;
+    }
+    entry = new IdEntry(id, attr, this.level, this.latest, visible[id]);
+    visible[id] = entry;
     this.latest = entry;
   }
 
@@ -77,40 +103,23 @@ public final class SymbolTable {
   // Returns null iff no entry is found.
   // otherwise returns the attribute field of the entry found.
 
-  public Decl retrieve (String id) {
+  public Decl retrieve (int id) {
 
-    IdEntry entry;
-    Decl attr = null;
-    boolean present = false, searching = true;
-
-    entry = this.latest;
-    while (searching) {
-      if (entry == null)
-        searching = false;
-      else if (entry.id.equals(id)) {
-        present = true;
-        searching = false;
-        attr = entry.attr;
-      } else
-        entry = entry.previousEntry;
-    }
-    return attr;
+    if (id < visible.length && visible[id] != null)
+      return visible[id].attr;
+    else
+      return null;
   }
 
- public IdEntry retrieveOneLevel(String id) {
-    IdEntry entry;
+  // Returns the entry for the given identifier in the current level,
+  // or null if there is none.
 
-    entry = this.latest;
-
-    while (entry != null) {
-      if (entry.level != this.level)
-        return null;
-      if (entry.id.equals(id))
-        break;
-      entry = entry.previousEntry;
-    }
+  public IdEntry retrieveOneLevel(int id) {
 
-    return entry;
+    if (id < visible.length && visible[id] != null && visible[id].level == this.level)
+      return visible[id];
+    else
+      return null;
   }
 
 }
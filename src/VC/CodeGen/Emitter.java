@@ -15,12 +15,12 @@ package VC.CodeGen;
 import java.util.LinkedList;
 import java.util.Enumeration;
 import java.util.ListIterator;
+import java.util.Arrays;
 
 import VC.ASTs.*;
 import VC.ErrorReporter;
+import VC.NamePool;
 import VC.StdEnvironment;
-import java.util.HashMap;
-import java.util.Map;
 
 public final class Emitter implements Visitor {
 
@@ -29,14 +29,45 @@ public final class Emitter implements Visitor {
   private String classname;
   private String outputFilename;
   private boolean func_return_mark;
-  private HashMap<String, Integer> localvars;
-  private HashMap<String, AST> functions;
+  private NamePool names;
+
+  // The index of each local variable of the current function and the
+  // declaration of each function, by the id of its name. Arrays are
+  // kept apart from scalars of the same name. The ids of the locals
+  // are logged so that they can be forgotten at the end of a function.
+  private int[] localvars, localarrays;
+  private int[] localLog;
+  private int localCount;
+  private FuncDecl[] functions;
+
+  private JVM jvm; // the code store
+
   public Emitter(String inputFilename, ErrorReporter reporter) {
+    this(inputFilename, reporter, new NamePool());
+  }
+
+  // names should be the pool used by the checker.
+
+  public Emitter(String inputFilename, ErrorReporter reporter, NamePool names) {
+    localvars = new int[0];
+    localarrays = new int[0];
+    localLog = new int[16];
+    localCount = 0;
+    functions = new FuncDecl[0];
+    jvm = new JVM();
+    reset(inputFilename, reporter, names);
+  }
+
+  // Makes this emitter ready to translate another program, reusing its
+  // code store and tables.
+
+  public void reset(String inputFilename, ErrorReporter reporter, NamePool names) {
     this.inputFilename = inputFilename;
     errorReporter = reporter;
+    this.names = names;
     func_return_mark = false;
-    localvars = new HashMap();
-    functions = new HashMap();
+    clearLocals();
+    Arrays.fill(functions, null);
     int i = inputFilename.lastIndexOf('.');
     if (i > 0)
       classname = inputFilename.substring(0, i);
@@ -45,11 +76,69 @@ public final class Emitter implements Visitor {
     
   }
 
+  // Local variables and functions by name
+
+  private void putLocal(Ident I, boolean isArray, int index) {
+    int id = names.id(I);
+
+    if (id >= localvars.length) {
+      int n = Math.max(localvars.length * 2, names.size());
+      localvars = grow(localvars, n);
+      localarrays = grow(localarrays, n);
+    }
+    if (localCount == localLog.length)
+      localLog = Arrays.copyOf(localLog, localCount * 2);
+    localLog[localCount++] = id;
+    if (isArray)
+      localarrays[id] = index;
+    else
+      localvars[id] = index;
+  }
+
+  // Returns the index of the local variable, or -1 if it is global.
+
+  private int getLocal(Ident I, boolean isArray) {
+    int id = names.id(I);
+
+    if (id >= localvars.length)
+      return -1;
+    return isArray ? localarrays[id] : localvars[id];
+  }
+
+  private void clearLocals() {
+    for (int k = 0; k < localCount; k++) {
+      localvars[localLog[k]] = -1;
+      localarrays[localLog[k]] = -1;
+    }
+    localCount = 0;
+  }
+
+  private static int[] grow(int[] a, int n) {
+    int[] b = new int[n];
+    System.arraycopy(a, 0, b, 0, a.length);
+    Arrays.fill(b, a.length, n, -1);
+    return b;
+  }
+
+  private void putFunction(FuncDecl ast) {
+    int id = names.id(ast.I);
+
+    if (id >= functions.length)
+      functions = Arrays.copyOf(functions, Math.max(functions.length * 2, names.size()));
+    functions[id] = ast;
+  }
+
+  private FuncDecl getFunction(Ident I) {
+    int id = names.id(I);
+    return id < functions.length ? functions[id] : null;
+  }
+
   // PRE: ast must be a Program node--- travel from here
 
   public final void gen(AST ast) {
+    jvm.reset();
     ast.visit(this, null); 
-    JVM.dump(classname + ".j");
+    jvm.dump(classname + ".j");
   }
     
   // Programs
@@ -161,7 +250,7 @@ public final class Emitter implements Visitor {
   public Object visitFuncDecl(FuncDecl ast, Object o) {
 
     Frame frame; 
-    functions.put(ast.I.spelling, ast);
+    putFunction(ast);
     if (ast.I.spelling.equals("main")) {
 
        frame = new Frame(true);
@@ -242,7 +331,7 @@ public final class Emitter implements Visitor {
 
     emit(JVM.LIMIT, "stack", frame.getMaximumStackSize());
     emit(".end method");
-    localvars.clear();
+    clearLocals();
     return null;
   }
 
@@ -259,11 +348,11 @@ public final class Emitter implements Visitor {
     emit(JVM.VAR + " " + ast.index + " is " + ast.I.spelling + " " + T + " from " + (String) frame.scopeStart.peek() + " to " +  (String) frame.scopeEnd.peek());
     
       if(ast.T.isArrayType()){
-    	  localvars.put(ast.I.spelling+"[]", ast.index);
+    	  putLocal(ast.I, true, ast.index);
     	  ArrayType arr_type = (ArrayType) ast.T;
     	  arr_type.visit(this, o);
       }else{
-    	  localvars.put(ast.I.spelling, ast.index);
+    	  putLocal(ast.I, false, ast.index);
       }
       if (!ast.E.isEmptyExpr()) {
           ast.E.visit(this, o);
@@ -559,7 +648,7 @@ public final class Emitter implements Visitor {
     } else { // programmer-defined functions
 
       //FuncDecl fAST = (FuncDecl) ast.I.decl;
-    	FuncDecl fAST = (FuncDecl)functions.get(ast.I.spelling);
+    	FuncDecl fAST = getFunction(ast.I);
       // all functions except main are assumed to be instance methods
       if (frame.isMain()) 
         emit("aload_1"); // vc.funcname(...)
@@ -809,7 +898,7 @@ public final class Emitter implements Visitor {
 			arr.E.visit(this, o);
 			//Rvalues load
 			ast.E2.visit(this, o);
-			if(localvars.containsKey(((SimpleVar) arr.V).I.spelling+"[]")){
+			if(getLocal(((SimpleVar) arr.V).I, true) >= 0){
 				if(((ArrayType )arr.V.type).T.isFloatType()){
 					emit(JVM.FASTORE);
 				}else if(((ArrayType )arr.V.type).T.isFloatType()){
@@ -839,8 +928,8 @@ public final class Emitter implements Visitor {
 			}
 			
 			
-			if(localvars.containsKey(var.I.spelling)){
-				int index = localvars.get(var.I.spelling);
+			if(getLocal(var.I, false) >= 0){
+				int index = getLocal(var.I, false);
 				if(ast.type.isFloatType()) {
 					if (index >= 0 && index <= 3) 
 					    emit(JVM.FSTORE + "_" + index); 
@@ -873,9 +962,9 @@ public final class Emitter implements Visitor {
     ast.index = frame.getNewIndex();
     String T = VCtoJavaType(ast.T);
     if(ast.T.isArrayType()){
-    	localvars.put(ast.I.spelling+"[]", ast.index);
+    	putLocal(ast.I, true, ast.index);
     }else{
-    	localvars.put(ast.I.spelling, ast.index);
+    	putLocal(ast.I, false, ast.index);
     }
     
     emit(JVM.VAR + " " + ast.index + " is " + ast.I.spelling + " " + T + " from " + (String) frame.scopeStart.peek() + " to " +  (String) frame.scopeEnd.peek());
@@ -931,7 +1020,7 @@ public final class Emitter implements Visitor {
 
   public Object visitArrayType(ArrayType ast, Object o) {
   	Frame frame = (Frame) o;
-  	int size = Integer.parseInt(((IntExpr)ast.E).IL.spelling);
+  	int size = ((IntExpr)ast.E).IL.value;
   	emitICONST(size);
   	frame.push();
   	emit(JVM.NEWARRAY, ast.T.toString());
@@ -949,14 +1038,14 @@ public final class Emitter implements Visitor {
 
   public Object visitIntLiteral(IntLiteral ast, Object o) {
     Frame frame = (Frame) o;
-    emitICONST(Integer.parseInt(ast.spelling));
+    emitICONST(ast.value);
     frame.push();
     return null;
   }
 
   public Object visitFloatLiteral(FloatLiteral ast, Object o) {
     Frame frame = (Frame) o;
-    emitFCONST(Float.parseFloat(ast.spelling));
+    emitFCONST(ast.value);
     frame.push();
     return null;
   }
@@ -986,23 +1075,23 @@ public final class Emitter implements Visitor {
 	  
 	  //int index = 0;
 	  if(ast.type.isArrayType()){
-		  if(localvars.containsKey(ast.I.spelling+"[]")){
-			  int index = localvars.get(ast.I.spelling+"[]");
+		  if(getLocal(ast.I, true) >= 0){
+			  int index = getLocal(ast.I, true);
 			  emitALOAD(index);
 		  }else{
 			  emitGETSTATIC(VCtoJavaType(ast.type), ast.I.spelling);
 		  }
 	  }else if(ast.type.isFloatType()){
-		  if(localvars.containsKey(ast.I.spelling)){
-			  int index = localvars.get(ast.I.spelling);
+		  if(getLocal(ast.I, false) >= 0){
+			  int index = getLocal(ast.I, false);
 			  emitFLOAD(index);
 		  }else{
 			  emitGETSTATIC(VCtoJavaType(ast.type), ast.I.spelling);
 		  }
 		  
 	  }else{
-		  if(localvars.containsKey(ast.I.spelling)){
-			  int index = localvars.get(ast.I.spelling);
+		  if(getLocal(ast.I, false) >= 0){
+			  int index = getLocal(ast.I, false);
 			  emitILOAD(index);
 		  }else{
 			  emitGETSTATIC(VCtoJavaType(ast.type), ast.I.spelling);
@@ -1020,7 +1109,7 @@ public final class Emitter implements Visitor {
   // Code Store. It is called by all other overloaded emit methods.
 
   private void emit(String s) {
-    JVM.append(new Instruction(s)); 
+    jvm.append(s); 
   }
 
   private void emit(String s1, String s2) {
@@ -12,29 +12,43 @@ public final class JVM {
 
 // CODE STORE
 
-  public static int nextInstAddr = 0;
-  public static int codeSize = 512;
-  public static Instruction[] code = new Instruction[codeSize];
+  // Each Emitter has a code store of its own, which is emptied for
+  // every program it translates. The Instruction objects are kept and
+  // reused for the next program.
+
+  private int nextInstAddr = 0;
+  private Instruction[] code = new Instruction[512];
+
+  public void reset() {
+    nextInstAddr = 0;
+  }
+
+  public int size() {
+    return nextInstAddr;
+  }
 
   // In production compilers, expensive array copies will be avoided
   // when dynamic data structures such as linked lists are used.
-  public static void append(Instruction inst) {
-    if (nextInstAddr >= codeSize) {
-      Instruction[] newCode = new Instruction[2 * codeSize];
-      System.arraycopy(code, 0, newCode, 0, codeSize); 
-      codeSize = 2 * code.length;
+  public void append(String inst) {
+    if (nextInstAddr >= code.length) {
+      Instruction[] newCode = new Instruction[2 * code.length];
+      System.arraycopy(code, 0, newCode, 0, code.length); 
       code = newCode;
     }
     
-    code[nextInstAddr++] = inst;
+    if (code[nextInstAddr] == null)
+      code[nextInstAddr] = new Instruction(inst);
+    else
+      code[nextInstAddr].inst = inst;
+    nextInstAddr++;
   }
   
-  public static void dump(String filename) {
+  public void dump(String filename) {
     PrintWriter writer;
     try {
       writer = new PrintWriter(new FileOutputStream(filename));
       for (int addr = 0; addr < nextInstAddr; addr++)
-      JVM.code[addr].write(writer);
+      code[addr].write(writer);
 
       writer.close();
     } catch (FileNotFoundException e) {
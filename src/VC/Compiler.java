@@ -0,0 +1,193 @@
+/*
+ * Compiler.java
+ *
+ * The passes of vc as a library, for compiling many programs in one
+ * JVM. A Compiler keeps its scanner, parser, checker, code generator
+ * and name pool from one program to the next, and resets them instead
+ * of building new ones, so that their buffers and tables are reused.
+ * The positions in the AST of a program come from a PositionArena,
+ * and are taken back once the program is compiled.
+ *
+ * A Compiler compiles one program at a time. To compile on several
+ * threads, give each thread a Compiler of its own.
+ *
+ *   java VC.Compiler filename ...
+ *
+ * compiles each file in turn. A file ending in .zip or .jar is opened
+ * as a zip file system and each .vc entry in it is compiled straight
+ * from the archive, into a Jasmin file named after the entry in the
+ * current directory.
+ */
+
+package VC;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import VC.ASTs.AST;
+import VC.Checker.Checker;
+import VC.CodeGen.Emitter;
+import VC.Parser.Parser;
+import VC.Parser.PositionArena;
+import VC.Scanner.Scanner;
+import VC.Scanner.SourceFile;
+import VC.Scanner.SourcePosition;
+
+public final class Compiler {
+
+  private NamePool names;
+  private Scanner scanner;
+  private Parser parser;
+  private PositionArena arena;
+  private Checker checker;
+  private Emitter emitter;
+
+  private int compiled, failed; // the counts of main
+
+  public Compiler() {
+    names = new NamePool();
+  }
+
+  // Compiles the program in filename into a Jasmin file named after it,
+  // reporting the errors to reporter. Returns whether it succeeded. A
+  // file that cannot be read is reported as an error, and the Compiler
+  // can go on to the next one.
+
+  public boolean compile(String filename, ErrorReporter reporter) {
+    return compile(Paths.get(filename), reporter);
+  }
+
+  // A program on another file system than the default one, such as an
+  // entry of an archive, is compiled into a file named after its last
+  // name in the current directory.
+
+  public boolean compile(Path path, ErrorReporter reporter) {
+    String filename = path.toString();
+    if (path.getFileSystem() != FileSystems.getDefault())
+      filename = path.getFileName().toString();
+    SourceFile source;
+    try {
+      source = SourceFile.open(path);
+    } catch (IOException e) {
+      String reason = e instanceof NoSuchFileException ? "" : " (" + e + ")";
+      reporter.reportError("can't read: %" + reason, path.toString(), new SourcePosition());
+      return false;
+    }
+    names.clear();
+
+    if (scanner == null) {
+      scanner = new Scanner(source, reporter, names);
+      parser = new Parser(scanner, reporter);
+      arena = new PositionArena();
+      parser.setArena(arena);
+    } else {
+      scanner.reset(source, reporter, names);
+      parser.reset(scanner, reporter);
+    }
+    try {
+      return checkAndEmit(filename, parser.parseProgram(), reporter);
+    } finally {
+      arena.release();
+    }
+  }
+
+  // The rest of the passes, on the AST of a program if it was parsed
+  // with no errors.
+
+  private boolean checkAndEmit(String filename, AST ast, ErrorReporter reporter) {
+    if (reporter.numErrors > 0)
+      return false;
+
+    if (checker == null)
+      checker = new Checker(reporter, names);
+    else
+      checker.reset(reporter, names);
+    checker.check(ast);
+    if (reporter.numErrors > 0)
+      return false;
+
+    if (emitter == null)
+      emitter = new Emitter(filename, reporter, names);
+    else
+      emitter.reset(filename, reporter, names);
+    emitter.gen(ast);
+    return reporter.numErrors == 0;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java VC.Compiler filename ...");
+      System.exit(1);
+    }
+
+    Compiler compiler = new Compiler();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].endsWith(".zip") || args[i].endsWith(".jar"))
+        compiler.compileArchive(Paths.get(args[i]));
+      else
+        compiler.compileFile(Paths.get(args[i]));
+    }
+    System.out.println((compiler.compiled - compiler.failed) + " of " + compiler.compiled
+                       + " compiled");
+    System.exit(compiler.failed == 0 ? 0 : 1);
+  }
+
+  private void compileFile(Path path) {
+    System.out.println("[# vc #]: " + path);
+    compiled++;
+    if (!compile(path, new ErrorReporter())) {
+      System.out.println("Compilation was unsuccessful.");
+      failed++;
+    }
+  }
+
+  // An archive that cannot be opened counts as one program that failed.
+
+  private void compileArchive(Path archive) throws IOException {
+    FileSystem fs;
+    try {
+      fs = FileSystems.newFileSystem(archive, (ClassLoader) null);
+    } catch (IOException e) {
+      System.out.println("[# vc #]: can't read: " + archive);
+      compiled++;
+      failed++;
+      return;
+    }
+    try {
+      Path[] entries = vcFiles(fs);
+      for (int i = 0; i < entries.length; i++)
+        compileFile(entries[i]);
+    } finally {
+      fs.close();
+    }
+  }
+
+  // the .vc files of fs, sorted
+
+  private static Path[] vcFiles(FileSystem fs) throws IOException {
+    final ArrayList<Path> files = new ArrayList<Path>();
+
+    for (Path root : fs.getRootDirectories())
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+          if (file.toString().endsWith(".vc"))
+            files.add(file);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    Path[] paths = files.toArray(new Path[files.size()]);
+    Arrays.sort(paths);
+    return paths;
+  }
+
+}
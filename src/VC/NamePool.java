@@ -0,0 +1,137 @@
+/*
+ * NamePool.java
+ */
+
+// The identifiers of one compilation. Each distinct spelling is
+// stored once and numbered densely from 0 in the order in which it is
+// first seen, so that the later phases can compare names by number and
+// keep per-name information in arrays indexed by it.
+//
+// The scanner enters identifiers straight from the source buffer, so
+// an identifier that has been seen before costs no new String.
+
+package VC;
+
+import VC.ASTs.Ident;
+import VC.Scanner.SourceFile;
+
+public final class NamePool {
+
+  private String[] names;
+  private int[] hashes;
+  private int size;
+
+  // an open-addressing hash table of id + 1, or 0 for a free slot
+  private int[] slots;
+
+  public NamePool() {
+    names = new String[256];
+    hashes = new int[256];
+    slots = new int[512];
+    size = 0;
+  }
+
+  // Forgets all names, keeping the storage for the next compilation.
+
+  public void clear() {
+    for (int i = 0; i < size; i++)
+      names[i] = null;
+    for (int i = 0; i < slots.length; i++)
+      slots[i] = 0;
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String name(int id) {
+    return names[id];
+  }
+
+  public int id(String name) {
+    int hash = name.hashCode();
+    int mask = slots.length - 1;
+
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int id = slots[i] - 1;
+      if (id < 0)
+        return add(name, hash, i);
+      if (hashes[id] == hash && names[id].equals(name))
+        return id;
+    }
+  }
+
+  // Returns the id of the identifier from start to end (exclusive) in
+  // the source buffer.
+
+  public int id(SourceFile source, int start, int end) {
+    int hash = 0;
+    for (int k = start; k < end; k++)
+      hash = 31 * hash + source.charAt(k); // as String.hashCode
+
+    int mask = slots.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int id = slots[i] - 1;
+      if (id < 0)
+        return add(source.substring(start, end), hash, i);
+      if (hashes[id] == hash && matches(names[id], source, start, end))
+        return id;
+    }
+  }
+
+  // Returns the id of the identifier, remembering it in the node. The
+  // spelling of the node is replaced by the pooled String.
+
+  public int id(Ident ident) {
+    int id = ident.id;
+
+    if (id < 0 || id >= size || names[id] != ident.spelling) {
+      id = id(ident.spelling);
+      ident.id = id;
+      ident.spelling = names[id];
+    }
+    return id;
+  }
+
+  private static boolean matches(String name, SourceFile source, int start, int end) {
+    if (name.length() != end - start)
+      return false;
+    for (int k = 0; k < name.length(); k++)
+      if (name.charAt(k) != source.charAt(start + k))
+        return false;
+    return true;
+  }
+
+  private int add(String name, int hash, int slot) {
+    if (size == names.length) {
+      String[] n = new String[size * 2];
+      int[] h = new int[size * 2];
+      System.arraycopy(names, 0, n, 0, size);
+      System.arraycopy(hashes, 0, h, 0, size);
+      names = n;
+      hashes = h;
+    }
+    names[size] = name;
+    hashes[size] = hash;
+    slots[slot] = size + 1;
+    size++;
+
+    if (size * 2 > slots.length)
+      rehash();
+    return size - 1;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    int mask = slots.length - 1;
+
+    for (int id = 0; id < size; id++) {
+      int i = hashes[id] & mask;
+      while (slots[i] != 0)
+        i = (i + 1) & mask;
+      slots[i] = id + 1;
+    }
+  }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Grammar.java
+ *
+ * The syntax of VC, from which LL1Generator builds the parse table run
+ * by TableParser.
+ *
+ * Each string is a production
+ *
+ *   nonterminal -> symbol ...
+ *
+ * and the productions of a nonterminal are its alternatives. The first
+ * nonterminal is the start symbol. A symbol is
+ *
+ *   'if'  '+'    a token, by its spelling (see Token.spell)
+ *   <id>  $      a token that is not quoted: <id>, <int-literal>,
+ *                <float-literal>, <boolean-literal>, <string-literal>,
+ *                or $ for the end of the program
+ *   name         a nonterminal
+ *   #name        a semantic action, one of the actions below
+ *
+ * An alternative with no symbols is written %empty. The grammar must be
+ * LL(1) and not left recursive, with one exception: an alternative
+ * marked %default is chosen for every token for which no other
+ * alternative is, so it gives way to the others where they overlap, as
+ * the empty else part does to "else". A nonterminal with one alternative
+ * always chooses it. Every other nonterminal must have a message in
+ * errors, which is reported for the tokens for which none of its
+ * alternatives is chosen, with % standing for the token. So, like
+ * Parser, a table parser reports an error at the first token it cannot
+ * match, with the same message.
+ *
+ * The semantic actions are run by TableParser when they are popped off
+ * its stack, and build the AST on a stack of values, as described there.
+ */
+
+package VC.Parser;
+
+final class Grammar {
+
+  static final String[] productions = {
+
+    // ================ programs and declarations ================
+
+    "program              -> #start decl-list #program end",
+    "end                  -> $",
+
+    "decl-list            -> #declList decls #endList",
+    "decls                -> decl #appendDecl more-decls %default",
+    "decls                -> %empty",
+    "more-decls           -> decl #appendDecl more-decls",
+    "more-decls           -> %empty %default",
+
+    // type identifier "(" starts a function
+    "decl                 -> #start type ident decl-tail",
+    "decl-tail            -> #start para-list compound-stmt #funcDecl",
+    "decl-tail            -> #globalVars init-declarators #endList ';' %default",
+
+    "var-decl             -> type ident #localVars init-declarators #endList ';'",
+
+    "init-declarators     -> init-declarator more-init-declarators",
+    "more-init-declarators -> ',' ident init-declarator more-init-declarators",
+    "more-init-declarators -> %empty %default",
+    "init-declarator      -> #start declarator init-opt #initDeclarator",
+    "init-opt             -> '=' initialiser",
+    "init-opt             -> #noInit %default",
+
+    "declarator           -> #start '[' array-size ']' #arrayType",
+    "declarator           -> #scalarType %default",
+    "array-size           -> <int-literal> #intSize",
+    "array-size           -> #noSize %default",
+
+    "initialiser          -> #start '{' #exprList init-exprs #endList #initExpr '}'",
+    "initialiser          -> expr %default",
+    "init-exprs           -> init-expr more-init-exprs",
+    "more-init-exprs      -> ',' init-expr more-init-exprs",
+    "more-init-exprs      -> %empty %default",
+    "init-expr            -> #start expr #appendExpr",
+
+    "type                 -> #start 'void' #voidType",
+    "type                 -> #start 'boolean' #booleanType",
+    "type                 -> #start 'int' #intType",
+    "type                 -> #start 'float' #floatType",
+
+    "ident                -> <id> #ident",
+
+    // ======================== statements ========================
+
+    "compound-stmt        -> #start '{' #declList var-decls #endList"
+                          + " #stmtList stmts #endList '}' #compoundStmt",
+    "var-decls            -> var-decl #appendDecl var-decls",
+    "var-decls            -> %empty %default",
+    "stmts                -> #start stmt #appendStmt stmts %default",
+    "stmts                -> %empty",
+
+    "stmt                 -> compound-stmt",
+    "stmt                 -> if-stmt",
+    "stmt                 -> for-stmt",
+    "stmt                 -> while-stmt",
+    "stmt                 -> break-stmt",
+    "stmt                 -> continue-stmt",
+    "stmt                 -> return-stmt",
+    "stmt                 -> expr-stmt %default",
+
+    "if-stmt              -> #start 'if' '(' expr ')' stmt else-part",
+    "else-part            -> 'else' #else stmt #ifElseStmt",
+    "else-part            -> #ifStmt %default",
+    "for-stmt             -> #start 'for' '(' expr-opt ';' expr-opt ';' expr-opt ')' stmt #forStmt",
+    "while-stmt           -> #start 'while' '(' expr ')' stmt #whileStmt",
+    "break-stmt           -> #start 'break' ';' #breakStmt",
+    "continue-stmt        -> #start 'continue' ';' #continueStmt",
+    "return-stmt          -> #start 'return' expr-opt ';' #returnStmt",
+    "expr-stmt            -> #start expr-opt ';' #exprStmt",
+
+    "expr-opt             -> expr",
+    "expr-opt             -> #emptyExpr %default",
+
+    // ======================== expressions ========================
+
+    // The start of each operand is pushed before it, so that the
+    // expressions it is the left operand of can start there too.
+
+    "expr                 -> #start cond-or-expr assign-rest #endExpr",
+    "assign-rest          -> '=' expr #assignExpr",
+    "assign-rest          -> %empty %default",
+
+    "cond-or-expr         -> cond-and-expr cond-or-rest",
+    "cond-or-rest         -> '||' #operator #start cond-and-expr #binaryExpr cond-or-rest",
+    "cond-or-rest         -> %empty %default",
+
+    "cond-and-expr        -> equality-expr cond-and-rest",
+    "cond-and-rest        -> '&&' #operator #start equality-expr #binaryExpr cond-and-rest",
+    "cond-and-rest        -> %empty %default",
+
+    "equality-expr        -> rel-expr equality-rest",
+    "equality-rest        -> '==' #operator #start rel-expr #binaryExpr equality-rest",
+    "equality-rest        -> '!=' #operator #start rel-expr #binaryExpr equality-rest",
+    "equality-rest        -> %empty %default",
+
+    "rel-expr             -> additive-expr rel-rest",
+    "rel-rest             -> '<' #operator #start additive-expr #binaryExpr rel-rest",
+    "rel-rest             -> '<=' #operator #start additive-expr #binaryExpr rel-rest",
+    "rel-rest             -> '>' #operator #start additive-expr #binaryExpr rel-rest",
+    "rel-rest             -> '>=' #operator #start additive-expr #binaryExpr rel-rest",
+    "rel-rest             -> %empty %default",
+
+    "additive-expr        -> multiplicative-expr additive-rest",
+    "additive-rest        -> '+' #operator #start multiplicative-expr #binaryExpr additive-rest",
+    "additive-rest        -> '-' #operator #start multiplicative-expr #binaryExpr additive-rest",
+    "additive-rest        -> %empty %default",
+
+    "multiplicative-expr  -> unary-expr multiplicative-rest",
+    "multiplicative-rest  -> '*' #operator #start unary-expr #binaryExpr multiplicative-rest",
+    "multiplicative-rest  -> '/' #operator #start unary-expr #binaryExpr multiplicative-rest",
+    "multiplicative-rest  -> %empty %default",
+
+    "unary-expr           -> #start '+' #operator unary-expr #unaryExpr",
+    "unary-expr           -> #start '-' #operator unary-expr #unaryExpr",
+    "unary-expr           -> #start '!' #operator unary-expr #unaryExpr",
+    "unary-expr           -> primary-expr %default",
+
+    "primary-expr         -> #start ident primary-rest",
+    "primary-expr         -> '(' expr ')'",
+    "primary-expr         -> #start <int-literal> #intExpr",
+    "primary-expr         -> #start <float-literal> #floatExpr",
+    "primary-expr         -> #start <boolean-literal> #booleanExpr",
+    "primary-expr         -> #start <string-literal> #stringExpr",
+    "primary-rest         -> '[' #arrayVar expr ']' #arrayExpr",
+    "primary-rest         -> arg-list #callExpr",
+    "primary-rest         -> #varExpr %default",
+
+    // ======================== parameters ========================
+
+    "para-list            -> #start '(' #paraList paras #endList ')' #formals",
+    "paras                -> para-decl more-paras",
+    "paras                -> %empty %default",
+    "more-paras           -> ',' para-decl more-paras",
+    "more-paras           -> %empty %default",
+    "para-decl            -> #start type ident #paraType declarator #paraDecl",
+
+    "arg-list             -> '(' #argList args #endList ')'",
+    "args                 -> arg more-args",
+    "args                 -> %empty %default",
+    "more-args            -> ',' arg more-args",
+    "more-args            -> %empty %default",
+    "arg                  -> #start expr #arg",
+  };
+
+  static final String[][] errors = {
+    { "end",          "\"%\" unknown type" },
+    { "type",         "\"%\" wrong result type for a function" },
+    { "ident",        "identifier expected here" },
+    { "primary-expr", "illegal primary expression" },
+  };
+
+  // The semantic actions, in the order of their numbers below.
+
+  static final String[] actions = {
+    "start",
+    "program",
+    "declList",
+    "stmtList",
+    "exprList",
+    "paraList",
+    "argList",
+    "endList",
+    "appendDecl",
+    "funcDecl",
+    "globalVars",
+    "localVars",
+    "initDeclarator",
+    "noInit",
+    "arrayType",
+    "scalarType",
+    "intSize",
+    "noSize",
+    "initExpr",
+    "appendExpr",
+    "voidType",
+    "booleanType",
+    "intType",
+    "floatType",
+    "ident",
+    "compoundStmt",
+    "appendStmt",
+    "else",
+    "ifElseStmt",
+    "ifStmt",
+    "forStmt",
+    "whileStmt",
+    "breakStmt",
+    "continueStmt",
+    "returnStmt",
+    "exprStmt",
+    "emptyExpr",
+    "endExpr",
+    "assignExpr",
+    "operator",
+    "binaryExpr",
+    "unaryExpr",
+    "intExpr",
+    "floatExpr",
+    "booleanExpr",
+    "stringExpr",
+    "arrayVar",
+    "arrayExpr",
+    "callExpr",
+    "varExpr",
+    "formals",
+    "paraType",
+    "paraDecl",
+    "arg",
+  };
+
+  static final int
+    START           = 0,
+    PROGRAM         = 1,
+    DECL_LIST       = 2,
+    STMT_LIST       = 3,
+    EXPR_LIST       = 4,
+    PARA_LIST       = 5,
+    ARG_LIST        = 6,
+    END_LIST        = 7,
+    APPEND_DECL     = 8,
+    FUNC_DECL       = 9,
+    GLOBAL_VARS     = 10,
+    LOCAL_VARS      = 11,
+    INIT_DECLARATOR = 12,
+    NO_INIT         = 13,
+    ARRAY_TYPE      = 14,
+    SCALAR_TYPE     = 15,
+    INT_SIZE        = 16,
+    NO_SIZE         = 17,
+    INIT_EXPR       = 18,
+    APPEND_EXPR     = 19,
+    VOID_TYPE       = 20,
+    BOOLEAN_TYPE    = 21,
+    INT_TYPE        = 22,
+    FLOAT_TYPE      = 23,
+    IDENT           = 24,
+    COMPOUND_STMT   = 25,
+    APPEND_STMT     = 26,
+    ELSE            = 27,
+    IF_ELSE_STMT    = 28,
+    IF_STMT         = 29,
+    FOR_STMT        = 30,
+    WHILE_STMT      = 31,
+    BREAK_STMT      = 32,
+    CONTINUE_STMT   = 33,
+    RETURN_STMT     = 34,
+    EXPR_STMT       = 35,
+    EMPTY_EXPR      = 36,
+    END_EXPR        = 37,
+    ASSIGN_EXPR     = 38,
+    OPERATOR        = 39,
+    BINARY_EXPR     = 40,
+    UNARY_EXPR      = 41,
+    INT_EXPR        = 42,
+    FLOAT_EXPR      = 43,
+    BOOLEAN_EXPR    = 44,
+    STRING_EXPR     = 45,
+    ARRAY_VAR       = 46,
+    ARRAY_EXPR      = 47,
+    CALL_EXPR       = 48,
+    VAR_EXPR        = 49,
+    FORMALS         = 50,
+    PARA_TYPE       = 51,
+    PARA_DECL       = 52,
+    ARG             = 53;
+
+}
@@ -0,0 +1,339 @@
+/*
+ * LL1Generator.java
+ *
+ * Builds the table of TableParser from the productions of Grammar:
+ *
+ *   1. the productions are read, and their symbols numbered as in
+ *      LL1Table;
+ *   2. the nullable nonterminals, and the FIRST and FOLLOW sets of the
+ *      nonterminals, are computed by iterating to a fixed point, the
+ *      semantic actions being skipped as if they were not there;
+ *   3. each alternative is entered in the table for the tokens in its
+ *      FIRST set and, if it is nullable, in the FOLLOW set of its
+ *      nonterminal; two alternatives for the same token are a conflict,
+ *      unless one of them is the default, which gives way;
+ *   4. the tokens for which a nonterminal has no alternative are given
+ *      its default, if it has one.
+ *
+ * Running this class prints the sets and the table.
+ */
+
+package VC.Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import VC.Scanner.Token;
+
+final class LL1Generator {
+
+  private static final int TERMINALS = Token.EOF + 1;
+
+  private HashMap<String, Integer> terminalIds = new HashMap<String, Integer>();
+  private HashMap<String, Integer> nonterminalIds = new HashMap<String, Integer>();
+  private HashMap<String, Integer> actionIds = new HashMap<String, Integer>();
+  private ArrayList<String> names = new ArrayList<String>();
+
+  // the productions, with their symbols in order
+  private ArrayList<int[]> rhs = new ArrayList<int[]>();
+  private ArrayList<Integer> lhs = new ArrayList<Integer>();
+  private ArrayList<Boolean> isDefault = new ArrayList<Boolean>();
+
+  private int nonterminals;
+  private boolean[] nullable;
+  private BitSet[] first, follow;
+
+  private String production;
+  private int index;
+
+  private LL1Generator(String[] productions, String[] actions) {
+    for (int k = 0; k < TERMINALS; k++)
+      terminalIds.put(Token.spell(k), k);
+
+    // the nonterminals are the left-hand sides, in order
+    for (int p = 0; p < productions.length; p++) {
+      production = productions[p];
+      String name = leftHandSide();
+      if (!nonterminalIds.containsKey(name)) {
+        nonterminalIds.put(name, TERMINALS + names.size());
+        names.add(name);
+      }
+    }
+    nonterminals = names.size();
+    for (int a = 0; a < actions.length; a++) {
+      actionIds.put(actions[a], TERMINALS + nonterminals + a);
+      names.add(actions[a]);
+    }
+
+    for (int p = 0; p < productions.length; p++)
+      read(productions[p]);
+  }
+
+  static LL1Table generate(String[] productions, String[][] errors, String[] actions) {
+    LL1Generator gen = new LL1Generator(productions, actions);
+    gen.computeSets();
+    return gen.toTable(errors);
+  }
+
+  // ========================== Productions ==========================
+
+  private void syntaxError(String message) {
+    throw new IllegalArgumentException("Grammar: " + message + " in " + production);
+  }
+
+  private String leftHandSide() {
+    int arrow = production.indexOf("->");
+    if (arrow < 0)
+      syntaxError("no ->");
+    String name = production.substring(0, arrow).trim();
+    if (name.length() == 0)
+      syntaxError("no nonterminal");
+    index = arrow + 2;
+    return name;
+  }
+
+  private void read(String text) {
+    production = text;
+    int n = nonterminalIds.get(leftHandSide());
+    ArrayList<Integer> symbols = new ArrayList<Integer>();
+    boolean empty = false, dflt = false;
+
+    while (true) {
+      while (index < production.length() && production.charAt(index) == ' ')
+        index++;
+      if (index >= production.length())
+        break;
+      String word = nextWord();
+      if (word.equals("%empty"))
+        empty = true;
+      else if (word.equals("%default"))
+        dflt = true;
+      else
+        symbols.add(symbol(word));
+    }
+    if (empty == !symbols.isEmpty())
+      syntaxError(empty ? "symbols after %empty" : "no symbols");
+    for (int i = 0; i < symbols.size() && !isTerminal(symbols.get(i)); i++) {
+      if (symbols.get(i) == n)
+        syntaxError("left recursion");
+      if (isNonterminal(symbols.get(i)))
+        break;
+    }
+
+    int[] s = new int[symbols.size()];
+    for (int i = 0; i < s.length; i++)
+      s[i] = symbols.get(i);
+    rhs.add(s);
+    lhs.add(n);
+    isDefault.add(dflt);
+  }
+
+  // A quoted token may contain blanks; any other word ends at a blank.
+
+  private String nextWord() {
+    int start = index;
+    if (production.charAt(index) == '\'') {
+      index = production.indexOf('\'', index + 1) + 1;
+      if (index == 0)
+        syntaxError("unterminated quote");
+    } else {
+      while (index < production.length() && production.charAt(index) != ' ')
+        index++;
+    }
+    return production.substring(start, index);
+  }
+
+  private int symbol(String word) {
+    Integer id;
+
+    if (word.startsWith("'"))
+      id = terminalIds.get(word.substring(1, word.length() - 1));
+    else if (word.startsWith("<") || word.equals("$"))
+      id = terminalIds.get(word);
+    else if (word.startsWith("#"))
+      id = actionIds.get(word.substring(1));
+    else
+      id = nonterminalIds.get(word);
+    if (id == null)
+      syntaxError("unknown symbol " + word);
+    return id;
+  }
+
+  // ====================== FIRST and FOLLOW sets ======================
+
+  private boolean isTerminal(int symbol) {
+    return symbol < TERMINALS;
+  }
+
+  private boolean isNonterminal(int symbol) {
+    return symbol >= TERMINALS && symbol < TERMINALS + nonterminals;
+  }
+
+  // Adds the FIRST set of symbols s[from..] to set, and returns whether
+  // they are nullable.
+
+  private boolean firstOf(int[] s, int from, BitSet set) {
+    for (int i = from; i < s.length; i++) {
+      if (isTerminal(s[i])) {
+        set.set(s[i]);
+        return false;
+      } else if (isNonterminal(s[i])) {
+        set.or(first[s[i] - TERMINALS]);
+        if (!nullable[s[i] - TERMINALS])
+          return false;
+      }
+    }
+    return true;
+  }
+
+  private void computeSets() {
+    nullable = new boolean[nonterminals];
+    first = new BitSet[nonterminals];
+    follow = new BitSet[nonterminals];
+    for (int n = 0; n < nonterminals; n++) {
+      first[n] = new BitSet(TERMINALS);
+      follow[n] = new BitSet(TERMINALS);
+    }
+    follow[0].set(Token.EOF);
+
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int p = 0; p < rhs.size(); p++) {
+        int n = lhs.get(p) - TERMINALS;
+        int before = first[n].cardinality();
+        if (firstOf(rhs.get(p), 0, first[n]) && !nullable[n]) {
+          nullable[n] = true;
+          changed = true;
+        }
+        if (first[n].cardinality() != before)
+          changed = true;
+      }
+    }
+
+    BitSet rest = new BitSet(TERMINALS);
+    changed = true;
+    while (changed) {
+      changed = false;
+      for (int p = 0; p < rhs.size(); p++) {
+        int[] s = rhs.get(p);
+        for (int i = 0; i < s.length; i++) {
+          if (!isNonterminal(s[i]))
+            continue;
+          BitSet set = follow[s[i] - TERMINALS];
+          int before = set.cardinality();
+          rest.clear();
+          if (firstOf(s, i + 1, rest))
+            set.or(follow[lhs.get(p) - TERMINALS]);
+          set.or(rest);
+          if (set.cardinality() != before)
+            changed = true;
+        }
+      }
+    }
+  }
+
+  // ============================ The table ============================
+
+  private LL1Table toTable(String[][] errors) {
+    int productions = rhs.size();
+    int[] predict = new int[nonterminals * TERMINALS];
+    int[] dflt = new int[nonterminals];
+    int[] alternatives = new int[nonterminals];
+    String[] message = new String[nonterminals];
+
+    Arrays.fill(predict, LL1Table.NO_PRODUCTION);
+    Arrays.fill(dflt, LL1Table.NO_PRODUCTION);
+    for (int p = 0; p < productions; p++) {
+      int n = lhs.get(p) - TERMINALS;
+      alternatives[n]++;
+      if (isDefault.get(p)) {
+        if (dflt[n] != LL1Table.NO_PRODUCTION)
+          throw new IllegalArgumentException("Grammar: two defaults for " + names.get(n));
+        dflt[n] = p;
+      }
+    }
+    for (int e = 0; e < errors.length; e++) {
+      Integer id = nonterminalIds.get(errors[e][0]);
+      if (id == null)
+        throw new IllegalArgumentException("Grammar: unknown nonterminal " + errors[e][0]);
+      message[id - TERMINALS] = errors[e][1];
+    }
+    for (int n = 0; n < nonterminals; n++) {
+      if (message[n] == null && dflt[n] == LL1Table.NO_PRODUCTION) {
+        if (alternatives[n] != 1)
+          throw new IllegalArgumentException("Grammar: no default or error message for "
+                                             + names.get(n));
+        for (int p = 0; p < productions; p++)
+          if (lhs.get(p) - TERMINALS == n)
+            dflt[n] = p;
+      } else if (message[n] != null && dflt[n] != LL1Table.NO_PRODUCTION)
+        throw new IllegalArgumentException("Grammar: both a default and an error message for "
+                                           + names.get(n));
+    }
+
+    BitSet set = new BitSet(TERMINALS);
+    for (int p = 0; p < productions; p++) {
+      int n = lhs.get(p) - TERMINALS;
+      set.clear();
+      if (firstOf(rhs.get(p), 0, set))
+        set.or(follow[n]);
+      for (int k = set.nextSetBit(0); k >= 0; k = set.nextSetBit(k + 1)) {
+        int other = predict[n * TERMINALS + k];
+        if (other == LL1Table.NO_PRODUCTION || other == dflt[n])
+          predict[n * TERMINALS + k] = p;
+        else if (p != dflt[n])
+          throw new IllegalArgumentException("Grammar: conflict between productions "
+                                             + other + " and " + p + " of " + names.get(n)
+                                             + " on " + Token.spell(k));
+      }
+    }
+    for (int n = 0; n < nonterminals; n++)
+      if (dflt[n] != LL1Table.NO_PRODUCTION)
+        for (int k = 0; k < TERMINALS; k++)
+          if (predict[n * TERMINALS + k] == LL1Table.NO_PRODUCTION)
+            predict[n * TERMINALS + k] = dflt[n];
+
+    int[] rhsStart = new int[productions + 1];
+    for (int p = 0; p < productions; p++)
+      rhsStart[p + 1] = rhsStart[p] + rhs.get(p).length;
+    int[] symbols = new int[rhsStart[productions]];
+    int[] lhsOf = new int[productions];
+    for (int p = 0; p < productions; p++) {
+      int[] s = rhs.get(p);
+      for (int i = 0; i < s.length; i++)
+        symbols[rhsStart[p + 1] - 1 - i] = s[i];
+      lhsOf[p] = lhs.get(p);
+    }
+    return new LL1Table(TERMINALS, nonterminals, TERMINALS, predict, lhsOf, rhsStart,
+                        symbols, message, names.toArray(new String[names.size()]));
+  }
+
+  private String describeSets() {
+    StringBuffer sb = new StringBuffer();
+
+    for (int n = 0; n < nonterminals; n++) {
+      sb.append(names.get(n)).append(nullable[n] ? " (nullable)" : "").append('\n');
+      sb.append("  FIRST:").append(spell(first[n])).append('\n');
+      sb.append("  FOLLOW:").append(spell(follow[n])).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String spell(BitSet set) {
+    StringBuffer sb = new StringBuffer();
+    for (int k = set.nextSetBit(0); k >= 0; k = set.nextSetBit(k + 1))
+      sb.append(' ').append(Token.spell(k));
+    return sb.toString();
+  }
+
+  public static void main(String[] args) {
+    LL1Generator gen = new LL1Generator(Grammar.productions, Grammar.actions);
+    gen.computeSets();
+    System.out.print(gen.describeSets());
+    System.out.print(gen.toTable(Grammar.errors));
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * LL1Table.java
+ *
+ * The parse table built by LL1Generator.
+ *
+ * The symbols of the grammar are numbered: the tokens by their kinds,
+ * from 0 to terminals-1, then the nonterminals, then the semantic
+ * actions, so that symbol - terminals - nonterminals is the number of
+ * an action (see Grammar.actions). The alternative a nonterminal n
+ * chooses on a token of kind k is a single lookup:
+ *
+ *     predict[(n - terminals) * terminals + k]
+ *
+ * which is NO_PRODUCTION if there is a syntax error, to be reported
+ * with message[n - terminals]. The symbols of production p are
+ *
+ *     rhs[rhsStart[p]] .. rhs[rhsStart[p + 1] - 1]
+ *
+ * in reverse order, so that pushing them in turn leaves the first on
+ * top of the stack, and lhs[p] is its nonterminal.
+ */
+
+package VC.Parser;
+
+import VC.Scanner.Token;
+
+final class LL1Table {
+
+  static final int NO_PRODUCTION = -1;
+
+  final int terminals;
+  final int nonterminals;
+  final int start;
+  final int[] predict;
+  final int[] lhs;
+  final int[] rhsStart;
+  final int[] rhs;
+  final String[] message;
+
+  final String[] names;   // of the nonterminals and the actions
+
+  LL1Table(int terminals, int nonterminals, int start, int[] predict, int[] lhs,
+           int[] rhsStart, int[] rhs, String[] message, String[] names) {
+    this.terminals = terminals;
+    this.nonterminals = nonterminals;
+    this.start = start;
+    this.predict = predict;
+    this.lhs = lhs;
+    this.rhsStart = rhsStart;
+    this.rhs = rhs;
+    this.message = message;
+    this.names = names;
+  }
+
+  String symbolName(int symbol) {
+    if (symbol < terminals)
+      return Token.spell(symbol);
+    else if (symbol < terminals + nonterminals)
+      return names[symbol - terminals];
+    else
+      return "#" + names[symbol - terminals];
+  }
+
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+
+    sb.append(nonterminals + " nonterminals, " + (rhsStart.length - 1) + " productions\n");
+    for (int p = 0; p + 1 < rhsStart.length; p++) {
+      sb.append(p).append(": ").append(symbolName(lhs[p])).append(" ->");
+      for (int i = rhsStart[p + 1] - 1; i >= rhsStart[p]; i--)
+        sb.append(' ').append(symbolName(rhs[i]));
+      if (rhsStart[p + 1] == rhsStart[p])
+        sb.append(" %empty");
+      sb.append('\n');
+    }
+    for (int n = 0; n < nonterminals; n++) {
+      sb.append(names[n]).append(':');
+      for (int k = 0; k < terminals; k++) {
+        int p = predict[n * terminals + k];
+        sb.append(' ').append(p == NO_PRODUCTION ? "-" : String.valueOf(p));
+      }
+      if (message[n] != null)
+        sb.append("  error ").append(message[n]);
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+}
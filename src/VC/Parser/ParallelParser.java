@@ -0,0 +1,226 @@
+/*
+ * ParallelParser.java
+ *
+ * Parses the tokens of a program, as scanned by ParallelScanner, on
+ * several threads, and returns the same AST, with the same positions
+ * and errors, as a Parser reading the tokens one by one.
+ *
+ * The tokens are first skimmed to find where the top-level
+ * declarations end: a function after the "}" matching its first "{",
+ * and a list of global variables after the ";" outside braces. The
+ * declarations are then cut into chunks of about the same number of
+ * tokens, each of which is parsed as a list of declarations by a
+ * Parser of its own on a ForkJoinPool. The lists are joined in order,
+ * and the positions of the nodes of the functions, which end where the
+ * whole list ends, are finished.
+ *
+ * The identifiers are entered into the NamePool before the chunks are
+ * parsed, so that the parsers only read it. Lexical errors are kept by
+ * each chunk and reported in order once all chunks have been parsed.
+ * If the skim finds no declaration boundaries, or a chunk has a syntax
+ * error, the whole program is parsed again by one Parser, so that the
+ * errors are the same.
+ */
+
+package VC.Parser;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import VC.ErrorReporter;
+import VC.NamePool;
+import VC.ASTs.DeclList;
+import VC.ASTs.FuncDecl;
+import VC.ASTs.List;
+import VC.ASTs.Program;
+import VC.Scanner.SourcePosition;
+import VC.Scanner.Token;
+import VC.Scanner.TokenArray;
+
+public final class ParallelParser {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 14; // tokens
+
+  // the errors of a chunk, reported once the chunk is known to be
+  // part of a program without syntax errors
+
+  private static final class ErrorList extends ErrorReporter {
+    ArrayList<String> messages = new ArrayList<String>();
+    ArrayList<String> tokenNames = new ArrayList<String>();
+    ArrayList<SourcePosition> positions = new ArrayList<SourcePosition>();
+
+    public void reportError(String message, String tokenName, SourcePosition pos) {
+      messages.add(message);
+      tokenNames.add(tokenName);
+      positions.add(pos);
+      numErrors++;
+    }
+
+    void reportTo(ErrorReporter reporter) {
+      for (int i = 0; i < messages.size(); i++)
+        reporter.reportError(messages.get(i), tokenNames.get(i), positions.get(i));
+    }
+  }
+
+  // the declarations from token start to token end
+
+  private static final class Chunk {
+    int start, end;
+    ErrorList errors = new ErrorList();
+    List decls;         // null if there is a syntax error in the chunk
+
+    Chunk(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    void parse(TokenArray tokens, NamePool names) {
+      Parser parser = new Parser(tokens.reader(errors, names, start, end), errors);
+      try {
+        decls = parser.parseFuncDeclList();
+      } catch (SyntaxError s) {
+        decls = null;
+      }
+    }
+  }
+
+  private static final class ParseChunks extends RecursiveAction {
+    private TokenArray tokens;
+    private NamePool names;
+    private Chunk[] chunks;
+    private int from, to;
+
+    ParseChunks(TokenArray tokens, NamePool names, Chunk[] chunks, int from, int to) {
+      this.tokens = tokens;
+      this.names = names;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to - from == 1)
+        chunks[from].parse(tokens, names);
+      else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ParseChunks(tokens, names, chunks, from, mid),
+                  new ParseChunks(tokens, names, chunks, mid, to));
+      }
+    }
+  }
+
+  public static Program parse(TokenArray tokens, ErrorReporter reporter, NamePool names) {
+    return parse(tokens, reporter, names, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  public static Program parse(TokenArray tokens, ErrorReporter reporter, NamePool names,
+                              ForkJoinPool pool, int chunkSize) {
+    Chunk[] chunks = split(tokens, chunkSize);
+    if (chunks == null)
+      return parseSequentially(tokens, reporter, names);
+
+    if (names != null)
+      tokens.enterNames(names);
+    pool.invoke(new ParseChunks(tokens, names, chunks, 0, chunks.length));
+    for (int i = 0; i < chunks.length; i++)
+      if (chunks[i].decls == null)
+        return parseSequentially(tokens, reporter, names);
+
+    for (int i = 0; i < chunks.length; i++)
+      chunks[i].errors.reportTo(reporter);
+
+    // the list, and each function in it, ends with the last token
+    SourcePosition last = tokens.position(tokens.size() - 2);
+    List dlAST = chunks[0].decls;
+    DeclList tail = null;
+    for (int i = 0; i < chunks.length; i++) {
+      DeclList decls = (DeclList) chunks[i].decls;
+      if (tail != null) {
+        tail.DL = decls;
+        decls.parent = tail;
+      }
+      for (tail = decls; ; tail = (DeclList) tail.DL) {
+        if (tail.D instanceof FuncDecl) {
+          tail.position.lineFinish = last.lineFinish;
+          tail.position.charFinish = last.charFinish;
+        }
+        if (!(tail.DL instanceof DeclList))
+          break;
+      }
+    }
+
+    SourcePosition programPos = new SourcePosition();
+    SourcePosition first = tokens.position(0);
+    programPos.lineStart = first.lineStart;
+    programPos.charStart = first.charStart;
+    programPos.lineFinish = last.lineFinish;
+    programPos.charFinish = last.charFinish;
+    return new Program(dlAST, programPos);
+  }
+
+  private static Program parseSequentially(TokenArray tokens, ErrorReporter reporter,
+                                           NamePool names) {
+    return new Parser(tokens.reader(reporter, names), reporter).parseProgram();
+  }
+
+  // Cuts the program into chunks of whole declarations, each ending
+  // with the first declaration to end at or after a multiple of
+  // chunkSize tokens. Returns null if the program is empty, or if its
+  // declarations cannot be told apart, in which case it has a syntax
+  // error.
+
+  private static Chunk[] split(TokenArray tokens, int chunkSize) {
+    ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+    int eof = tokens.size() - 1;
+    int start = 0, i = 0;
+
+    while (i < eof) {
+      i = declarationEnd(tokens, i, eof);
+      if (i < 0)
+        return null;
+      if (i - start >= chunkSize || i == eof) {
+        chunks.add(new Chunk(start, i));
+        start = i;
+      }
+    }
+    if (chunks.isEmpty())
+      return null;
+    return chunks.toArray(new Chunk[chunks.size()]);
+  }
+
+  // Returns the number of the token after the declaration starting at
+  // token i, or -1 if there is none before token eof.
+
+  private static int declarationEnd(TokenArray tokens, int i, int eof) {
+    int kind = tokens.kind(i);
+    if (kind != Token.VOID && kind != Token.BOOLEAN && kind != Token.INT && kind != Token.FLOAT)
+      return -1;
+    boolean isFunction = i + 2 < eof && tokens.kind(i + 1) == Token.ID
+        && tokens.kind(i + 2) == Token.LPAREN;
+    int depth = 0;
+
+    for (i++; i < eof; i++) {
+      switch (tokens.kind(i)) {
+      case Token.LCURLY:
+        depth++;
+        break;
+      case Token.RCURLY:
+        if (--depth < 0)
+          return -1;
+        if (depth == 0 && isFunction)
+          return i + 1;
+        break;
+      case Token.SEMICOLON:
+        if (depth == 0) {
+          if (isFunction)
+            return -1;
+          return i + 1;
+        }
+        break;
+      }
+    }
+    return -1;
+  }
+
+}
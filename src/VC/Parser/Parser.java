@@ -46,12 +46,15 @@ primary-expr        -> identifier
 
 package VC.Parser;
 
-import VC.Scanner.Scanner;
+import VC.Scanner.TokenSource;
+import VC.Scanner.TokenBuffer;
 import VC.Scanner.SourcePosition;
 import VC.Scanner.Token;
 import VC.ErrorReporter;
 import VC.ASTs.*;
 
+import java.util.ArrayList;
+
 
 
 
@@ -59,17 +62,45 @@ import VC.ASTs.*;
 
 public class Parser {
 
-  private Scanner scanner;
+  private TokenBuffer scanner;
+  private TokenBuffer buffer; // the parser's own, used unless it is given one
   private ErrorReporter errorReporter;
   private Token currentToken;
   private SourcePosition previousTokenPosition;
-  private SourcePosition dummyPos = new SourcePosition();
+  private static final SourcePosition dummyPos = new SourcePosition();
+  private PositionArena arena;
+  private ArrayList<SourcePosition> unfinished = new ArrayList<SourcePosition>();
+  private boolean errorRecovery = false;
+  private boolean lazyBodies = false;
+  private ArrayList<LazyCompStmt> unbuilt = new ArrayList<LazyCompStmt>();
+  private Token lastErrorToken;
+
+  // The tokens are read through a TokenBuffer, so that the parser can
+  // look ahead of currentToken with scanner.peek.
+
+  public Parser (TokenSource lexer, ErrorReporter reporter) {
+    reset(lexer, reporter);
+  }
 
-  public Parser (Scanner lexer, ErrorReporter reporter) {
-    scanner = lexer;
+  // Makes this parser ready to parse another program, reusing its
+  // token buffer.
+
+  public void reset(TokenSource lexer, ErrorReporter reporter) {
+    if (lexer instanceof TokenBuffer)
+      scanner = (TokenBuffer) lexer;
+    else {
+      if (buffer == null)
+        buffer = new TokenBuffer(lexer);
+      else
+        buffer.reset(lexer);
+      scanner = buffer;
+    }
     errorReporter = reporter;
+    unfinished.clear();
+    unbuilt.clear();
+    lastErrorToken = null;
 
-    previousTokenPosition = new SourcePosition();
+    previousTokenPosition = dummyPos;
 
     currentToken = scanner.getToken();
   }
@@ -94,7 +125,11 @@ public class Parser {
 
   void syntacticError(String messageTemplate, String tokenQuoted) throws SyntaxError {
     SourcePosition pos = currentToken.position;
-    errorReporter.reportError(messageTemplate, tokenQuoted, pos);
+    buildBodiesBefore();
+    // after recovering, only the first error at a token is reported
+    if (currentToken != lastErrorToken)
+      errorReporter.reportError(messageTemplate, tokenQuoted, pos);
+    lastErrorToken = currentToken;
     throw(new SyntaxError());
   }
 
@@ -121,13 +156,250 @@ public class Parser {
     to.charStart = from.charStart;
   }
 
+// The positions of the phrases come from the arena, if the parser is
+// given one, and are taken back when its owner releases it. Only the
+// phrases whose nodes are built are given positions of their own: a
+// node that spans a single token, such as a type or a variable, shares
+// the token's position, and the empty lists and expressions all share
+// dummyPos.
+
+  public void setArena(PositionArena arena) {
+    this.arena = arena;
+  }
+
+  SourcePosition newPosition() {
+    return arena == null ? new SourcePosition() : arena.allocate();
+  }
+
+// Lists are parsed in loops, each new node being linked to the tail of
+// the list. Every node of a list ends where the list ends, which is not
+// known until its last element has been parsed, so the positions of the
+// nodes are put aside in unfinished and finished together by
+// finishFrom, which finishes those put aside since unfinished had mark
+// elements.
+
+  void finishFrom(int mark) {
+    for (int i = unfinished.size() - 1; i >= mark; i--)
+      finish(unfinished.remove(i));
+  }
+
+  void discardFrom(int mark) {
+    for (int i = unfinished.size() - 1; i >= mark; i--)
+      unfinished.remove(i);
+  }
+
+// ======================= ERROR RECOVERY ======================
+
+// By default the parser stops at the first syntax error. With error
+// recovery on, it goes on in panic mode: the declaration or statement
+// in which the error is found is left out of the AST, and the tokens
+// are skipped up to one at which the parser can carry on:
+//
+//   at the top level: past the next ";" or up to the next type, over
+//                     the blocks in between
+//   in a block:       past the next ";" or up to the next "}" or the
+//                     start of a statement, or of a declaration if
+//                     the error is in a local declaration
+//   in a for header:  past the matching ")", if it comes before the
+//                     next "{", "}" or start of a statement, and the
+//                     body is parsed before the for statement is left
+//                     out, so that the ";" in the header are not taken
+//                     for the ends of statements
+//
+// so that every syntax error is reported in one run, and parseProgram
+// returns what it could parse of the program.
+
+  public void setErrorRecovery(boolean on) {
+    errorRecovery = on;
+  }
+
+  void skipToDecl() {
+    int depth = 0;
+
+    while (currentToken.kind != Token.EOF) {
+      if (depth == 0 && isType(currentToken.kind))
+        return;
+      switch (currentToken.kind) {
+      case Token.LCURLY:
+        depth++;
+        break;
+      case Token.RCURLY:
+        if (depth > 0)
+          depth--;
+        break;
+      case Token.SEMICOLON:
+        if (depth == 0) {
+          accept();
+          return;
+        }
+        break;
+      }
+      accept();
+    }
+  }
+
+  // Skips past the ")" that matches an open "(", and returns whether
+  // it was found before the next "{", "}" or start of a statement.
+
+  boolean skipPastRParen() {
+    int depth = 0;
+
+    while (true) {
+      switch (currentToken.kind) {
+      case Token.LPAREN:
+        depth++;
+        break;
+      case Token.RPAREN:
+        if (depth == 0) {
+          accept();
+          return true;
+        }
+        depth--;
+        break;
+      case Token.RCURLY: case Token.EOF: case Token.LCURLY:
+      case Token.IF: case Token.FOR: case Token.WHILE:
+      case Token.BREAK: case Token.CONTINUE: case Token.RETURN:
+        return false;
+      }
+      accept();
+    }
+  }
+
+  void skipToStmt(boolean inDecl) {
+    while (true) {
+      switch (currentToken.kind) {
+      case Token.SEMICOLON:
+        accept();
+        return;
+      case Token.RCURLY: case Token.EOF: case Token.LCURLY:
+      case Token.IF: case Token.FOR: case Token.WHILE:
+      case Token.BREAK: case Token.CONTINUE: case Token.RETURN:
+        return;
+      case Token.VOID: case Token.BOOLEAN: case Token.INT: case Token.FLOAT:
+        if (inDecl)
+          return;
+        break;
+      }
+      accept();
+    }
+  }
+
+// ========================= LAZY BODIES ======================
+
+// With lazy bodies on, the tokens of a function body are only matched
+// up to its closing "}" and kept, and the body is parsed from them by
+// a Parser of its own when it is first visited (see LazyCompStmt), so
+// that tools that only look at the declarations do not pay for the
+// bodies. The syntax errors in a body are then reported when it is
+// built, and a body with errors is built as an EmptyCompStmt. A body
+// that is not closed before the end of the program is parsed at once.
+//
+// So numErrors is 0 after parseProgram if the declarations have no
+// errors, even if a body has: a caller must visit the bodies, or call
+// buildBodies, before it can take numErrors to mean that the program
+// parsed. If parseProgram finds an error, it builds the bodies before
+// it first, so that the errors are reported in the order of the
+// program, and, without recovery, only the first one is, as when the
+// bodies are parsed at once.
+
+  public void setLazyBodies(boolean on) {
+    lazyBodies = on;
+  }
+
+  // Builds the bodies of the program last parsed that are not built
+  // yet, in order, reporting their errors, and returns whether they had
+  // none. Without recovery, it stops after the first body with errors.
+
+  public boolean buildBodies() {
+    int errors = errorReporter.numErrors;
+    int i = 0;
+
+    while (i < unbuilt.size() && (errorRecovery || errorReporter.numErrors == errors))
+      unbuilt.get(i++).body();
+    unbuilt.subList(0, i).clear();
+    return errorReporter.numErrors == errors;
+  }
+
+  // Builds the bodies before an error about to be reported, so that
+  // their errors come first. Without recovery, an error in a body is the
+  // only one reported, and the parse stops there.
+
+  void buildBodiesBefore() throws SyntaxError {
+    if (!unbuilt.isEmpty() && !buildBodies() && !errorRecovery) {
+      unbuilt.clear();
+      lastErrorToken = currentToken;
+      throw(new SyntaxError());
+    }
+  }
+
+  private static final class LazyBody implements LazyCompStmt.Builder, TokenSource {
+    private Token[] tokens;
+    private Token end;  // the token after the body
+    private int next;
+    private ErrorReporter reporter;
+    private boolean errorRecovery;
+
+    LazyBody(Token[] tokens, Token end, ErrorReporter reporter, boolean errorRecovery) {
+      this.tokens = tokens;
+      this.end = end;
+      this.reporter = reporter;
+      this.errorRecovery = errorRecovery;
+    }
+
+    public Token getToken() {
+      return next < tokens.length ? tokens[next++] : end;
+    }
+
+    Stmt parse() throws SyntaxError {
+      Parser parser = new Parser(this, reporter);
+      parser.setErrorRecovery(errorRecovery);
+      return parser.parseCompoundStmt();
+    }
+
+    public Stmt build(LazyCompStmt stmt) {
+      try {
+        return parse();
+      } catch (SyntaxError s) {
+        return new EmptyCompStmt(stmt.position);
+      }
+    }
+  }
+
+  Stmt skipCompoundStmt() throws SyntaxError {
+    ArrayList<Token> tokens = new ArrayList<Token>();
+    int depth = 0;
+
+    SourcePosition stmtPos = newPosition();
+    start(stmtPos);
+
+    do {
+      if (currentToken.kind == Token.LCURLY)
+        depth++;
+      else if (currentToken.kind == Token.RCURLY)
+        depth--;
+      tokens.add(currentToken);
+      accept();
+    } while (depth > 0 && currentToken.kind != Token.EOF);
+    finish(stmtPos);
+
+    LazyBody body = new LazyBody(tokens.toArray(new Token[tokens.size()]), currentToken,
+                                 errorReporter, errorRecovery);
+    if (depth > 0) {
+      buildBodiesBefore();
+      return body.parse();
+    }
+    LazyCompStmt stmt = new LazyCompStmt(body, stmtPos);
+    unbuilt.add(stmt);
+    return stmt;
+  }
+
 // ========================== PROGRAMS ========================
 
   public Program parseProgram() {
 
     Program programAST = null;
     List dlAST = null;
-    SourcePosition programPos = new SourcePosition();
+    SourcePosition programPos = newPosition();
     start(programPos);
 
     try {
@@ -147,55 +419,90 @@ public class Parser {
 // ========================== DECLARATIONS ========================
 
   List parseFuncDeclList() throws SyntaxError {
-	    List dlAST = null;
-	    Decl dAST = null;
-
-	    SourcePosition funcPos = new SourcePosition();
-	    start(funcPos);
-	    
-	    if (currentToken.kind != Token.EOF) {
-	    	Type tAST = parseType();
-	        Ident idAST = parseIdent();
-	        if(currentToken.kind == Token.LPAREN){
-	        	dAST = parseFuncDecl(tAST, idAST);
-	        	if (currentToken.kind == Token.VOID || currentToken.kind == Token.FLOAT 
-	        			|| currentToken.kind == Token.INT || currentToken.kind == Token.BOOLEAN) {
-	        	      dlAST = parseFuncDeclList();
-	        	      finish(funcPos);
-	        	      dlAST = new DeclList(dAST, dlAST, funcPos);
-	        	}else if (dAST != null) {
-	        		  finish(funcPos);
-	        	      dlAST = new DeclList(dAST, new EmptyDeclList(dummyPos), funcPos);
-	        	}
-	    	}else{
-	    		boolean mark = true;
-	    		dlAST = parseVardecl(tAST, idAST, mark);
-	    		if (currentToken.kind == Token.VOID || currentToken.kind == Token.FLOAT 
-	        			|| currentToken.kind == Token.INT || currentToken.kind == Token.BOOLEAN) {
-	        	      DeclList R = (DeclList) dlAST;
-	        	      while(!(R.DL instanceof EmptyDeclList)){
-		  		  		  R = (DeclList) R.DL;
-		  		  	  }
-	  		  		  R.DL = parseFuncDeclList();
-	        	}
-	    	}
-	    }
-	    
-	    if (dlAST == null) 
-	      dlAST = new EmptyDeclList(dummyPos);
-
-	    return dlAST;
+    List dlAST = null;
+    DeclList tail = null;
+    int mark = unfinished.size();
+    boolean first = true;
+
+    if (currentToken.kind != Token.EOF) {
+      do {
+        int depth = unfinished.size();
+        try {
+          if (!first && !isType(currentToken.kind))
+            syntacticError("\"%\" unknown type", currentToken.spelling);
+          DeclList declsAST = parseDecl();
+          if (tail == null)
+            dlAST = declsAST;
+          else {
+            tail.DL = declsAST;
+            declsAST.parent = tail;
+          }
+          tail = lastDeclList(declsAST);
+        } catch (SyntaxError s) {
+          if (!errorRecovery)
+            throw s;
+          discardFrom(depth);
+          skipToDecl();
+        }
+        first = false;
+      } while (errorRecovery ? currentToken.kind != Token.EOF : isType(currentToken.kind));
+      finishFrom(mark);
+    }
+
+    if (dlAST == null)
+      dlAST = new EmptyDeclList(dummyPos);
+
+    return dlAST;
+  }
+
+  // Parses a function or a list of global variables. The position of
+  // a function's node is left unfinished, as it ends with the list.
+
+  DeclList parseDecl() throws SyntaxError {
+    DeclList declsAST = null;
+
+    // type identifier "(" starts a function. The tokens after the
+    // type are only looked at if parseType and parseIdent would
+    // have read them, so that lexical errors are reported in the
+    // same order.
+    boolean isFunction = isType(currentToken.kind)
+        && scanner.peek(1).kind == Token.ID
+        && scanner.peek(2).kind == Token.LPAREN;
+    SourcePosition funcPos = null;
+    if (isFunction) {
+      funcPos = newPosition();
+      start(funcPos);
+    }
+    Type tAST = parseType();
+    Ident idAST = parseIdent();
+    if (isFunction) {
+      Decl dAST = parseFuncDecl(tAST, idAST);
+      unfinished.add(funcPos);
+      declsAST = new DeclList(dAST, new EmptyDeclList(dummyPos), funcPos);
+    } else
+      declsAST = (DeclList) parseVardecl(tAST, idAST, true);
+    return declsAST;
+  }
+
+  DeclList lastDeclList(DeclList dlAST) {
+    while (!(dlAST.DL instanceof EmptyDeclList))
+      dlAST = (DeclList) dlAST.DL;
+    return dlAST;
   }
 
   Decl parseFuncDecl(Type tAST,Ident idAST) throws SyntaxError {
 
     Decl fAST = null; 
     
-    SourcePosition funcPos = new SourcePosition();
+    SourcePosition funcPos = newPosition();
     start(funcPos);
 
     List fplAST = parseParaList();
-    Stmt cAST = parseCompoundStmt();
+    Stmt cAST;
+    if (lazyBodies && currentToken.kind == Token.LCURLY)
+      cAST = skipCompoundStmt();
+    else
+      cAST = parseCompoundStmt();
 
     finish(funcPos);
     fAST = new FuncDecl(tAST, idAST, fplAST, cAST, funcPos);
@@ -212,27 +519,37 @@ public class Parser {
 
   List parseInitDeclaratorList(Type tAST, Ident idAST, boolean mark) throws SyntaxError {
 	  List initdecllistAST = null;
-	  SourcePosition decllistPos = new SourcePosition();
-	  start(decllistPos);
-	  
-	  Decl declAST = parseInitDeclarator(tAST, idAST, mark);
-	  if(currentToken.kind == Token.COMMA){
+	  DeclList tail = null;
+	  int first = unfinished.size();
+
+	  while (true) {
+		  SourcePosition decllistPos = newPosition();
+		  start(decllistPos);
+		  unfinished.add(decllistPos);
+
+		  Decl declAST = parseInitDeclarator(tAST, idAST, mark);
+		  DeclList next = new DeclList(declAST, new EmptyDeclList(dummyPos), decllistPos);
+		  if (tail == null)
+			  initdecllistAST = next;
+		  else {
+			  tail.DL = next;
+			  next.parent = tail;
+		  }
+		  tail = next;
+
+		  if (currentToken.kind != Token.COMMA)
+			  break;
 		  accept();
-		  Ident id2AST = parseIdent();
-		  List next = parseInitDeclaratorList(tAST, id2AST, mark);
-		  finish(decllistPos);
-		  initdecllistAST = new DeclList(declAST, next, decllistPos);
-	  }else{
-		  finish(decllistPos);
-		  initdecllistAST = new DeclList(declAST, new EmptyDeclList(dummyPos), decllistPos);
+		  idAST = parseIdent();
 	  }
+	  finishFrom(first);
 	  return initdecllistAST;
   }
   
   Decl parseInitDeclarator(Type tAST, Ident idAST, boolean mark) throws SyntaxError {
 	  //mark = true means global var, mark = false means local var
 	  Decl initdeclAST = null;
-	  SourcePosition declPos = new SourcePosition();
+	  SourcePosition declPos = newPosition();
 	  start(declPos);
 	  
 	  Type declType = parseDeclarator(tAST, idAST);
@@ -258,10 +575,10 @@ public class Parser {
   //Should consider this
   Expr parseInitialiser() throws SyntaxError {
 	  Expr initAST = null;
-	  SourcePosition initPos = new SourcePosition();
-	  start(initPos);
 	  
 	  if(currentToken.kind == Token.LCURLY){
+		  SourcePosition initPos = newPosition();
+		  start(initPos);
 		  match(Token.LCURLY);
 		  List exprlist = parseInitExprList(); 
 		  finish(initPos);
@@ -269,7 +586,6 @@ public class Parser {
 		  match(Token.RCURLY);
 	  }else{
 		  //System.out.println("Epression begin");
-		  finish(initPos);
 		  initAST = parseExpr();
 	  }
 	  return initAST;
@@ -277,28 +593,37 @@ public class Parser {
   
   List parseInitExprList() throws SyntaxError{
 	  List initexprAST = null;
-	  SourcePosition exprlistPos = new SourcePosition();
-	  start(exprlistPos);
-	  Expr exprAST = parseExpr();
-	  if(currentToken.kind == Token.COMMA){
+	  ExprList tail = null;
+	  int mark = unfinished.size();
+
+	  while (true) {
+		  SourcePosition exprlistPos = newPosition();
+		  start(exprlistPos);
+		  unfinished.add(exprlistPos);
+
+		  Expr exprAST = parseExpr();
+		  ExprList next = new ExprList(exprAST, new EmptyExprList(dummyPos), exprlistPos);
+		  if (tail == null)
+			  initexprAST = next;
+		  else {
+			  tail.EL = next;
+			  next.parent = tail;
+		  }
+		  tail = next;
+
+		  if (currentToken.kind != Token.COMMA)
+			  break;
 		  accept();
-		  List exprlist = parseInitExprList();
-		  finish(exprlistPos);
-		  initexprAST = new ExprList(exprAST, exprlist, exprlistPos);
-	  }else{
-		  finish(exprlistPos);
-		  initexprAST = new ExprList(exprAST, new EmptyExprList(dummyPos), exprlistPos);
 	  }
-	  
+	  finishFrom(mark);
 	  return initexprAST;
   }
   Type parseDeclarator(Type type, Ident idAST) throws SyntaxError {
 	  Type tAST = null;
 	  
-	  SourcePosition declaratorPos = new SourcePosition();
-	  start(declaratorPos);
-	  
 	  if(currentToken.kind == Token.LBRACKET){
+		  SourcePosition declaratorPos = newPosition();
+		  start(declaratorPos);
 		  accept();
 		  Expr intexpr = null;
 		  if(currentToken.kind == Token.INTLITERAL){
@@ -312,7 +637,6 @@ public class Parser {
 		  finish(declaratorPos);
 		  tAST = new ArrayType(type,intexpr,declaratorPos);
 	  }else{
-		  finish(declaratorPos);
 		  tAST = type;
 	  }
 	  return tAST;
@@ -320,31 +644,31 @@ public class Parser {
 
 //  ======================== TYPES ==========================
 
+  boolean isType(int kind) {
+    return kind == Token.VOID || kind == Token.BOOLEAN
+        || kind == Token.INT || kind == Token.FLOAT;
+  }
+
   Type parseType() throws SyntaxError {
     Type typeAST = null;
 
-    SourcePosition typePos = new SourcePosition();
-    start(typePos);
+    SourcePosition typePos = currentToken.position;
 
     switch(currentToken.kind){
 	  case Token.VOID:
 		  accept();
-		  finish(typePos);
 		  typeAST = new VoidType(typePos);
 		  break;
 	  case Token.BOOLEAN:
 		  accept();
-		  finish(typePos);
 		  typeAST = new BooleanType(typePos);
 		  break;
 	  case Token.INT:
 		  accept();
-		  finish(typePos);
 		  typeAST = new IntType(typePos);
 		  break;
 	  case Token.FLOAT:
 		  accept();
-		  finish(typePos);
 		  typeAST = new FloatType(typePos);
 		  break;
 	  default:
@@ -362,7 +686,7 @@ public class Parser {
   Stmt parseCompoundStmt() throws SyntaxError {
     Stmt cAST = null; 
 
-    SourcePosition stmtPos = new SourcePosition();
+    SourcePosition stmtPos = newPosition();
     start(stmtPos);
 
     match(Token.LCURLY);
@@ -384,58 +708,72 @@ public class Parser {
   
   List parseVarDeclList() throws SyntaxError{
 	  List varlistAST = null;
-	  SourcePosition varlistPos = new SourcePosition();
-	  start(varlistPos);
-	  
-	  if (currentToken.kind == Token.VOID || currentToken.kind == Token.BOOLEAN
-	    		|| currentToken.kind == Token.INT || currentToken.kind == Token.FLOAT){
-	    	
-		  	Type tAST = parseType();
-		  	Ident idAST = parseIdent();
-		  	boolean mark = false;
-		  	
-		  	varlistAST = parseVardecl(tAST, idAST, mark);
-
-		  	if (currentToken.kind == Token.VOID || currentToken.kind == Token.BOOLEAN
-		    		|| currentToken.kind == Token.INT || currentToken.kind == Token.FLOAT){
-		  		//Find the most right child of the current tree
-		  		//insert the new node in it
-		  		DeclList R = (DeclList) varlistAST;
-		  		while(!(R.DL instanceof EmptyDeclList)){
-		  			R = (DeclList) R.DL;
-		  		}
-		  		R.DL = parseVarDeclList();
-		  		
-		  	}
-	    }else{
-	    	finish(varlistPos);
-	    	varlistAST = new EmptyDeclList(dummyPos);
-	    }
+	  DeclList tail = null;
+
+	  while (isType(currentToken.kind)) {
+		  int depth = unfinished.size();
+		  try {
+			  Type tAST = parseType();
+			  Ident idAST = parseIdent();
+			  boolean mark = false;
+
+			  DeclList declsAST = (DeclList) parseVardecl(tAST, idAST, mark);
+			  if (tail == null)
+				  varlistAST = declsAST;
+			  else {
+				  tail.DL = declsAST;
+				  declsAST.parent = tail;
+			  }
+			  tail = lastDeclList(declsAST);
+		  } catch (SyntaxError s) {
+			  if (!errorRecovery)
+				  throw s;
+			  discardFrom(depth);
+			  skipToStmt(true);
+		  }
+	  }
+
+	  if (varlistAST == null)
+		  varlistAST = new EmptyDeclList(dummyPos);
 	  return varlistAST;
   }
 
   List parseStmtList() throws SyntaxError {
     List slAST = null; 
-
-    SourcePosition stmtPos = new SourcePosition();
-    start(stmtPos);
-
-    if (currentToken.kind != Token.RCURLY) {
-      Stmt sAST = parseStmt();
-      {
-        if (currentToken.kind != Token.RCURLY) {
-          slAST = parseStmtList();
-          finish(stmtPos);
-          slAST = new StmtList(sAST, slAST, stmtPos);
-        } else {
-          finish(stmtPos);
-          slAST = new StmtList(sAST, new EmptyStmtList(dummyPos), stmtPos);
-        }
+    StmtList tail = null;
+    int mark = unfinished.size();
+
+    while (currentToken.kind != Token.RCURLY) {
+      SourcePosition stmtPos = newPosition();
+      start(stmtPos);
+
+      int depth = unfinished.size();
+      Stmt sAST;
+      try {
+        sAST = parseStmt();
+      } catch (SyntaxError s) {
+        if (!errorRecovery)
+          throw s;
+        discardFrom(depth);
+        skipToStmt(false);
+        if (currentToken.kind == Token.EOF)
+          break;
+        continue;
+      }
+      unfinished.add(stmtPos);
+      StmtList next = new StmtList(sAST, new EmptyStmtList(dummyPos), stmtPos);
+      if (tail == null)
+        slAST = next;
+      else {
+        tail.SL = next;
+        next.parent = tail;
       }
+      tail = next;
     }
-    else
+    finishFrom(mark);
+
+    if (slAST == null)
       slAST = new EmptyStmtList(dummyPos);
-    
     return slAST;
   }
 
@@ -478,7 +816,7 @@ public class Parser {
   Stmt parseExprStmt() throws SyntaxError {
     Stmt sAST = null;
 
-    SourcePosition stmtPos = new SourcePosition();
+    SourcePosition stmtPos = newPosition();
     start(stmtPos);
 
     if (currentToken.kind == Token.ID
@@ -503,7 +841,7 @@ public class Parser {
 //If-stmt
    Stmt parseIfStmt() throws SyntaxError {
 	  Stmt sAST = null;
-	  SourcePosition stmtPos = new SourcePosition();
+	  SourcePosition stmtPos = newPosition();
 	  start(stmtPos);
 	  
 	  match(Token.IF);
@@ -527,7 +865,7 @@ public class Parser {
    Stmt parseForStmt() throws SyntaxError {
 	   
 	  Stmt sAST = null;
-	  SourcePosition stmtPos = new SourcePosition();
+	  SourcePosition stmtPos = newPosition();
 	  start(stmtPos);
 	  
  	  match(Token.FOR);
@@ -535,30 +873,37 @@ public class Parser {
  	  Expr e1AST = new EmptyExpr(dummyPos);
  	  Expr e2AST = new EmptyExpr(dummyPos);
  	  Expr e3AST = new EmptyExpr(dummyPos);
- 	  if (currentToken.kind == Token.ID
- 		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
- 		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
- 		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
- 		        || currentToken.kind == Token.LPAREN) {
- 		  		e1AST = parseExpr();
+ 	  try {
+ 	    if (currentToken.kind == Token.ID
+ 	  	        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
+ 	  	        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
+ 	  	        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
+ 	  	        || currentToken.kind == Token.LPAREN) {
+ 	  	  		e1AST = parseExpr();
+ 	    }
+ 	    match(Token.SEMICOLON);
+ 	    if (currentToken.kind == Token.ID
+ 	  	        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
+ 	  	        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
+ 	  	        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
+ 	  	        || currentToken.kind == Token.LPAREN) {
+ 	  	  		e2AST = parseExpr();
+ 	    }
+ 	    match(Token.SEMICOLON);
+ 	    if (currentToken.kind == Token.ID
+ 	  	        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
+ 	  	        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
+ 	  	        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
+ 	  	        || currentToken.kind == Token.LPAREN) {
+ 	  	        e3AST = parseExpr();
+ 	    }
+ 	    match(Token.RPAREN);
+ 	  } catch (SyntaxError s) {
+ 	    if (!errorRecovery || !skipPastRParen())
+ 	      throw s;
+ 	    parseStmt();
+ 	    throw s;
  	  }
- 	  match(Token.SEMICOLON);
- 	  if (currentToken.kind == Token.ID
- 		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
- 		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
- 		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
- 		        || currentToken.kind == Token.LPAREN) {
- 		  		e2AST = parseExpr();
- 	  }
- 	  match(Token.SEMICOLON);
- 	  if (currentToken.kind == Token.ID
- 		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
- 		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
- 		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
- 		        || currentToken.kind == Token.LPAREN) {
- 		        e3AST = parseExpr();
- 	  }
- 	  match(Token.RPAREN);
  	  Stmt sAST_in = parseStmt();
  	  finish(stmtPos);
  	  sAST = new ForStmt(e1AST, e2AST, e3AST, sAST_in, stmtPos);
@@ -568,7 +913,7 @@ public class Parser {
 //While-stmt
    Stmt parseWhileStmt() throws SyntaxError {
 	  Stmt sAST = null;
-	  SourcePosition stmtPos = new SourcePosition();
+	  SourcePosition stmtPos = newPosition();
 	  start(stmtPos);
 	  
  	  match(Token.WHILE);
@@ -585,7 +930,7 @@ public class Parser {
 //Break-stmt
    Stmt parseBreakStmt () throws SyntaxError {
 	  Stmt sAST = null;
-	  SourcePosition stmtPos = new SourcePosition();
+	  SourcePosition stmtPos = newPosition();
 	  start(stmtPos);
 	  
  	  match(Token.BREAK);
@@ -600,7 +945,7 @@ public class Parser {
 //Continue-stmt
   Stmt parseContinueStmt() throws SyntaxError {
 	 Stmt sAST = null;
-	 SourcePosition stmtPos = new SourcePosition();
+	 SourcePosition stmtPos = newPosition();
 	 start(stmtPos);
 	 
      match(Token.CONTINUE);
@@ -614,7 +959,7 @@ public class Parser {
   //Return-stmt
   Stmt parseReturnStmt() throws SyntaxError{
 	  Stmt sAST = null;
-	  SourcePosition stmtPos = new SourcePosition();
+	  SourcePosition stmtPos = newPosition();
 	  start(stmtPos);
 	  Expr eAST = new EmptyExpr(dummyPos);
 	  match(Token.RETURN);
@@ -637,7 +982,7 @@ public class Parser {
   List parseParaList() throws SyntaxError {
     List formalsAST = null;
 
-    SourcePosition formalsPos = new SourcePosition();
+    SourcePosition formalsPos = newPosition();
     start(formalsPos);
 
     match(Token.LPAREN);
@@ -657,21 +1002,29 @@ public class Parser {
 
   List parseProperParaList() throws SyntaxError {
 	  List paraListAST = null;
-	  
-	  SourcePosition pralistPos = new SourcePosition();
-	  start(pralistPos);
-	  
-	  ParaDecl pAST = parseParaDecl();
-	  
-	  if(currentToken.kind == Token.COMMA){
+	  ParaList tail = null;
+	  int mark = unfinished.size();
+
+	  while (true) {
+		  SourcePosition pralistPos = newPosition();
+		  start(pralistPos);
+		  unfinished.add(pralistPos);
+
+		  ParaDecl pAST = parseParaDecl();
+		  ParaList next = new ParaList(pAST, new EmptyParaList(dummyPos), pralistPos);
+		  if (tail == null)
+			  paraListAST = next;
+		  else {
+			  tail.PL = next;
+			  next.parent = tail;
+		  }
+		  tail = next;
+
+		  if (currentToken.kind != Token.COMMA)
+			  break;
 		  match(Token.COMMA);
-		  List next = parseProperParaList();
-		  finish(pralistPos);
-		  paraListAST = new ParaList(pAST, next, pralistPos);
-	  }else{
-		  finish(pralistPos);
-		  paraListAST = new ParaList(pAST, new EmptyParaList(dummyPos), pralistPos);
 	  }
+	  finishFrom(mark);
 	  return paraListAST;
   }
   
@@ -679,7 +1032,7 @@ public class Parser {
   ParaDecl parseParaDecl() throws SyntaxError {
 	  ParaDecl pAST = null;
 	  
-	  SourcePosition pASTPos = new SourcePosition();
+	  SourcePosition pASTPos = newPosition();
 	  start(pASTPos);
 	  
 	  Type tAST = parseType();
@@ -695,8 +1048,6 @@ public class Parser {
   
   List parseArgList() throws SyntaxError {
 	  List arglist = null;
-	  SourcePosition ArglistPos = new SourcePosition();
-	  start(ArglistPos);
 	  
 	  match(Token.LPAREN);
 	  if (currentToken.kind == Token.ID
@@ -707,7 +1058,6 @@ public class Parser {
 		  arglist = parseProperArgList();
 		  match(Token.RPAREN); 
 	  }else{
-		  finish(ArglistPos);
 		  arglist = new EmptyArgList(dummyPos);
 		  match(Token.RPAREN); 	  
 	  }
@@ -717,26 +1067,35 @@ public class Parser {
   
   List parseProperArgList() throws SyntaxError {
 	  List Arglist = null;
-	  SourcePosition ArglistPos = new SourcePosition();
-	  start(ArglistPos);
-	  
-	  Arg arg = parseArg();
-	  if(currentToken.kind == Token.COMMA){
+	  ArgList tail = null;
+	  int mark = unfinished.size();
+
+	  while (true) {
+		  SourcePosition ArglistPos = newPosition();
+		  start(ArglistPos);
+		  unfinished.add(ArglistPos);
+
+		  Arg arg = parseArg();
+		  ArgList next = new ArgList(arg, new EmptyArgList(dummyPos), ArglistPos);
+		  if (tail == null)
+			  Arglist = next;
+		  else {
+			  tail.AL = next;
+			  next.parent = tail;
+		  }
+		  tail = next;
+
+		  if (currentToken.kind != Token.COMMA)
+			  break;
 		  accept();
-		  List next = parseProperArgList();
-		  finish(ArglistPos);
-		  Arglist = new ArgList(arg, next, ArglistPos);
-	  }else{
-		  finish(ArglistPos);
-		  Arglist = new ArgList(arg, new EmptyArgList(dummyPos), ArglistPos);
 	  }
-	  
+	  finishFrom(mark);
 	  return Arglist;
   }
   
   Arg parseArg() throws SyntaxError {
 	  Arg argAST = null;
-	  SourcePosition argPos = new SourcePosition();
+	  SourcePosition argPos = newPosition();
 	  start(argPos);
 	  Expr expr = parseExpr();
 	  finish(argPos);
@@ -747,140 +1106,53 @@ public class Parser {
 // ======================= EXPRESSIONS ======================
 
 
-  Expr parseExpr() throws SyntaxError {
-	 //System.out.println("parseExpr:");
-    Expr exprAST = null;
-    exprAST = parseAssignExpr();
-    return exprAST;
+// Binary and assignment expressions are parsed by precedence climbing
+// instead of by one method per level of the grammar. BINDING_POWER
+// gives the binding power of each binary operator by token kind, from
+// = (the loosest, and right associative) to * and / (the tightest),
+// and 0 for any other token. parseBinaryExpr(p) parses a unary
+// expression followed by the operators that bind at least as tightly
+// as p, each with the operand on its right parsed at the next higher
+// power, so the trees and their positions are those of the grammar.
+
+  private static final int ASSIGNMENT = 1;
+  private static final int[] BINDING_POWER = new int[Token.EOF + 1];
+
+  static {
+    BINDING_POWER[Token.EQ] = ASSIGNMENT;
+    BINDING_POWER[Token.OROR] = 2;
+    BINDING_POWER[Token.ANDAND] = 3;
+    BINDING_POWER[Token.EQEQ] = BINDING_POWER[Token.NOTEQ] = 4;
+    BINDING_POWER[Token.LT] = BINDING_POWER[Token.LTEQ] = 5;
+    BINDING_POWER[Token.GT] = BINDING_POWER[Token.GTEQ] = 5;
+    BINDING_POWER[Token.PLUS] = BINDING_POWER[Token.MINUS] = 6;
+    BINDING_POWER[Token.MULT] = BINDING_POWER[Token.DIV] = 7;
   }
-  
-  Expr parseAssignExpr() throws SyntaxError {
-	  Expr assAST = null;
-	  SourcePosition assPos = new SourcePosition();
-	  start(assPos);
-	  
-	  assAST = parseCondORExpr();
-	  if(currentToken.kind == Token.EQ){
-		  
-		  acceptOperator();
-		  Expr next = parseAssignExpr();
-		  finish(assPos);
-		  assAST = new AssignExpr(assAST, next, assPos);
-	  }
-	  
-	  return assAST;
-  }
-  
-  Expr parseCondORExpr() throws SyntaxError {
-	  Expr condorAST = null;
-	  SourcePosition condorPos = new SourcePosition();
-	  start(condorPos);
-	  
-	  condorAST = parseCondAndExpr();
-	  while(currentToken.kind == Token.OROR){
-		  Operator opAST = acceptOperator();
-		  Expr e2AST = parseCondAndExpr();
-		  SourcePosition addPos = new SourcePosition();
-	      copyStart(condorPos, addPos);
-	      finish(addPos);
-		  condorAST = new BinaryExpr(condorAST, opAST, e2AST, addPos);
-	  }
-	  return condorAST;
-  }
-  
-  Expr parseCondAndExpr() throws SyntaxError {
-	  Expr condandAST = null;
-	  SourcePosition condandPos = new SourcePosition();
-	  start(condandPos);
-	  
-	  condandAST = parseEqualityExpr();
-	  while(currentToken.kind == Token.ANDAND){
-		  Operator opAST = acceptOperator();
-		  Expr e2AST = parseEqualityExpr();
-		  
-		  SourcePosition addPos = new SourcePosition();
-	      copyStart(condandPos, addPos);
-	      finish(addPos);
-	      
-		  condandAST = new BinaryExpr(condandAST, opAST, e2AST, addPos);
-	  }
-	  return condandAST;
-  }
-  
-  Expr parseEqualityExpr()throws SyntaxError {
-	  Expr equalAST = null;
-	  SourcePosition equalPos = new SourcePosition();
-	  start(equalPos);
-	  equalAST = parseRelExpr();
-	  while(currentToken.kind == Token.EQEQ || currentToken.kind == Token.NOTEQ){
-		  Operator opAST = acceptOperator();
-		  Expr e2AST = parseRelExpr();
-		  
-		  SourcePosition addPos = new SourcePosition();
-	      copyStart(equalPos, addPos);
-	      finish(addPos);
-	      equalAST = new BinaryExpr(equalAST, opAST, e2AST, addPos);
-	  }
-	  return equalAST;
-  }
-  
-  Expr parseRelExpr() throws SyntaxError {
-	  Expr relAST  = null;
-	  SourcePosition relPos = new SourcePosition();
-	  start(relPos);
-	  
-	  relAST = parseAdditiveExpr();
-	  while(currentToken.kind == Token.LT || currentToken.kind == Token.LTEQ
-			  || currentToken.kind == Token.GT ||currentToken.kind == Token.GTEQ){
-		  Operator opAST = acceptOperator();
-		  Expr e2AST = parseAdditiveExpr();
-		  
-		  SourcePosition addPos = new SourcePosition();
-	      copyStart(relPos, addPos);
-	      finish(addPos);
-	      relAST = new BinaryExpr(relAST, opAST, e2AST, addPos);
-	       
-	  }
-	  return relAST;
-  }
-  
-
-  Expr parseAdditiveExpr() throws SyntaxError {
-    Expr exprAST = null;
-
-    SourcePosition addStartPos = new SourcePosition();
-    start(addStartPos);
 
-    exprAST = parseMultiplicativeExpr();
-    while (currentToken.kind == Token.PLUS
-           || currentToken.kind == Token.MINUS) {
-      Operator opAST = acceptOperator();
-      Expr e2AST = parseMultiplicativeExpr();
-
-      SourcePosition addPos = new SourcePosition();
-      copyStart(addStartPos, addPos);
-      finish(addPos);
-      exprAST = new BinaryExpr(exprAST, opAST, e2AST, addPos);
-    }
-    return exprAST;
+  Expr parseExpr() throws SyntaxError {
+    return parseBinaryExpr(ASSIGNMENT);
   }
 
-  Expr parseMultiplicativeExpr() throws SyntaxError {
-
+  Expr parseBinaryExpr(int power) throws SyntaxError {
     Expr exprAST = null;
 
-    SourcePosition multStartPos = new SourcePosition();
-    start(multStartPos);
+    SourcePosition startPos = currentToken.position;
 
     exprAST = parseUnaryExpr();
-    while (currentToken.kind == Token.MULT
-           || currentToken.kind == Token.DIV) {
+    while (BINDING_POWER[currentToken.kind] >= power) {
+      int p = BINDING_POWER[currentToken.kind];
       Operator opAST = acceptOperator();
-      Expr e2AST = parseUnaryExpr();
-      SourcePosition multPos = new SourcePosition();
-      copyStart(multStartPos, multPos);
-      finish(multPos);
-      exprAST = new BinaryExpr(exprAST, opAST, e2AST, multPos);
+      SourcePosition exprPos = newPosition();
+      copyStart(startPos, exprPos);
+      if (p == ASSIGNMENT) {
+        Expr e2AST = parseBinaryExpr(ASSIGNMENT);
+        finish(exprPos);
+        exprAST = new AssignExpr(exprAST, e2AST, exprPos);
+      } else {
+        Expr e2AST = parseBinaryExpr(p + 1);
+        finish(exprPos);
+        exprAST = new BinaryExpr(exprAST, opAST, e2AST, exprPos);
+      }
     }
     return exprAST;
   }
@@ -889,12 +1161,11 @@ public class Parser {
 
     Expr exprAST = null;
 
-    SourcePosition unaryPos = new SourcePosition();
-    start(unaryPos);
-
     switch (currentToken.kind) {
       case Token.MINUS:case Token.PLUS:case Token.NOT:
         {
+          SourcePosition unaryPos = newPosition();
+          start(unaryPos);
           Operator opAST = acceptOperator();
           Expr e2AST = parseUnaryExpr();
           finish(unaryPos);
@@ -914,9 +1185,6 @@ public class Parser {
 
     Expr exprAST = null;
 
-    SourcePosition primPos = new SourcePosition();
-    start(primPos);
-
     switch (currentToken.kind) {
 
       case Token.ID:
@@ -924,6 +1192,8 @@ public class Parser {
         Ident iAST = parseIdent();
         
         if(currentToken.kind == Token.LBRACKET){
+        	SourcePosition primPos = newPosition();
+        	copyStart(iAST.position, primPos);
         	accept();
         	Var arrAST = new SimpleVar(iAST, previousTokenPosition);
         	Expr eAST = parseExpr();
@@ -931,13 +1201,14 @@ public class Parser {
         	finish(primPos);
         	exprAST = new ArrayExpr(arrAST, eAST, primPos);
         }else if(currentToken.kind == Token.LPAREN){
+        	SourcePosition primPos = newPosition();
+        	copyStart(iAST.position, primPos);
         	List arglist = parseArgList();
         	finish(primPos);
         	exprAST = new CallExpr(iAST, arglist, primPos);
         }else{
-        	finish(primPos);
-            Var simVAST = new SimpleVar(iAST, primPos);
-            exprAST = new VarExpr(simVAST, primPos);
+            Var simVAST = new SimpleVar(iAST, iAST.position);
+            exprAST = new VarExpr(simVAST, iAST.position);
         	
         }
             
@@ -953,23 +1224,19 @@ public class Parser {
 
       case Token.INTLITERAL:
           IntLiteral ilAST = parseIntLiteral();
-          finish(primPos);
-          exprAST = new IntExpr(ilAST, primPos);
+          exprAST = new IntExpr(ilAST, ilAST.position);
           break;
       case Token.BOOLEANLITERAL:
 		  BooleanLiteral blAST = parseBooleanLiteral();
-		  finish(primPos);
-	      exprAST = new BooleanExpr(blAST, primPos);
+	      exprAST = new BooleanExpr(blAST, blAST.position);
 		  break;
 	  case Token.FLOATLITERAL:
 		  FloatLiteral flAST = parseFloatLiteral();
-		  finish(primPos);
-		  exprAST = new FloatExpr(flAST, primPos);
+		  exprAST = new FloatExpr(flAST, flAST.position);
 		  break;
       case Token.STRINGLITERAL:
     	  StringLiteral slAST = parseStringLiteral();
-    	  finish(primPos);
-    	  exprAST = new StringExpr(slAST, primPos);
+    	  exprAST = new StringExpr(slAST, slAST.position);
     	  break;
       default:
         syntacticError("illegal primary expression", currentToken.spelling);
@@ -1012,8 +1279,9 @@ public class Parser {
 
     if (currentToken.kind == Token.INTLITERAL) {
       String spelling = currentToken.spelling;
+      int value = currentToken.intValue;
       accept();
-      IL = new IntLiteral(spelling, previousTokenPosition);
+      IL = new IntLiteral(spelling, value, previousTokenPosition);
     } else 
       syntacticError("integer literal expected here", "");
     return IL;
@@ -1024,8 +1292,9 @@ public class Parser {
 
     if (currentToken.kind == Token.FLOATLITERAL) {
       String spelling = currentToken.spelling;
+      float value = currentToken.floatValue;
       accept();
-      FL = new FloatLiteral(spelling, previousTokenPosition);
+      FL = new FloatLiteral(spelling, value, previousTokenPosition);
     } else 
       syntacticError("float literal expected here", "");
     return FL;
@@ -0,0 +1,73 @@
+/*
+ * PositionArena.java
+ *
+ * Hands out the SourcePositions of the phrases a Parser builds from
+ * slabs allocated in advance, instead of one at a time, and takes them
+ * all back together when release is called, to hand them out again for
+ * the next program. A Compiler parses a great many programs, and the
+ * positions, of which there is about one per node, then cost nothing
+ * after the first one or two.
+ *
+ * The positions are only lent: after release, the ASTs built with them
+ * must no longer be used, as their positions will be overwritten. So
+ * an arena is only for a Parser whose ASTs are done with before it
+ * parses the next program (see Parser.setArena).
+ *
+ * An arena is not thread-safe: give each Parser one of its own.
+ */
+
+package VC.Parser;
+
+import java.util.ArrayList;
+
+import VC.Scanner.SourcePosition;
+
+public final class PositionArena {
+
+  private static final int SLAB_SIZE = 4096;
+
+  private ArrayList<SourcePosition[]> slabs = new ArrayList<SourcePosition[]>();
+  private SourcePosition[] slab;  // the slab being handed out
+  private int slabIndex, next;
+
+  public PositionArena() {
+    slab = newSlab();
+    slabs.add(slab);
+  }
+
+  private static SourcePosition[] newSlab() {
+    SourcePosition[] s = new SourcePosition[SLAB_SIZE];
+    for (int i = 0; i < s.length; i++)
+      s[i] = new SourcePosition();
+    return s;
+  }
+
+  // Returns a position of zeros, as new SourcePosition() does.
+
+  SourcePosition allocate() {
+    if (next == slab.length) {
+      if (++slabIndex == slabs.size())
+        slabs.add(newSlab());
+      slab = slabs.get(slabIndex);
+      next = 0;
+    }
+    SourcePosition p = slab[next++];
+    p.lineStart = p.lineFinish = p.charStart = p.charFinish = 0;
+    return p;
+  }
+
+  // Takes back all the positions handed out. The slabs are kept, to be
+  // handed out again.
+
+  public void release() {
+    slabIndex = next = 0;
+    slab = slabs.get(0);
+  }
+
+  // The number of positions handed out since the last release.
+
+  public int size() {
+    return slabIndex * SLAB_SIZE + next;
+  }
+
+}
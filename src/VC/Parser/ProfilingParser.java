@@ -0,0 +1,321 @@
+/*
+ * ProfilingParser.java
+ *
+ * A Parser that counts the calls of each of its parse methods, and the
+ * time spent in them, so that the productions that dominate the
+ * parsing of a program can be seen (see VC.Bench.ParserBenchmark).
+ *
+ * Each method is overridden to count its call and to time it around
+ * the call of the Parser's method, which is otherwise unchanged, so a
+ * plain Parser pays nothing for the counters. The time of a method is
+ * inclusive: it takes in the methods it calls. A method that is called
+ * while it is already running, such as parseStmt for the statements in
+ * a block, is counted every time but timed only from its outermost
+ * call, so that no time is counted twice.
+ *
+ * The counters add up over the programs parsed, until clear is called.
+ */
+
+package VC.Parser;
+
+import java.util.Arrays;
+
+import VC.ErrorReporter;
+import VC.ASTs.*;
+import VC.Scanner.TokenSource;
+
+public class ProfilingParser extends Parser {
+
+  private static final String[] NAMES = {
+    "parseProgram", "parseFuncDeclList", "parseDecl", "parseFuncDecl",
+    "parseVardecl", "parseInitDeclaratorList", "parseInitDeclarator",
+    "parseInitialiser", "parseInitExprList", "parseDeclarator", "parseType",
+    "parseCompoundStmt", "skipCompoundStmt", "parseVarDeclList", "parseStmtList",
+    "parseStmt", "parseExprStmt", "parseIfStmt", "parseForStmt", "parseWhileStmt",
+    "parseBreakStmt", "parseContinueStmt", "parseReturnStmt", "parseParaList",
+    "parseProperParaList", "parseParaDecl", "parseArgList", "parseProperArgList",
+    "parseArg", "parseExpr", "parseBinaryExpr", "parseUnaryExpr", "parsePrimaryExpr",
+    "parseIdent", "acceptOperator", "parseIntLiteral", "parseFloatLiteral",
+    "parseBooleanLiteral", "parseStringLiteral"
+  };
+
+  private static final int
+    PROGRAM = 0, FUNC_DECL_LIST = 1, DECL = 2, FUNC_DECL = 3,
+    VAR_DECL = 4, INIT_DECLARATOR_LIST = 5, INIT_DECLARATOR = 6,
+    INITIALISER = 7, INIT_EXPR_LIST = 8, DECLARATOR = 9, TYPE = 10,
+    COMPOUND_STMT = 11, SKIP_COMPOUND_STMT = 12, VAR_DECL_LIST = 13, STMT_LIST = 14,
+    STMT = 15, EXPR_STMT = 16, IF_STMT = 17, FOR_STMT = 18, WHILE_STMT = 19,
+    BREAK_STMT = 20, CONTINUE_STMT = 21, RETURN_STMT = 22, PARA_LIST = 23,
+    PROPER_PARA_LIST = 24, PARA_DECL = 25, ARG_LIST = 26, PROPER_ARG_LIST = 27,
+    ARG = 28, EXPR = 29, BINARY_EXPR = 30, UNARY_EXPR = 31, PRIMARY_EXPR = 32,
+    IDENT = 33, OPERATOR = 34, INT_LITERAL = 35, FLOAT_LITERAL = 36,
+    BOOLEAN_LITERAL = 37, STRING_LITERAL = 38;
+
+  private long[] calls = new long[NAMES.length];
+  private long[] time = new long[NAMES.length];     // in nanoseconds
+  private int[] depth = new int[NAMES.length];      // of the calls running
+  private long[] started = new long[NAMES.length];  // of the outermost call
+  private int programs;
+
+  public ProfilingParser(TokenSource lexer, ErrorReporter reporter) {
+    super(lexer, reporter);
+  }
+
+  public void clear() {
+    Arrays.fill(calls, 0);
+    Arrays.fill(time, 0);
+    programs = 0;
+  }
+
+  private void enter(int method) {
+    calls[method]++;
+    if (depth[method]++ == 0)
+      started[method] = System.nanoTime();
+  }
+
+  private void exit(int method) {
+    if (--depth[method] == 0)
+      time[method] += System.nanoTime() - started[method];
+  }
+
+  // The methods that were called, by decreasing time: the calls and
+  // the milliseconds per program parsed, and the share of the time of
+  // parseProgram.
+
+  public String toString() {
+    Integer[] order = new Integer[NAMES.length];
+    for (int m = 0; m < order.length; m++)
+      order[m] = m;
+    Arrays.sort(order, new java.util.Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+        return Long.compare(time[b], time[a]);
+      }
+    });
+
+    StringBuffer sb = new StringBuffer();
+    int n = Math.max(programs, 1);
+    sb.append(String.format("%-26s%14s%12s%8s%n", "method", "calls", "ms", "%"));
+    for (int i = 0; i < order.length; i++) {
+      int m = order[i];
+      if (calls[m] == 0)
+        continue;
+      sb.append(String.format("%-26s%14d%12.3f%8.1f%n", NAMES[m], calls[m] / n,
+                              time[m] / 1e6 / n,
+                              time[PROGRAM] == 0 ? 0.0 : 100.0 * time[m] / time[PROGRAM]));
+    }
+    return sb.toString();
+  }
+
+// ========================== PROGRAMS ========================
+
+  public Program parseProgram() {
+    programs++;
+    enter(PROGRAM);
+    try { return super.parseProgram(); } finally { exit(PROGRAM); }
+  }
+
+// ========================== DECLARATIONS ========================
+
+  List parseFuncDeclList() throws SyntaxError {
+    enter(FUNC_DECL_LIST);
+    try { return super.parseFuncDeclList(); } finally { exit(FUNC_DECL_LIST); }
+  }
+
+  DeclList parseDecl() throws SyntaxError {
+    enter(DECL);
+    try { return super.parseDecl(); } finally { exit(DECL); }
+  }
+
+  Decl parseFuncDecl(Type tAST, Ident idAST) throws SyntaxError {
+    enter(FUNC_DECL);
+    try { return super.parseFuncDecl(tAST, idAST); } finally { exit(FUNC_DECL); }
+  }
+
+  List parseVardecl(Type tAST, Ident idAST, boolean mark) throws SyntaxError {
+    enter(VAR_DECL);
+    try { return super.parseVardecl(tAST, idAST, mark); } finally { exit(VAR_DECL); }
+  }
+
+  List parseInitDeclaratorList(Type tAST, Ident idAST, boolean mark) throws SyntaxError {
+    enter(INIT_DECLARATOR_LIST);
+    try {
+      return super.parseInitDeclaratorList(tAST, idAST, mark);
+    } finally {
+      exit(INIT_DECLARATOR_LIST);
+    }
+  }
+
+  Decl parseInitDeclarator(Type tAST, Ident idAST, boolean mark) throws SyntaxError {
+    enter(INIT_DECLARATOR);
+    try { return super.parseInitDeclarator(tAST, idAST, mark); } finally { exit(INIT_DECLARATOR); }
+  }
+
+  Expr parseInitialiser() throws SyntaxError {
+    enter(INITIALISER);
+    try { return super.parseInitialiser(); } finally { exit(INITIALISER); }
+  }
+
+  List parseInitExprList() throws SyntaxError {
+    enter(INIT_EXPR_LIST);
+    try { return super.parseInitExprList(); } finally { exit(INIT_EXPR_LIST); }
+  }
+
+  Type parseDeclarator(Type type, Ident idAST) throws SyntaxError {
+    enter(DECLARATOR);
+    try { return super.parseDeclarator(type, idAST); } finally { exit(DECLARATOR); }
+  }
+
+  Type parseType() throws SyntaxError {
+    enter(TYPE);
+    try { return super.parseType(); } finally { exit(TYPE); }
+  }
+
+// ======================= STATEMENTS ==============================
+
+  Stmt parseCompoundStmt() throws SyntaxError {
+    enter(COMPOUND_STMT);
+    try { return super.parseCompoundStmt(); } finally { exit(COMPOUND_STMT); }
+  }
+
+  Stmt skipCompoundStmt() throws SyntaxError {
+    enter(SKIP_COMPOUND_STMT);
+    try { return super.skipCompoundStmt(); } finally { exit(SKIP_COMPOUND_STMT); }
+  }
+
+  List parseVarDeclList() throws SyntaxError {
+    enter(VAR_DECL_LIST);
+    try { return super.parseVarDeclList(); } finally { exit(VAR_DECL_LIST); }
+  }
+
+  List parseStmtList() throws SyntaxError {
+    enter(STMT_LIST);
+    try { return super.parseStmtList(); } finally { exit(STMT_LIST); }
+  }
+
+  Stmt parseStmt() throws SyntaxError {
+    enter(STMT);
+    try { return super.parseStmt(); } finally { exit(STMT); }
+  }
+
+  Stmt parseExprStmt() throws SyntaxError {
+    enter(EXPR_STMT);
+    try { return super.parseExprStmt(); } finally { exit(EXPR_STMT); }
+  }
+
+  Stmt parseIfStmt() throws SyntaxError {
+    enter(IF_STMT);
+    try { return super.parseIfStmt(); } finally { exit(IF_STMT); }
+  }
+
+  Stmt parseForStmt() throws SyntaxError {
+    enter(FOR_STMT);
+    try { return super.parseForStmt(); } finally { exit(FOR_STMT); }
+  }
+
+  Stmt parseWhileStmt() throws SyntaxError {
+    enter(WHILE_STMT);
+    try { return super.parseWhileStmt(); } finally { exit(WHILE_STMT); }
+  }
+
+  Stmt parseBreakStmt() throws SyntaxError {
+    enter(BREAK_STMT);
+    try { return super.parseBreakStmt(); } finally { exit(BREAK_STMT); }
+  }
+
+  Stmt parseContinueStmt() throws SyntaxError {
+    enter(CONTINUE_STMT);
+    try { return super.parseContinueStmt(); } finally { exit(CONTINUE_STMT); }
+  }
+
+  Stmt parseReturnStmt() throws SyntaxError {
+    enter(RETURN_STMT);
+    try { return super.parseReturnStmt(); } finally { exit(RETURN_STMT); }
+  }
+
+// ======================= PARAMETERS =======================
+
+  List parseParaList() throws SyntaxError {
+    enter(PARA_LIST);
+    try { return super.parseParaList(); } finally { exit(PARA_LIST); }
+  }
+
+  List parseProperParaList() throws SyntaxError {
+    enter(PROPER_PARA_LIST);
+    try { return super.parseProperParaList(); } finally { exit(PROPER_PARA_LIST); }
+  }
+
+  ParaDecl parseParaDecl() throws SyntaxError {
+    enter(PARA_DECL);
+    try { return super.parseParaDecl(); } finally { exit(PARA_DECL); }
+  }
+
+  List parseArgList() throws SyntaxError {
+    enter(ARG_LIST);
+    try { return super.parseArgList(); } finally { exit(ARG_LIST); }
+  }
+
+  List parseProperArgList() throws SyntaxError {
+    enter(PROPER_ARG_LIST);
+    try { return super.parseProperArgList(); } finally { exit(PROPER_ARG_LIST); }
+  }
+
+  Arg parseArg() throws SyntaxError {
+    enter(ARG);
+    try { return super.parseArg(); } finally { exit(ARG); }
+  }
+
+// ======================= EXPRESSIONS ======================
+
+  Expr parseExpr() throws SyntaxError {
+    enter(EXPR);
+    try { return super.parseExpr(); } finally { exit(EXPR); }
+  }
+
+  Expr parseBinaryExpr(int power) throws SyntaxError {
+    enter(BINARY_EXPR);
+    try { return super.parseBinaryExpr(power); } finally { exit(BINARY_EXPR); }
+  }
+
+  Expr parseUnaryExpr() throws SyntaxError {
+    enter(UNARY_EXPR);
+    try { return super.parseUnaryExpr(); } finally { exit(UNARY_EXPR); }
+  }
+
+  Expr parsePrimaryExpr() throws SyntaxError {
+    enter(PRIMARY_EXPR);
+    try { return super.parsePrimaryExpr(); } finally { exit(PRIMARY_EXPR); }
+  }
+
+// ========================== ID, OPERATOR and LITERALS ========================
+
+  Ident parseIdent() throws SyntaxError {
+    enter(IDENT);
+    try { return super.parseIdent(); } finally { exit(IDENT); }
+  }
+
+  Operator acceptOperator() throws SyntaxError {
+    enter(OPERATOR);
+    try { return super.acceptOperator(); } finally { exit(OPERATOR); }
+  }
+
+  IntLiteral parseIntLiteral() throws SyntaxError {
+    enter(INT_LITERAL);
+    try { return super.parseIntLiteral(); } finally { exit(INT_LITERAL); }
+  }
+
+  FloatLiteral parseFloatLiteral() throws SyntaxError {
+    enter(FLOAT_LITERAL);
+    try { return super.parseFloatLiteral(); } finally { exit(FLOAT_LITERAL); }
+  }
+
+  BooleanLiteral parseBooleanLiteral() throws SyntaxError {
+    enter(BOOLEAN_LITERAL);
+    try { return super.parseBooleanLiteral(); } finally { exit(BOOLEAN_LITERAL); }
+  }
+
+  StringLiteral parseStringLiteral() throws SyntaxError {
+    enter(STRING_LITERAL);
+    try { return super.parseStringLiteral(); } finally { exit(STRING_LITERAL); }
+  }
+
+}
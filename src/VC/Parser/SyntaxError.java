@@ -1,10 +1,11 @@
 /*
  * SyntaxError.java 
  *
- * Presently, the parser uses the so-called panic-mode
- * recovery. On encountering the first syntax error, the 
- * parser prints a message with a line number indicating
- * where the error has occurred, and then stops.
+ * On encountering a syntax error, the parser prints a message
+ * with a line number indicating where the error has occurred,
+ * and then stops. With error recovery on (see
+ * Parser.setErrorRecovery), it recovers in panic mode instead
+ * and goes on to report the syntax errors that follow.
  */
 
 package VC.Parser;
@@ -0,0 +1,585 @@
+/*
+ * TableParser.java
+ *
+ * A table-driven parser for VC. It builds the same AST as Parser, with
+ * the same positions, and reports the same first syntax error, but
+ * runs the LL(1) table that LL1Generator builds from Grammar instead of
+ * hand-written code, so that nesting costs a deeper stack of ints
+ * rather than a deeper chain of Java calls.
+ *
+ * The parser keeps a stack of symbols, which starts with the start
+ * symbol of the grammar. It pops them in turn: a token is matched
+ * against the current token, a nonterminal is replaced by the
+ * alternative the table chooses on the current token, and a semantic
+ * action is run.
+ *
+ * The actions build the AST on a second stack, of values. A phrase
+ * leaves its node on the value stack, and #start pushes the position of
+ * the current token, which the action at the end of the phrase pops and
+ * finishes at the previous token, as Parser.start and Parser.finish do.
+ * Lists are built by a ListState on the value stack, to which each
+ * element is appended, and whose positions are finished when the list
+ * ends, as in Parser. The type of a declaration, which Parser passes to
+ * the methods that parse its declarators, is kept in declType instead;
+ * declarations are not nested in one another, so one is enough.
+ */
+
+package VC.Parser;
+
+import VC.Scanner.TokenSource;
+import VC.Scanner.SourcePosition;
+import VC.Scanner.Token;
+import VC.ErrorReporter;
+import VC.ASTs.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TableParser {
+
+  private static final LL1Table table =
+    LL1Generator.generate(Grammar.productions, Grammar.errors, Grammar.actions);
+
+  private TokenSource scanner;
+  private ErrorReporter errorReporter;
+  private Token currentToken;
+  private Token previousToken;
+  private SourcePosition previousTokenPosition;
+  private static final SourcePosition dummyPos = new SourcePosition();
+  private ArrayList<SourcePosition> unfinished = new ArrayList<SourcePosition>();
+
+  private int[] symbols = new int[64];
+  private int symbolCount;
+  private Object[] values = new Object[64];
+  private int valueCount;
+
+  private Type declType;
+  private boolean globalVars;
+
+  // a list being built, see the list actions
+
+  private static final class ListState {
+    int kind;         // the action that started it
+    int mark;         // the size of unfinished when it started
+    List head, tail;
+
+    ListState(int kind, int mark) {
+      this.kind = kind;
+      this.mark = mark;
+    }
+  }
+
+  public TableParser(TokenSource lexer, ErrorReporter reporter) {
+    reset(lexer, reporter);
+  }
+
+  // Makes this parser ready to parse another program, reusing its
+  // stacks.
+
+  public void reset(TokenSource lexer, ErrorReporter reporter) {
+    scanner = lexer;
+    errorReporter = reporter;
+    unfinished.clear();
+    symbolCount = 0;
+    valueCount = 0;
+
+    previousToken = null;
+    previousTokenPosition = new SourcePosition();
+
+    currentToken = scanner.getToken();
+  }
+
+  void syntacticError(String messageTemplate, String tokenQuoted) throws SyntaxError {
+    errorReporter.reportError(messageTemplate, tokenQuoted, currentToken.position);
+    throw(new SyntaxError());
+  }
+
+// ========================== PROGRAMS ========================
+
+  public Program parseProgram() {
+    try {
+      parse(table.start);
+    }
+    catch (SyntaxError s) {
+      Arrays.fill(values, 0, valueCount, null);
+      return null;
+    }
+    return (Program) pop();
+  }
+
+  // Runs the table until the symbol has been parsed.
+
+  private void parse(int startSymbol) throws SyntaxError {
+    int terminals = table.terminals;
+    int actions = terminals + table.nonterminals;
+    int[] predict = table.predict;
+    int[] rhsStart = table.rhsStart;
+    int[] rhs = table.rhs;
+
+    symbolCount = 0;
+    symbols[symbolCount++] = startSymbol;
+    while (symbolCount > 0) {
+      int symbol = symbols[--symbolCount];
+      if (symbol < terminals) {
+        if (currentToken.kind != symbol)
+          syntacticError("\"%\" expected here", Token.spell(symbol));
+        previousToken = currentToken;
+        previousTokenPosition = currentToken.position;
+        if (symbol != Token.EOF)
+          currentToken = scanner.getToken();
+      } else if (symbol < actions) {
+        int n = symbol - terminals;
+        int p = predict[n * terminals + currentToken.kind];
+        if (p == LL1Table.NO_PRODUCTION)
+          syntacticError(table.message[n], currentToken.spelling);
+        int from = rhsStart[p], to = rhsStart[p + 1];
+        if (symbolCount + to - from > symbols.length)
+          symbols = Arrays.copyOf(symbols, 2 * (symbolCount + to - from));
+        for (int i = from; i < to; i++)
+          symbols[symbolCount++] = rhs[i];
+      } else
+        act(symbol - actions);
+    }
+  }
+
+// ========================== THE VALUE STACK ========================
+
+  private void push(Object value) {
+    if (valueCount == values.length)
+      values = Arrays.copyOf(values, 2 * valueCount);
+    values[valueCount++] = value;
+  }
+
+  private Object pop() {
+    Object value = values[--valueCount];
+    values[valueCount] = null;
+    return value;
+  }
+
+  // the value depth places below the top
+
+  private Object peek(int depth) {
+    return values[valueCount - 1 - depth];
+  }
+
+  private SourcePosition startPos() {
+    SourcePosition pos = new SourcePosition();
+    pos.lineStart = currentToken.position.lineStart;
+    pos.charStart = currentToken.position.charStart;
+    return pos;
+  }
+
+  private void finish(SourcePosition position) {
+    position.lineFinish = previousTokenPosition.lineFinish;
+    position.charFinish = previousTokenPosition.charFinish;
+  }
+
+  // a new position from the start of from to the previous token
+  private SourcePosition spanFrom(SourcePosition from) {
+    SourcePosition pos = new SourcePosition();
+    pos.lineStart = from.lineStart;
+    pos.charStart = from.charStart;
+    finish(pos);
+    return pos;
+  }
+
+// ========================== LISTS ========================
+
+  private void append(List node) {
+    ListState list = (ListState) peek(0);
+    if (list.head == null)
+      list.head = node;
+    else if (list.tail instanceof DeclList)
+      ((DeclList) list.tail).DL = node;
+    else if (list.tail instanceof StmtList)
+      ((StmtList) list.tail).SL = node;
+    else if (list.tail instanceof ExprList)
+      ((ExprList) list.tail).EL = node;
+    else if (list.tail instanceof ParaList)
+      ((ParaList) list.tail).PL = node;
+    else
+      ((ArgList) list.tail).AL = node;
+    if (list.tail != null)
+      node.parent = list.tail;
+
+    // the variables of a declaration come as a list of their own
+    while (node instanceof DeclList && ((DeclList) node).DL instanceof DeclList)
+      node = ((DeclList) node).DL;
+    list.tail = node;
+  }
+
+  private List endList() {
+    ListState list = (ListState) pop();
+    for (int i = unfinished.size() - 1; i >= list.mark; i--)
+      finish(unfinished.remove(i));
+    if (list.head != null)
+      return list.head;
+    switch (list.kind) {
+    case Grammar.DECL_LIST:
+      return new EmptyDeclList(dummyPos);
+    case Grammar.STMT_LIST:
+      return new EmptyStmtList(dummyPos);
+    case Grammar.EXPR_LIST:
+      return new EmptyExprList(dummyPos);
+    case Grammar.PARA_LIST:
+      return new EmptyParaList(dummyPos);
+    default:
+      return new EmptyArgList(dummyPos);
+    }
+  }
+
+// ========================== SEMANTIC ACTIONS ========================
+
+  // The comments give the top of the value stack before each action,
+  // with the top on the right, and P for a position pushed by #start.
+
+  private void act(int action) {
+    Object o1, o2, o3, o4;
+    SourcePosition pos;
+    Token token = previousToken;
+
+    switch (action) {
+
+    case Grammar.START:
+      push(startPos());
+      break;
+
+    case Grammar.PROGRAM:               // P decls
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new Program((List) o1, pos));
+      break;
+
+    // ----------------------- lists -----------------------
+
+    case Grammar.DECL_LIST: case Grammar.STMT_LIST: case Grammar.EXPR_LIST:
+    case Grammar.PARA_LIST: case Grammar.ARG_LIST:
+      push(new ListState(action, unfinished.size()));
+      break;
+
+    case Grammar.END_LIST:              // ListState
+      push(endList());
+      break;
+
+    case Grammar.APPEND_DECL:           // ListState decls
+      append((List) pop());
+      break;
+
+    case Grammar.APPEND_STMT:           // ListState P stmt
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      unfinished.add(pos);
+      append(new StmtList((Stmt) o1, new EmptyStmtList(dummyPos), pos));
+      break;
+
+    case Grammar.APPEND_EXPR:           // ListState P expr
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      unfinished.add(pos);
+      append(new ExprList((Expr) o1, new EmptyExprList(dummyPos), pos));
+      break;
+
+    // ------------------- declarations -------------------
+
+    case Grammar.FUNC_DECL:             // P type ident P paras body
+      o4 = pop();
+      o3 = pop();
+      pos = (SourcePosition) pop();
+      o2 = pop();
+      o1 = pop();
+      finish(pos);
+      FuncDecl funcAST = new FuncDecl((Type) o1, (Ident) o2, (List) o3, (Stmt) o4, pos);
+      // a function's node ends with the list of declarations
+      pos = (SourcePosition) pop();
+      unfinished.add(pos);
+      push(new DeclList(funcAST, new EmptyDeclList(dummyPos), pos));
+      break;
+
+    case Grammar.GLOBAL_VARS:           // P type ident
+    case Grammar.LOCAL_VARS:            // type ident
+      o2 = pop();
+      declType = (Type) pop();
+      globalVars = action == Grammar.GLOBAL_VARS;
+      if (globalVars)
+        pop();
+      push(new ListState(Grammar.DECL_LIST, unfinished.size()));
+      push(o2);
+      break;
+
+    case Grammar.INIT_DECLARATOR:       // ListState ident P type expr
+      o3 = pop();
+      o2 = pop();
+      pos = (SourcePosition) pop();
+      o1 = pop();
+      Decl declAST;
+      if (globalVars)
+        declAST = new GlobalVarDecl((Type) o2, (Ident) o1, (Expr) o3, spanFrom(pos));
+      else
+        declAST = new LocalVarDecl((Type) o2, (Ident) o1, (Expr) o3, spanFrom(pos));
+      unfinished.add(pos);
+      append(new DeclList(declAST, new EmptyDeclList(dummyPos), pos));
+      break;
+
+    case Grammar.NO_INIT:
+    case Grammar.NO_SIZE:
+    case Grammar.EMPTY_EXPR:
+      push(new EmptyExpr(dummyPos));
+      break;
+
+    case Grammar.ARRAY_TYPE:            // P size
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ArrayType(declType, (Expr) o1, pos));
+      break;
+
+    case Grammar.SCALAR_TYPE:
+      push(declType);
+      break;
+
+    case Grammar.INT_SIZE:
+      push(new IntExpr(new IntLiteral(token.spelling, token.intValue, token.position),
+                       token.position));
+      break;
+
+    case Grammar.INIT_EXPR:             // P exprs
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new InitExpr((List) o1, pos));
+      break;
+
+    case Grammar.VOID_TYPE:             // P
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new VoidType(pos));
+      break;
+
+    case Grammar.BOOLEAN_TYPE:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new BooleanType(pos));
+      break;
+
+    case Grammar.INT_TYPE:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new IntType(pos));
+      break;
+
+    case Grammar.FLOAT_TYPE:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new FloatType(pos));
+      break;
+
+    case Grammar.IDENT:
+      push(new Ident(token.spelling, token.position));
+      break;
+
+    // -------------------- statements --------------------
+
+    case Grammar.COMPOUND_STMT:         // P decls stmts
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      if (o2 instanceof EmptyStmtList && o1 instanceof EmptyDeclList)
+        push(new EmptyCompStmt(pos));
+      else
+        push(new CompoundStmt((List) o1, (List) o2, pos));
+      break;
+
+    case Grammar.ELSE:                  // P expr stmt
+      finish((SourcePosition) peek(2));
+      break;
+
+    case Grammar.IF_ELSE_STMT:          // P expr stmt stmt
+      o3 = pop();
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      push(new IfStmt((Expr) o1, (Stmt) o2, (Stmt) o3, pos));
+      break;
+
+    case Grammar.IF_STMT:               // P expr stmt
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new IfStmt((Expr) o1, (Stmt) o2, pos));
+      break;
+
+    case Grammar.FOR_STMT:              // P expr expr expr stmt
+      o4 = pop();
+      o3 = pop();
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ForStmt((Expr) o1, (Expr) o2, (Expr) o3, (Stmt) o4, pos));
+      break;
+
+    case Grammar.WHILE_STMT:            // P expr stmt
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new WhileStmt((Expr) o1, (Stmt) o2, pos));
+      break;
+
+    case Grammar.BREAK_STMT:            // P
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new BreakStmt(pos));
+      break;
+
+    case Grammar.CONTINUE_STMT:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ContinueStmt(pos));
+      break;
+
+    case Grammar.RETURN_STMT:           // P expr
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ReturnStmt((Expr) o1, pos));
+      break;
+
+    case Grammar.EXPR_STMT:             // P expr
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ExprStmt((Expr) o1, pos));
+      break;
+
+    // -------------------- expressions --------------------
+
+    case Grammar.END_EXPR:              // P expr
+      o1 = pop();
+      pop();
+      push(o1);
+      break;
+
+    case Grammar.ASSIGN_EXPR:           // P expr expr
+      o2 = pop();
+      o1 = pop();
+      pos = spanFrom((SourcePosition) peek(0));
+      push(new AssignExpr((Expr) o1, (Expr) o2, pos));
+      break;
+
+    case Grammar.OPERATOR:
+      push(new Operator(token.spelling, token.position));
+      break;
+
+    case Grammar.BINARY_EXPR:           // P expr operator P expr
+      o3 = pop();
+      pop();
+      o2 = pop();
+      o1 = pop();
+      pos = spanFrom((SourcePosition) peek(0));
+      push(new BinaryExpr((Expr) o1, (Operator) o2, (Expr) o3, pos));
+      break;
+
+    case Grammar.UNARY_EXPR:            // P operator expr
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new UnaryExpr((Operator) o1, (Expr) o2, pos));
+      break;
+
+    case Grammar.INT_EXPR:              // P
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new IntExpr(new IntLiteral(token.spelling, token.intValue, token.position), pos));
+      break;
+
+    case Grammar.FLOAT_EXPR:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new FloatExpr(new FloatLiteral(token.spelling, token.floatValue, token.position),
+                         pos));
+      break;
+
+    case Grammar.BOOLEAN_EXPR:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new BooleanExpr(new BooleanLiteral(token.spelling, token.position), pos));
+      break;
+
+    case Grammar.STRING_EXPR:
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new StringExpr(new StringLiteral(token.spelling, token.position), pos));
+      break;
+
+    case Grammar.ARRAY_VAR:             // P ident
+      // the variable is given the position of the "["
+      push(new SimpleVar((Ident) pop(), token.position));
+      break;
+
+    case Grammar.ARRAY_EXPR:            // P var expr
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new ArrayExpr((Var) o1, (Expr) o2, pos));
+      break;
+
+    case Grammar.CALL_EXPR:             // P ident args
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new CallExpr((Ident) o1, (List) o2, pos));
+      break;
+
+    case Grammar.VAR_EXPR:              // P ident
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      finish(pos);
+      push(new VarExpr(new SimpleVar((Ident) o1, pos), pos));
+      break;
+
+    // -------------------- parameters --------------------
+
+    case Grammar.FORMALS:               // P paras
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      // an empty list of parameters spans the parentheses
+      if (o1 instanceof EmptyParaList) {
+        finish(pos);
+        o1 = new EmptyParaList(pos);
+      }
+      push(o1);
+      break;
+
+    case Grammar.PARA_TYPE:             // type ident
+      o1 = pop();
+      declType = (Type) pop();
+      push(o1);
+      break;
+
+    case Grammar.PARA_DECL:             // ListState P ident type
+      o2 = pop();
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      ParaDecl paraAST = new ParaDecl((Type) o2, (Ident) o1, spanFrom(pos));
+      unfinished.add(pos);
+      append(new ParaList(paraAST, new EmptyParaList(dummyPos), pos));
+      break;
+
+    case Grammar.ARG:                   // ListState P expr
+      o1 = pop();
+      pos = (SourcePosition) pop();
+      Arg argAST = new Arg((Expr) o1, spanFrom(pos));
+      unfinished.add(pos);
+      append(new ArgList(argAST, new EmptyArgList(dummyPos), pos));
+      break;
+    }
+  }
+
+}
@@ -0,0 +1,8 @@
+======= The VC compiler =======
+
+Pass 1: Lexical and syntactic Analysis
+ERROR: 6(9)..6(9): illegal primary expression
+ERROR: 8(1)..8(1): "x" unknown type
+ERROR: 12(21)..12(21): "}" expected here
+ERROR: 14(6)..14(6): identifier expected here
+Compilation was unsuccessful.
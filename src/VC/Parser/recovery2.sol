@@ -0,0 +1,13 @@
+======= The VC compiler =======
+
+Pass 1: Lexical and syntactic Analysis
+ERROR: 9(14)..9(14): illegal primary expression
+ERROR: 10(14)..10(14): "]" expected here
+ERROR: 11(11)..11(11): illegal primary expression
+ERROR: 13(10)..13(10): illegal primary expression
+ERROR: 15(3)..15(7): ";" expected here
+ERROR: 16(15)..16(15): ")" expected here
+ERROR: 17(6)..17(6): "(" expected here
+ERROR: 18(19)..18(19): illegal primary expression
+ERROR: 19(13)..19(13): illegal primary expression
+Compilation was unsuccessful.
@@ -0,0 +1,8 @@
+======= The VC compiler =======
+
+Pass 1: Lexical and syntactic Analysis
+ERROR: 8(3)..8(3): ";" expected here
+ERROR: 9(11)..9(11): illegal primary expression
+ERROR: 12(1)..12(1): "}" unknown type
+ERROR: 16(1)..16(1): illegal primary expression
+Compilation was unsuccessful.
@@ -1,51 +1,80 @@
 /***
  * *
- * * Recogniser.java            
+ * * Recogniser.java
  * *
  ***/
 
-/* At this stage, this parser accepts a subset of VC defined	by
- * the following grammar. 
+/* Checks that a program is in the VC language, without building an
+ * AST. It reads the tokens with Scanner.nextKind, so that no Token,
+ * spelling or SourcePosition is built for a program without errors,
+ * and accepts exactly the programs that Parser does, stopping at the
+ * first syntax error with the same message at the same position.
+ * Lexical errors are reported by the scanner as it goes.
  *
- * You need to modify the supplied parsing methods (if necessary) and 
- * add the missing ones to obtain a parser for the VC language.
- *
- * (17---March---2017)
-
-program       -> func-decl
-
-// declaration
-
-func-decl     -> void identifier "(" ")" compound-stmt
-
-identifier    -> ID
-
-// statements 
-compound-stmt -> "{" stmt* "}" 
-stmt          -> continue-stmt
-    	      |  expr-stmt
-continue-stmt -> continue ";"
-expr-stmt     -> expr? ";"
-
-// expressions 
-expr                -> assignment-expr
-assignment-expr     -> additive-expr
-additive-expr       -> multiplicative-expr
-                    |  additive-expr "+" multiplicative-expr
-multiplicative-expr -> unary-expr
-	            |  multiplicative-expr "*" unary-expr
-unary-expr          -> "-" unary-expr
-		    |  primary-expr
-
-primary-expr        -> identifier
- 		    |  INTLITERAL
-		    | "(" expr ")"
+ * It is used by "vc --syntax-only".
+
+program           -> ( func-decl | var-decl )*
+
+// declarations
+
+func-decl         -> type identifier para-list compound-stmt
+var-decl          -> type init-declarator-list ";"
+init-declarator-list -> init-declarator ( "," init-declarator )*
+init-declarator   -> declarator ( "=" initialiser )?
+declarator        -> identifier
+                  |  identifier "[" INTLITERAL? "]"
+initialiser       -> expr
+                  |  "{" expr ( "," expr )* "}"
+
+type              -> void | boolean | int | float
+identifier        -> ID
+
+// statements
+
+compound-stmt     -> "{" var-decl* stmt* "}"
+stmt              -> compound-stmt
+                  |  if-stmt
+                  |  for-stmt
+                  |  while-stmt
+                  |  break-stmt
+                  |  continue-stmt
+                  |  return-stmt
+                  |  expr-stmt
+if-stmt           -> if "(" expr ")" stmt ( else stmt )?
+for-stmt          -> for "(" expr? ";" expr? ";" expr? ")" stmt
+while-stmt        -> while "(" expr ")" stmt
+break-stmt        -> break ";"
+continue-stmt     -> continue ";"
+return-stmt       -> return expr? ";"
+expr-stmt         -> expr? ";"
+
+// expressions
+
+expr              -> assignment-expr
+assignment-expr   -> ( cond-or-expr "=" )* cond-or-expr
+cond-or-expr      -> cond-and-expr ( "||" cond-and-expr )*
+cond-and-expr     -> equality-expr ( "&&" equality-expr )*
+equality-expr     -> rel-expr ( ( "==" | "!=" ) rel-expr )*
+rel-expr          -> additive-expr ( ( "<" | "<=" | ">" | ">=" ) additive-expr )*
+additive-expr     -> multiplicative-expr ( ( "+" | "-" ) multiplicative-expr )*
+multiplicative-expr -> unary-expr ( ( "*" | "/" ) unary-expr )*
+unary-expr        -> ( "+" | "-" | "!" ) unary-expr
+                  |  primary-expr
+primary-expr      -> identifier arg-list?
+                  |  identifier "[" expr "]"
+                  |  "(" expr ")"
+                  |  INTLITERAL | FLOATLITERAL | BOOLLITERAL | STRINGLITERAL
+
+// parameters
+
+para-list         -> "(" ( para-decl ( "," para-decl )* )? ")"
+para-decl         -> type declarator
+arg-list          -> "(" ( expr ( "," expr )* )? ")"
 */
 
 package VC.Recogniser;
 
 import VC.Scanner.Scanner;
-import VC.Scanner.SourcePosition;
 import VC.Scanner.Token;
 import VC.ErrorReporter;
 
@@ -53,13 +82,19 @@ public class Recogniser {
 
   private Scanner scanner;
   private ErrorReporter errorReporter;
-  private Token currentToken;
+  private int currentKind;
 
   public Recogniser (Scanner lexer, ErrorReporter reporter) {
+    reset(lexer, reporter);
+  }
+
+  // Makes this recogniser ready to check another program.
+
+  public void reset(Scanner lexer, ErrorReporter reporter) {
     scanner = lexer;
     errorReporter = reporter;
 
-    currentToken = scanner.getToken();
+    currentKind = scanner.nextKind();
   }
 
 // match checks to see f the current token matches tokenExpected.
@@ -67,8 +102,8 @@ public class Recogniser {
 // If not, reports a syntactic error.
 
   void match(int tokenExpected) throws SyntaxError {
-    if (currentToken.kind == tokenExpected) {
-      currentToken = scanner.getToken();
+    if (currentKind == tokenExpected) {
+      currentKind = scanner.nextKind();
     } else {
       syntacticError("\"%\" expected here", Token.spell(tokenExpected));
     }
@@ -76,505 +111,381 @@ public class Recogniser {
 
  // accepts the current token and fetches the next
   void accept() {
-    currentToken = scanner.getToken();
+    currentKind = scanner.nextKind();
   }
 
+  // The spelling and the position of the current token are only built
+  // here, so callers pass scanner.tokenSpelling() only when there is
+  // an error.
+
   void syntacticError(String messageTemplate, String tokenQuoted) throws SyntaxError {
-    SourcePosition pos = currentToken.position;
-    errorReporter.reportError(messageTemplate, tokenQuoted, pos);
+    errorReporter.reportError(messageTemplate, tokenQuoted, scanner.tokenPosition());
     throw(new SyntaxError());
   }
 
 
 // ========================== PROGRAMS ========================
 
-  public void parseProgram() {
+  // Returns whether the program has no syntax errors. Lexical errors
+  // are counted by the error reporter.
+
+  public boolean parseProgram() {
 
     try {
-    	//
-    	while(currentToken.kind != Token.EOF){
-	    	parseType();
-	    	parseIdent();
-	    	if(currentToken.kind == Token.LPAREN){
-	    		parseFuncDecl();
-	    	}else{
-	    		parseVarDecl();
-	    	}
-	    	//Need check where to put LOgic not understsand
-    	}
-        if (currentToken.kind != Token.EOF) {
-            syntacticError("\"%\" wrong result type for a function", currentToken.spelling);
-        }
+      if (currentKind != Token.EOF) {
+        do {
+          parseDecl();
+        } while (isType(currentKind));
+      }
+      if (currentKind != Token.EOF)
+        syntacticError("\"%\" unknown type", scanner.tokenSpelling());
     }
-    catch (SyntaxError s) {  }
+    catch (SyntaxError s) { return false; }
+    return true;
   }
 
 // ========================== DECLARATIONS ========================
 
+  // A function or a list of global variables: type identifier "("
+  // starts a function.
+
+  void parseDecl() throws SyntaxError {
+    parseType();
+    parseIdent();
+    if (currentKind == Token.LPAREN)
+      parseFuncDecl();
+    else
+      parseVarDecl();
+  }
+
   void parseFuncDecl() throws SyntaxError {
 
     parseParaList();
     parseCompoundStmt();
   }
+
+  // The type and the identifier of the first declarator have been
+  // parsed.
+
   void parseVarDecl() throws SyntaxError {
-	  
-	  parseInitDeclaratorList();  
-	  match(Token.SEMICOLON);
+    parseInitDeclaratorList();
+    match(Token.SEMICOLON);
   }
+
   void parseInitDeclaratorList() throws SyntaxError {
-	  if(currentToken.kind == Token.LBRACKET){
-		  match(Token.LBRACKET);
-		  if(currentToken.kind == Token.INTLITERAL){
-			  parseIntLiteral();
-		  	  match(Token.RBRACKET);
-		  }else{
-			  match(Token.RBRACKET);  
-		  }
-	  } 
-	  if(currentToken.kind == Token.EQ){
-		  match(Token.EQ);
-		  parseInitialiser();
-	  }
-	  while(currentToken.kind == Token.COMMA){
-		  match(Token.COMMA);
-		  parseInitDeclarator();
-	  }
+    while (true) {
+      parseInitDeclarator();
+      if (currentKind != Token.COMMA)
+        break;
+      accept();
+      parseIdent();
+    }
   }
+
   void parseInitDeclarator() throws SyntaxError {
-	  parseDeclarator();
-	  if(currentToken.kind == Token.EQ){
-		  match(Token.EQ);
-		  parseInitialiser();
-	  }
+    parseDeclarator();
+    if (currentKind == Token.EQ) {
+      accept();
+      parseInitialiser();
+    }
   }
+
+  // The identifier has been parsed.
+
   void parseDeclarator() throws SyntaxError {
-	  parseIdent();
-	  if(currentToken.kind == Token.LBRACKET){
-		  match(Token.LBRACKET);
-		  if(currentToken.kind == Token.INTLITERAL){
-			  parseIntLiteral();
-		  	  match(Token.RBRACKET);
-		  }else{
-			  match(Token.RBRACKET);  
-		  }
-	  }  
+    if (currentKind == Token.LBRACKET) {
+      accept();
+      if (currentKind == Token.INTLITERAL)
+        parseIntLiteral();
+      match(Token.RBRACKET);
+    }
   }
+
   void parseInitialiser() throws SyntaxError {
-	  if(currentToken.kind == Token.LCURLY){
-		  match(Token.LCURLY);
-		  parseProperArgList();
-		  match(Token.RCURLY);
-	  }else{
-		  //System.out.println("Epression begin");
-		  parseExpr();
-	  }
-	  
-  }
-// =======================  Type ====================================
+    if (currentKind == Token.LCURLY) {
+      match(Token.LCURLY);
+      parseInitExprList();
+      match(Token.RCURLY);
+    } else
+      parseExpr();
+  }
+
+  void parseInitExprList() throws SyntaxError {
+    while (true) {
+      parseExpr();
+      if (currentKind != Token.COMMA)
+        break;
+      accept();
+    }
+  }
+
+// =======================  TYPES ====================================
+
+  boolean isType(int kind) {
+    return kind == Token.VOID || kind == Token.BOOLEAN
+        || kind == Token.INT || kind == Token.FLOAT;
+  }
+
   void parseType() throws SyntaxError {
-	  switch(currentToken.kind){
-	  case Token.VOID:
-		  match(Token.VOID);
-		  break;
-	  case Token.BOOLEAN:
-		  match(Token.BOOLEAN);
-		  break;
-	  case Token.INT:
-		  match(Token.INT);
-		  break;
-	  case Token.FLOAT:
-		  match(Token.FLOAT);
-		  break;
-	  default:
-		  //Should error Here?
-		  //syntacticError("primitive types expected here", "");
-		  syntacticError("\"%\" wrong result type for a function", currentToken.spelling);
-		  break;
-	  }
+    if (isType(currentKind))
+      accept();
+    else
+      syntacticError("\"%\" wrong result type for a function", scanner.tokenSpelling());
   }
+
 // ======================= STATEMENTS ==============================
 
 
   void parseCompoundStmt() throws SyntaxError {
 
-    match(Token.LCURLY);   
+    match(Token.LCURLY);
     parseVarDeclList();
-    parseStmtList();    
+    parseStmtList();
     match(Token.RCURLY);
   }
 
+  void parseVarDeclList() throws SyntaxError {
+    while (isType(currentKind)) {
+      parseType();
+      parseIdent();
+      parseVarDecl();
+    }
+  }
+
  // Here, a new nontermial has been introduced to define { stmt } *
   void parseStmtList() throws SyntaxError {
 
-    while (currentToken.kind != Token.RCURLY) 
+    while (currentKind != Token.RCURLY)
       parseStmt();
   }
 
-  void parseVarDeclList() throws SyntaxError {
-
-	    while (currentToken.kind == Token.VOID || currentToken.kind == Token.BOOLEAN
-	    		|| currentToken.kind == Token.INT || currentToken.kind == Token.FLOAT){
-	    	//System.out.println("Var-decl list");
-	    	parseType();
-	    	parseIdent();
-	    	parseVarDecl();
-	    }
-	  }
   void parseStmt() throws SyntaxError {
-	  //Not finish
-    switch (currentToken.kind) {
+    switch (currentKind) {
     case Token.LCURLY:
-    	parseCompoundStmt();
-    	break;
+      parseCompoundStmt();
+      break;
     case Token.IF:
-    	parseIfStmt();
-    	break;
+      parseIfStmt();
+      break;
     case Token.FOR:
-    	parseForStmt();
-    	break;
+      parseForStmt();
+      break;
     case Token.WHILE:
-    	parseWhileStmt();
-    	break;
+      parseWhileStmt();
+      break;
     case Token.BREAK:
-    	parseBreakStmt();
-    	break;
+      parseBreakStmt();
+      break;
     case Token.CONTINUE:
-    	parseContinueStmt();
-    	break;
+      parseContinueStmt();
+      break;
     case Token.RETURN:
-    	parseReturnStmt();
-    	break;
+      parseReturnStmt();
+      break;
     default:
-    	parseExprStmt();
-		break;
-
+      parseExprStmt();
+      break;
     }
   }
-  //If-stmt
+
   void parseIfStmt() throws SyntaxError {
+    match(Token.IF);
+    match(Token.LPAREN);
+    parseExpr();
+    match(Token.RPAREN);
+    parseStmt();
+    if (currentKind == Token.ELSE) {
+      match(Token.ELSE);
+      parseStmt();
+    }
+  }
 
-	  match(Token.IF);
-	  match(Token.LPAREN);
-	  parseExpr();
-	  match(Token.RPAREN);
-	  parseStmt();
-	  if(currentToken.kind == Token.ELSE){
-		  match(Token.ELSE);
-		  parseStmt();
-	  }
-  }
-  //For-stmt
   void parseForStmt() throws SyntaxError {
-	  match(Token.FOR);
-	  match(Token.LPAREN);
-	  if (currentToken.kind == Token.ID
-		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-		        || currentToken.kind == Token.LPAREN) {
-		        parseExpr();
-	  }
-	  match(Token.SEMICOLON);
-	  if (currentToken.kind == Token.ID
-		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-		        || currentToken.kind == Token.LPAREN) {
-		        parseExpr();
-	  }
-	  match(Token.SEMICOLON);
-	  if (currentToken.kind == Token.ID
-		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-		        || currentToken.kind == Token.LPAREN) {
-		        parseExpr();
-	  }
-	  match(Token.RPAREN);
-	  parseStmt();
-  }
-  //While-stmt
+    match(Token.FOR);
+    match(Token.LPAREN);
+    if (startsExpr(currentKind))
+      parseExpr();
+    match(Token.SEMICOLON);
+    if (startsExpr(currentKind))
+      parseExpr();
+    match(Token.SEMICOLON);
+    if (startsExpr(currentKind))
+      parseExpr();
+    match(Token.RPAREN);
+    parseStmt();
+  }
+
   void parseWhileStmt() throws SyntaxError {
-	  
-	  match(Token.WHILE);
-	  match(Token.LPAREN);
-	  parseExpr();
-	  match(Token.RPAREN);
-	  parseStmt();
-  }
-  //Break-stmt
-  void parseBreakStmt () throws SyntaxError {
-	  
-	  match(Token.BREAK);
-	  match(Token.SEMICOLON);
-  }
- //Continue-stmt
+    match(Token.WHILE);
+    match(Token.LPAREN);
+    parseExpr();
+    match(Token.RPAREN);
+    parseStmt();
+  }
+
+  void parseBreakStmt() throws SyntaxError {
+    match(Token.BREAK);
+    match(Token.SEMICOLON);
+  }
+
   void parseContinueStmt() throws SyntaxError {
 
     match(Token.CONTINUE);
     match(Token.SEMICOLON);
 
   }
-  //Return-stmt
-  void parseReturnStmt() throws SyntaxError{
-	  
-	  match(Token.RETURN);
-	  if (currentToken.kind == Token.ID
-		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-		        || currentToken.kind == Token.LPAREN) {
-		        parseExpr();
-	    } 
-	  match(Token.SEMICOLON);
-	  
-  }
-  //Expr-stmt Check ????????????????????????????????????????
+
+  void parseReturnStmt() throws SyntaxError {
+    match(Token.RETURN);
+    if (startsExpr(currentKind))
+      parseExpr();
+    match(Token.SEMICOLON);
+  }
+
   void parseExprStmt() throws SyntaxError {
-	  //Logic needs to be checked
-    if (currentToken.kind == Token.ID
-        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-        || currentToken.kind == Token.LPAREN) {
-        parseExpr();
-        match(Token.SEMICOLON);
-    } else {
-      match(Token.SEMICOLON);
-    }
+    if (startsExpr(currentKind))
+      parseExpr();
+    match(Token.SEMICOLON);
   }
 
 
 // ======================= IDENTIFIERS ======================
 
- // Call parseIdent rather than match(Token.ID). 
- // In Assignment 3, an Identifier node will be constructed in here.
-
-
   void parseIdent() throws SyntaxError {
 
-    if (currentToken.kind == Token.ID) {
-      currentToken = scanner.getToken();
-    } else 
+    if (currentKind == Token.ID) {
+      currentKind = scanner.nextKind();
+    } else
       syntacticError("identifier expected here", "");
   }
 
-// ======================= OPERATORS ======================
-
- // Call acceptOperator rather than accept(). 
- // In Assignment 3, an Operator Node will be constructed in here.
+// ======================= EXPRESSIONS ======================
 
-  void acceptOperator() throws SyntaxError {
+  // the first tokens of an expression
 
-    currentToken = scanner.getToken();
+  boolean startsExpr(int kind) {
+    return kind == Token.ID
+        || kind == Token.INTLITERAL || kind == Token.BOOLEANLITERAL
+        || kind == Token.STRINGLITERAL || kind == Token.FLOATLITERAL
+        || kind == Token.MINUS || kind == Token.PLUS || kind == Token.NOT
+        || kind == Token.LPAREN;
   }
 
+// Binary and assignment expressions are parsed by precedence climbing,
+// as in Parser: parseBinaryExpr(p) parses a unary expression followed by
+// the operators whose binding power is at least p, each with the
+// operand on its right parsed at the next higher power, or at the same
+// power for the right associative "=".
 
-// ======================= EXPRESSIONS ======================
+  private static final int ASSIGNMENT = 1;
+  private static final int[] BINDING_POWER = new int[Token.EOF + 1];
 
-  void parseExpr() throws SyntaxError {
-    parseAssignExpr();
-  }
-
-
-  void parseAssignExpr() throws SyntaxError {
-
-    //parseAdditiveExpr();
-	  parseCondORExpr();
-	  while(currentToken.kind == Token.EQ){
-		  acceptOperator();
-		  parseCondORExpr();
-	  }
-  }
-  void parseCondORExpr() throws SyntaxError {
-	  parseCondAndExpr();
-	  while(currentToken.kind == Token.OROR){
-		  acceptOperator();
-		  parseCondAndExpr();
-	  }
-  }
-  void parseCondAndExpr() throws SyntaxError {
-	  parseEqualityExpr();
-	  while(currentToken.kind == Token.ANDAND){
-		  acceptOperator();
-		  parseEqualityExpr();
-	  }
-  }
-  void parseEqualityExpr()throws SyntaxError {
-	  parseRelExpr();
-	  while(currentToken.kind == Token.EQEQ || currentToken.kind == Token.NOTEQ){
-		  acceptOperator();
-		  parseRelExpr();
-	  }
-  }
-  void parseRelExpr() throws SyntaxError {
-	  parseAdditiveExpr();
-	  while(currentToken.kind == Token.LT || currentToken.kind == Token.LTEQ
-			  || currentToken.kind == Token.GT ||currentToken.kind == Token.GTEQ){
-		  acceptOperator();
-		  parseAdditiveExpr();
-	  }
-  }
-  void parseAdditiveExpr() throws SyntaxError {
-
-    parseMultiplicativeExpr();
-    while (currentToken.kind == Token.PLUS || currentToken.kind == Token.MINUS) {
-      acceptOperator();
-      parseMultiplicativeExpr();
-    }
+  static {
+    BINDING_POWER[Token.EQ] = ASSIGNMENT;
+    BINDING_POWER[Token.OROR] = 2;
+    BINDING_POWER[Token.ANDAND] = 3;
+    BINDING_POWER[Token.EQEQ] = BINDING_POWER[Token.NOTEQ] = 4;
+    BINDING_POWER[Token.LT] = BINDING_POWER[Token.LTEQ] = 5;
+    BINDING_POWER[Token.GT] = BINDING_POWER[Token.GTEQ] = 5;
+    BINDING_POWER[Token.PLUS] = BINDING_POWER[Token.MINUS] = 6;
+    BINDING_POWER[Token.MULT] = BINDING_POWER[Token.DIV] = 7;
   }
 
-  void parseMultiplicativeExpr() throws SyntaxError {
+  void parseExpr() throws SyntaxError {
+    parseBinaryExpr(ASSIGNMENT);
+  }
 
+  void parseBinaryExpr(int power) throws SyntaxError {
     parseUnaryExpr();
-    while (currentToken.kind == Token.MULT || currentToken.kind == Token.DIV) {
-      acceptOperator();
-      parseUnaryExpr();
+    while (BINDING_POWER[currentKind] >= power) {
+      int p = BINDING_POWER[currentKind];
+      accept();
+      parseBinaryExpr(p == ASSIGNMENT ? ASSIGNMENT : p + 1);
     }
   }
 
   void parseUnaryExpr() throws SyntaxError {
-
-    switch (currentToken.kind) {
-      case Token.MINUS:
-        {
-          acceptOperator();
-          parseUnaryExpr();
-        }
-        break;
-      case Token.PLUS:
-    	  acceptOperator();
-    	  parseUnaryExpr();
-    	  break;
-      case Token.NOT:
-    	  acceptOperator();
-    	  parseUnaryExpr();
-    	  break;
-      default:
-        parsePrimaryExpr();
-        break;
-       
-    }
+    while (currentKind == Token.MINUS || currentKind == Token.PLUS
+           || currentKind == Token.NOT)
+      accept();
+    parsePrimaryExpr();
   }
 
   void parsePrimaryExpr() throws SyntaxError {
 
-    switch (currentToken.kind) {
+    switch (currentKind) {
 
       case Token.ID:
         parseIdent();
-        if(currentToken.kind == Token.LBRACKET){
-        	match(Token.LBRACKET);
-        	parseExpr();
-        	match(Token.RBRACKET);
-        }else if(currentToken.kind == Token.LPAREN){
-        	parseArgList();
-        }
+        if (currentKind == Token.LBRACKET) {
+          accept();
+          parseExpr();
+          match(Token.RBRACKET);
+        } else if (currentKind == Token.LPAREN)
+          parseArgList();
         break;
+
       case Token.LPAREN:
-		{
-		  accept();
-		  parseExpr();
-		  match(Token.RPAREN);
-		}
-		break;
-	  case Token.BOOLEANLITERAL:
-		  parseBooleanLiteral();
-		  break;
-	  case Token.FLOATLITERAL:
-		  parseFloatLiteral();
-		  break;
+        accept();
+        parseExpr();
+        match(Token.RPAREN);
+        break;
+
       case Token.INTLITERAL:
-    	  parseIntLiteral();
-    	  break;
+      case Token.FLOATLITERAL:
+      case Token.BOOLEANLITERAL:
       case Token.STRINGLITERAL:
-    	  parseStringLiteral();
-    	  break;
+        accept();
+        break;
+
       default:
-        syntacticError("illegal parimary expression", currentToken.spelling);
+        syntacticError("illegal primary expression", scanner.tokenSpelling());
         break;
-       
     }
   }
-// =========================  void ============================
-  void parseVoid() throws SyntaxError {
-	  if (currentToken.kind == Token.VOID) {
-	      currentToken = scanner.getToken();
-	    } else 
-	      syntacticError("void type expected here", "");
-  }
-// ========================== LITERALS ========================
 
-  // Call these methods rather than accept().  In Assignment 3, 
-  // literal AST nodes will be constructed inside these methods. 
+// ========================== LITERALS ========================
 
   void parseIntLiteral() throws SyntaxError {
 
-    if (currentToken.kind == Token.INTLITERAL) {
-      currentToken = scanner.getToken();
-    } else 
+    if (currentKind == Token.INTLITERAL) {
+      currentKind = scanner.nextKind();
+    } else
       syntacticError("integer literal expected here", "");
   }
 
-  void parseFloatLiteral() throws SyntaxError {
+//=========================== PARAMETERS =======================
 
-    if (currentToken.kind == Token.FLOATLITERAL) {
-      currentToken = scanner.getToken();
-    } else 
-      syntacticError("float literal expected here", "");
-  }
-
-  void parseBooleanLiteral() throws SyntaxError {
-
-    if (currentToken.kind == Token.BOOLEANLITERAL) {
-      currentToken = scanner.getToken();
-    } else 
-      syntacticError("boolean literal expected here", "");
-  }
-  void parseStringLiteral() throws SyntaxError {
-	  if (currentToken.kind == Token.STRINGLITERAL) {
-	      currentToken = scanner.getToken();
-	    } else 
-	      syntacticError("string literal expected here", "");
-  }
-//=========================== parameters =======================
   void parseParaList() throws SyntaxError {
-	  match(Token.LPAREN);
-	  if(currentToken.kind == Token.VOID || currentToken.kind == Token.BOOLEAN
-	    		|| currentToken.kind == Token.INT || currentToken.kind == Token.FLOAT){
-		  parseProperParaList();
-	  }
-	  match(Token.RPAREN);
-  }
-  void parseProperParaList() throws SyntaxError {
-	  parseParaDecl();
-	  while(currentToken.kind == Token.COMMA){
-		  match(Token.COMMA);
-		  parseParaDecl();
-	  }
+    match(Token.LPAREN);
+    if (isType(currentKind)) {
+      while (true) {
+        parseParaDecl();
+        if (currentKind != Token.COMMA)
+          break;
+        match(Token.COMMA);
+      }
+    }
+    match(Token.RPAREN);
   }
+
   void parseParaDecl() throws SyntaxError {
-	  parseType();
-	  parseDeclarator();
+    parseType();
+    parseIdent();
+    parseDeclarator();
   }
+
   void parseArgList() throws SyntaxError {
-	  match(Token.LPAREN);
-	  if (currentToken.kind == Token.ID
-		        || currentToken.kind == Token.INTLITERAL || currentToken.kind == Token.BOOLEANLITERAL 
-		        || currentToken.kind == Token.STRINGLITERAL || currentToken.kind == Token.FLOATLITERAL
-		        || currentToken.kind == Token.MINUS || currentToken.kind == Token.PLUS ||  currentToken.kind == Token.NOT
-		        || currentToken.kind == Token.LPAREN){
-		  parseProperArgList();
-	  }		  
-	  match(Token.RPAREN);  
-  }
-
-  void parseProperArgList() throws SyntaxError {
-	  parseExpr();
-	  while(currentToken.kind == Token.COMMA){
-		  match(Token.COMMA);
-		  parseExpr();
-	  }
-  }
- 
+    match(Token.LPAREN);
+    if (startsExpr(currentKind)) {
+      while (true) {
+        parseExpr();
+        if (currentKind != Token.COMMA)
+          break;
+        accept();
+      }
+    }
+    match(Token.RPAREN);
+  }
+
 }
@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+baddeclarator.vc:
+ERROR: 5(9)..5(11): "]" expected here
+[# vc #]: 1 of 1 file has errors
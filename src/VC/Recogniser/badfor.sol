@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+badfor.vc:
+ERROR: 7(21)..7(21): ";" expected here
+[# vc #]: 1 of 1 file has errors
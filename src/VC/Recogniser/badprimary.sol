@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+badprimary.vc:
+ERROR: 7(12)..7(12): illegal primary expression
+[# vc #]: 1 of 1 file has errors
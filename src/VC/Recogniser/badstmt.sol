@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+badstmt.vc:
+ERROR: 8(3)..8(5): ";" expected here
+[# vc #]: 1 of 1 file has errors
@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+badtoplevel.vc:
+ERROR: 6(1)..6(1): "i" unknown type
+[# vc #]: 1 of 1 file has errors
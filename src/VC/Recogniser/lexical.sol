@@ -0,0 +1,8 @@
+======= The VC compiler =======
+
+lexical.vc:
+ERROR: 6(11)..6(20): 2147483648: integer literal too large
+ERROR: 7(13)..7(16): 1e39: float literal too large
+ERROR: 8(15)..8(16): \q: illegal escape character
+ERROR: 9(10)..9(10): ";" expected here
+[# vc #]: 1 of 1 file has errors
@@ -0,0 +1,5 @@
+======= The VC compiler =======
+
+missingsemi.vc:
+ERROR: 6(3)..6(8): ";" expected here
+[# vc #]: 1 of 1 file has errors
@@ -0,0 +1,3 @@
+======= The VC compiler =======
+
+[# vc #]: 1 file has no syntax errors
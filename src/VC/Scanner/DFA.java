@@ -0,0 +1,79 @@
+/*
+ * DFA.java
+ *
+ * The minimized transition table built by DFAGenerator.
+ *
+ * States are numbered from 0, the start state. The input chars are
+ * mapped to a small number of classes of chars that no state tells
+ * apart, so that a transition is a single lookup:
+ *
+ *     next[state * classes + classOf(c)]
+ *
+ * which is NO_STATE if the DFA gets stuck. accept[state] is the kind
+ * of the lexeme recognised in that state (see Lexicon), or NONE.
+ */
+
+package VC.Scanner;
+
+final class DFA {
+
+  static final int NO_STATE = -1;
+  static final int NONE = Integer.MIN_VALUE;
+
+  final int states;
+  final int classes;
+  final int[] next;
+  final int[] accept;
+
+  final int[] asciiClass;
+  final int letterClass, digitClass, otherClass; // non-ASCII chars
+
+  DFA(int states, int classes, int[] next, int[] accept,
+      int[] asciiClass, int letterClass, int digitClass, int otherClass) {
+    this.states = states;
+    this.classes = classes;
+    this.next = next;
+    this.accept = accept;
+    this.asciiClass = asciiClass;
+    this.letterClass = letterClass;
+    this.digitClass = digitClass;
+    this.otherClass = otherClass;
+  }
+
+  int classOf(char c) {
+    if (c < 128)
+      return asciiClass[c];
+    else if (Character.isLetter(c))
+      return letterClass;
+    else if (Character.isLetterOrDigit(c))
+      return digitClass;
+    else
+      return otherClass;
+  }
+
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+
+    sb.append(states + " states, " + classes + " char classes\n");
+    for (int k = 0; k < classes; k++) {
+      sb.append("class " + k + ":");
+      for (int c = 0; c < 128; c++)
+        if (asciiClass[c] == k)
+          sb.append(' ').append(c > ' ' && c < 127 ? String.valueOf((char) c) : "\\" + c);
+      if (letterClass == k) sb.append(" \\L");
+      if (digitClass == k) sb.append(" \\D");
+      if (otherClass == k) sb.append(" \\U");
+      sb.append('\n');
+    }
+    for (int s = 0; s < states; s++) {
+      sb.append(s).append(':');
+      for (int k = 0; k < classes; k++)
+        sb.append(' ').append(next[s * classes + k]);
+      if (accept[s] != NONE)
+        sb.append("  accept ").append(accept[s] >= 0 ? Token.spell(accept[s]) : String.valueOf(accept[s]));
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,424 @@
+/*
+ * DFAGenerator.java
+ *
+ * Builds the scanner's DFA from the rules of Lexicon:
+ *
+ *   1. each pattern is parsed and turned into an NFA (Thompson's
+ *      construction), and the NFAs are joined by a common start state;
+ *   2. the NFA is turned into a DFA by the subset construction; a DFA
+ *      state accepts the kind of the first rule accepted by its NFA
+ *      states;
+ *   3. the DFA is minimized by refining the partition of its states by
+ *      accepted kinds until no transition tells two states apart;
+ *   4. input symbols with identical transitions are merged into classes.
+ *
+ * The input symbols are the ASCII chars 0 .. 127 and the three groups
+ * of non-ASCII chars LETTER, DIGIT and OTHER (see DFA.classOf).
+ *
+ * Running this class prints the tables.
+ */
+
+package VC.Scanner;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+final class DFAGenerator {
+
+  static final int LETTER = 128, DIGIT = 129, OTHER = 130;
+  static final int SYMBOLS = 131;
+
+  // An NFA state has at most one labelled transition, on any symbol of
+  // its label, and any number of empty transitions.
+
+  private static final class NState {
+    BitSet label;
+    int target = -1;
+    ArrayList<Integer> eps = new ArrayList<Integer>();
+    int rule = -1; // the rule accepted in this state, if any
+  }
+
+  private ArrayList<NState> nfa = new ArrayList<NState>();
+  private HashMap<String, String> macros = new HashMap<String, String>();
+
+  private String pattern;
+  private int index;
+
+  private DFAGenerator(String[][] macroDefs) {
+    for (int i = 0; i < macroDefs.length; i++)
+      macros.put(macroDefs[i][0], macroDefs[i][1]);
+  }
+
+  static DFA generate(int[] kinds, String[] patterns, String[][] macros) {
+    DFAGenerator gen = new DFAGenerator(macros);
+
+    int start = gen.newState();
+    for (int r = 0; r < patterns.length; r++) {
+      int[] frag = gen.parse(patterns[r]);
+      gen.nfa.get(start).eps.add(frag[0]);
+      gen.nfa.get(frag[1]).rule = r;
+    }
+    return gen.toDFA(start, kinds);
+  }
+
+  // ============================ Patterns ============================
+
+  private int newState() {
+    nfa.add(new NState());
+    return nfa.size() - 1;
+  }
+
+  private int[] edge(BitSet label) {
+    int from = newState(), to = newState();
+    nfa.get(from).label = label;
+    nfa.get(from).target = to;
+    return new int[] { from, to };
+  }
+
+  private void epsilon(int from, int to) {
+    nfa.get(from).eps.add(to);
+  }
+
+  // Each parse method returns an NFA fragment { start, final }.
+
+  private int[] parse(String text) {
+    String savedPattern = pattern;
+    int savedIndex = index;
+
+    pattern = text;
+    index = 0;
+    int[] frag = parseAlternation();
+    if (peek() != '\0')
+      syntaxError("unexpected " + peek());
+
+    pattern = savedPattern;
+    index = savedIndex;
+    return frag;
+  }
+
+  private char peek() {
+    while (index < pattern.length() && pattern.charAt(index) == ' ')
+      index++;
+    return index < pattern.length() ? pattern.charAt(index) : '\0';
+  }
+
+  private char take() {
+    if (index >= pattern.length())
+      syntaxError("unexpected end of pattern");
+    return pattern.charAt(index++);
+  }
+
+  private void syntaxError(String message) {
+    throw new IllegalArgumentException("Lexicon: " + message + " in " + pattern);
+  }
+
+  private int[] parseAlternation() {
+    int[] frag = parseSequence();
+
+    while (peek() == '|') {
+      index++;
+      int[] other = parseSequence();
+      int s = newState(), f = newState();
+      epsilon(s, frag[0]);
+      epsilon(s, other[0]);
+      epsilon(frag[1], f);
+      epsilon(other[1], f);
+      frag = new int[] { s, f };
+    }
+    return frag;
+  }
+
+  private int[] parseSequence() {
+    int s = newState();
+    int[] frag = { s, s };
+
+    for (char c = peek(); c != '\0' && c != '|' && c != ')'; c = peek()) {
+      int[] next = parsePostfix();
+      epsilon(frag[1], next[0]);
+      frag[1] = next[1];
+    }
+    return frag;
+  }
+
+  private int[] parsePostfix() {
+    int[] frag = parseAtom();
+
+    for (char c = peek(); c == '*' || c == '+' || c == '?'; c = peek()) {
+      index++;
+      int s = newState(), f = newState();
+      epsilon(s, frag[0]);
+      epsilon(frag[1], f);
+      if (c != '+')
+        epsilon(s, f);       // r* and r? may be skipped
+      if (c != '?')
+        epsilon(frag[1], frag[0]); // r* and r+ may be repeated
+      frag = new int[] { s, f };
+    }
+    return frag;
+  }
+
+  private int[] parseAtom() {
+    char c = peek();
+
+    switch (c) {
+    case '(': {
+      index++;
+      int[] frag = parseAlternation();
+      if (take() != ')')
+        syntaxError("missing )");
+      return frag;
+    }
+    case '{': {
+      int close = pattern.indexOf('}', index);
+      if (close < 0)
+        syntaxError("missing }");
+      String name = pattern.substring(index + 1, close);
+      String text = macros.get(name);
+      if (text == null)
+        syntaxError("undefined macro " + name);
+      index = close + 1;
+      return parse(text);
+    }
+    case '\'': {
+      index++;
+      int s = newState();
+      int[] frag = { s, s };
+      for (char ch = take(); ch != '\''; ch = take()) {
+        if (ch == '\\')
+          ch = take();
+        int[] next = edge(symbol(ch));
+        epsilon(frag[1], next[0]);
+        frag[1] = next[1];
+      }
+      return frag;
+    }
+    case '[':
+      index++;
+      return edge(parseClass());
+    default:
+      syntaxError("unexpected " + c);
+      return null;
+    }
+  }
+
+  private BitSet symbol(char c) {
+    if (c == '\0' || c >= 128)
+      syntaxError("not an ASCII char");
+    BitSet set = new BitSet(SYMBOLS);
+    set.set(c);
+    return set;
+  }
+
+  // The chars of a class are read as they are; blanks are not ignored.
+
+  private BitSet parseClass() {
+    BitSet set = new BitSet(SYMBOLS);
+    boolean negated = false;
+
+    if (index < pattern.length() && pattern.charAt(index) == '^') {
+      negated = true;
+      index++;
+    }
+    for (char c = take(); c != ']'; c = take()) {
+      if (c == '\\') {
+        c = take();
+        switch (c) {
+        case 'n': c = '\n'; break;
+        case 't': c = '\t'; break;
+        case 'L': set.set(LETTER); continue;
+        case 'D': set.set(DIGIT); continue;
+        case 'U': set.set(OTHER); continue;
+        }
+      }
+      char last = c;
+      if (index + 1 < pattern.length() && pattern.charAt(index) == '-'
+          && pattern.charAt(index + 1) != ']') {
+        index++;
+        last = take();
+        if (last == '\\')
+          last = take();
+      }
+      if (c == '\0' || last >= 128 || last < c)
+        syntaxError("bad char range");
+      set.set(c, last + 1);
+    }
+    if (negated)
+      set.flip(1, SYMBOLS); // the eof char stays out
+    return set;
+  }
+
+  // ======================= Subset construction ======================
+
+  private BitSet closure(BitSet states) {
+    BitSet result = (BitSet) states.clone();
+    int[] stack = new int[nfa.size()];
+    int top = 0;
+
+    for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+      stack[top++] = s;
+    while (top > 0) {
+      NState state = nfa.get(stack[--top]);
+      for (int i = 0; i < state.eps.size(); i++) {
+        int t = state.eps.get(i);
+        if (!result.get(t)) {
+          result.set(t);
+          stack[top++] = t;
+        }
+      }
+    }
+    return result;
+  }
+
+  private DFA toDFA(int start, int[] kinds) {
+    ArrayList<BitSet> sets = new ArrayList<BitSet>();
+    HashMap<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+    ArrayList<int[]> trans = new ArrayList<int[]>();
+
+    BitSet first = new BitSet();
+    first.set(start);
+    first = closure(first);
+    sets.add(first);
+    ids.put(first, 0);
+
+    for (int d = 0; d < sets.size(); d++) {
+      BitSet[] moves = new BitSet[SYMBOLS];
+      BitSet set = sets.get(d);
+      for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+        NState state = nfa.get(s);
+        if (state.label == null)
+          continue;
+        for (int a = state.label.nextSetBit(0); a >= 0; a = state.label.nextSetBit(a + 1)) {
+          if (moves[a] == null)
+            moves[a] = new BitSet();
+          moves[a].set(state.target);
+        }
+      }
+      int[] row = new int[SYMBOLS];
+      for (int a = 0; a < SYMBOLS; a++) {
+        if (moves[a] == null) {
+          row[a] = DFA.NO_STATE;
+          continue;
+        }
+        BitSet target = closure(moves[a]);
+        Integer id = ids.get(target);
+        if (id == null) {
+          id = sets.size();
+          sets.add(target);
+          ids.put(target, id);
+        }
+        row[a] = id;
+      }
+      trans.add(row);
+    }
+
+    int n = sets.size();
+    int[] accept = new int[n];
+    for (int d = 0; d < n; d++) {
+      int rule = Integer.MAX_VALUE;
+      BitSet set = sets.get(d);
+      for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+        if (nfa.get(s).rule >= 0 && nfa.get(s).rule < rule)
+          rule = nfa.get(s).rule;
+      accept[d] = rule == Integer.MAX_VALUE ? DFA.NONE : kinds[rule];
+    }
+    return minimize(trans, accept);
+  }
+
+  // ========================== Minimization ==========================
+
+  private static DFA minimize(ArrayList<int[]> trans, int[] accept) {
+    int n = accept.length;
+    int[] block = new int[n];
+    int blocks = 0;
+
+    HashMap<Integer, Integer> byKind = new HashMap<Integer, Integer>();
+    for (int d = 0; d < n; d++) {
+      Integer b = byKind.get(accept[d]);
+      if (b == null) {
+        b = blocks++;
+        byKind.put(accept[d], b);
+      }
+      block[d] = b;
+    }
+
+    // Blocks are numbered in the order of their first state, so the
+    // start state is always in block 0.
+    while (true) {
+      HashMap<String, Integer> signatures = new HashMap<String, Integer>();
+      int[] refined = new int[n];
+      for (int d = 0; d < n; d++) {
+        StringBuffer sig = new StringBuffer();
+        sig.append(block[d]);
+        int[] row = trans.get(d);
+        for (int a = 0; a < SYMBOLS; a++)
+          sig.append(',').append(row[a] == DFA.NO_STATE ? -1 : block[row[a]]);
+        String key = sig.toString();
+        Integer b = signatures.get(key);
+        if (b == null) {
+          b = signatures.size();
+          signatures.put(key, b);
+        }
+        refined[d] = b;
+      }
+      boolean stable = signatures.size() == blocks;
+      block = refined;
+      blocks = signatures.size();
+      if (stable)
+        break;
+    }
+
+    int[][] rows = new int[blocks][];
+    int[] minAccept = new int[blocks];
+    for (int d = 0; d < n; d++) {
+      if (rows[block[d]] != null)
+        continue;
+      int[] row = new int[SYMBOLS];
+      for (int a = 0; a < SYMBOLS; a++) {
+        int t = trans.get(d)[a];
+        row[a] = t == DFA.NO_STATE ? DFA.NO_STATE : block[t];
+      }
+      rows[block[d]] = row;
+      minAccept[block[d]] = accept[d];
+    }
+    return compress(rows, minAccept);
+  }
+
+  // ======================== Symbol classes ==========================
+
+  private static DFA compress(int[][] rows, int[] accept) {
+    int states = rows.length;
+    int[] classOf = new int[SYMBOLS];
+    ArrayList<Integer> representative = new ArrayList<Integer>();
+    HashMap<String, Integer> columns = new HashMap<String, Integer>();
+
+    for (int a = 0; a < SYMBOLS; a++) {
+      StringBuffer col = new StringBuffer();
+      for (int s = 0; s < states; s++)
+        col.append(rows[s][a]).append(',');
+      Integer k = columns.get(col.toString());
+      if (k == null) {
+        k = representative.size();
+        representative.add(a);
+        columns.put(col.toString(), k);
+      }
+      classOf[a] = k;
+    }
+
+    int classes = representative.size();
+    int[] next = new int[states * classes];
+    for (int s = 0; s < states; s++)
+      for (int k = 0; k < classes; k++)
+        next[s * classes + k] = rows[s][representative.get(k)];
+
+    int[] asciiClass = new int[128];
+    System.arraycopy(classOf, 0, asciiClass, 0, 128);
+    return new DFA(states, classes, next, accept, asciiClass,
+                   classOf[LETTER], classOf[DIGIT], classOf[OTHER]);
+  }
+
+  public static void main(String[] args) {
+    System.out.print(generate(Lexicon.kinds, Lexicon.patterns, Lexicon.macros));
+  }
+
+}
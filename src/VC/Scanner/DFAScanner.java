@@ -0,0 +1,410 @@
+/*
+ * DFAScanner.java
+ *
+ * A table-driven scanner for VC. It recognises the same tokens as
+ * Scanner, with the same spellings, positions and error messages, but
+ * runs the DFA that DFAGenerator builds from Lexicon instead of
+ * hand-written code: each lexeme is the longest prefix of the input on
+ * which the DFA stops in an accepting state.
+ *
+ * Running this class on VC programs compares it with Scanner.
+ */
+
+package VC.Scanner;
+
+import VC.ErrorReporter;
+
+public final class DFAScanner implements TokenSource {
+
+  private static final DFA dfa =
+    DFAGenerator.generate(Lexicon.kinds, Lexicon.patterns, Lexicon.macros);
+
+  private SourceFile sourceFile;
+  private ErrorReporter errorReporter;
+  private boolean debug;
+
+  private int pos;                 // offset of the next lexeme
+  private LineMap lineMap;         // the lines started so far
+  private int runStart;            // see Scanner.skipSpaceAndComments
+  private int eofCount;
+
+  // A scanner may be limited to the lines from pos up to limit, see
+  // ParallelScanner. It then stops with an EOF token at limit, which is
+  // not the end of the program, and may be left inside a comment.
+  // runStart is then -1 while it lies before the first line, and
+  // entryColumn is its column.
+  private int limit;
+  private boolean inComment;
+  private int commentLine, entryColumn;
+
+  // the current token, as in Scanner
+  private int tokenKind, tokenStart, tokenEnd;
+  private StringBuffer stringValue;  // the translated string literal
+  private int tokenIntValue;
+  private float tokenFloatValue;
+
+  public DFAScanner(SourceFile source, ErrorReporter reporter) {
+    sourceFile = source;
+    errorReporter = reporter;
+    debug = false;
+    pos = 0;
+    lineMap = new LineMap(source, 1, 0, false);
+    runStart = 0;
+    eofCount = 0;
+    stringValue = new StringBuffer();
+    limit = source.length();
+    inComment = false;
+  }
+
+  // Scans the lines from offset start, the first of which is numbered
+  // line, up to offset end. If inComment, they start inside a comment
+  // for which an unterminated comment is reported at commentLine and
+  // commentColumn.
+
+  DFAScanner(SourceFile source, ErrorReporter reporter, int start, int end, int line,
+             boolean inComment, int commentLine, int commentColumn) {
+    this(source, reporter);
+    this.pos = start;
+    this.limit = end;
+    this.lineMap = new LineMap(source, line, start, inComment);
+    this.inComment = inComment;
+    this.commentLine = commentLine;
+    if (inComment) {
+      runStart = -1;
+      entryColumn = commentColumn;
+    } else
+      runStart = start;
+  }
+
+  public LineMap lineMap() {
+    return lineMap;
+  }
+
+  // Whether the last EOF token was returned at the limit rather than at
+  // the end of the program
+
+  boolean atLimit() {
+    return tokenKind == Token.EOF && atLimitAt(pos);
+  }
+
+  // Where to report the comment the scanner stopped in, if it does not
+  // end before the end of the program
+
+  boolean inComment() {
+    return inComment;
+  }
+
+  int commentLine() {
+    return commentLine;
+  }
+
+  int commentColumn() {
+    return runColumn();
+  }
+
+  private int runColumn() {
+    return runStart < 0 ? entryColumn : lineMap.column(runStart);
+  }
+
+  public void enableDebugging() {
+    debug = true;
+  }
+
+  // Returns the end of the longest lexeme at pos and sets lexemeKind to
+  // its kind, or returns pos if no lexeme starts there.
+
+  private int lexemeKind;
+
+  private int longestMatch() {
+    int[] next = dfa.next;
+    int[] accept = dfa.accept;
+    int classes = dfa.classes;
+    int state = 0;
+    int end = pos;
+    lexemeKind = DFA.NONE;
+
+    for (int i = pos; i < limit; i++) {
+      state = next[state * classes + dfa.classOf(sourceFile.charAt(i))];
+      if (state == DFA.NO_STATE)
+        break;
+      if (accept[state] != DFA.NONE) {
+        lexemeKind = accept[state];
+        end = i + 1;
+      }
+    }
+    return end;
+  }
+
+  // Moves over the chars of a blank or a comment, recording the lines
+  // that start in them.
+
+  private void advance(int end, boolean comment) {
+    for (int i = pos; i < end; i++)
+      if (sourceFile.charAt(i) == '\n')
+        lineMap.addLine(i + 1, comment);
+    pos = end;
+  }
+
+  // Reports an error from offset start to offset finish (inclusive).
+
+  private void reportError(String message, int start, int finish) {
+    errorReporter.reportError(message, "", lineMap.position(start, finish + 1));
+  }
+
+  private boolean atLimitAt(int offset) {
+    return offset >= limit && offset < sourceFile.length()
+        && sourceFile.charAt(offset) != SourceFile.eof;
+  }
+
+  // Skips the rest of a comment that started before pos, up to the
+  // first star followed by a slash.
+
+  private void skipRestOfComment() {
+    int end = pos;
+
+    while (end < limit && sourceFile.charAt(end) != SourceFile.eof) {
+      if (sourceFile.charAt(end) == '*' && end + 1 < limit && sourceFile.charAt(end + 1) == '/') {
+        end += 2;
+        inComment = false;
+        break;
+      }
+      end++;
+    }
+    if (inComment && !atLimitAt(end)) {
+      errorReporter.reportError(": unterminated comment", "",
+                                new SourcePosition(commentLine, entryColumn, entryColumn));
+      inComment = false;
+    }
+    advance(end, true);
+  }
+
+  public int nextKind() {
+    stringValue.setLength(0);
+
+    while (true) {
+      if (inComment)
+        skipRestOfComment();
+      if (pos >= limit || sourceFile.charAt(pos) == SourceFile.eof) {
+        tokenKind = Token.EOF;
+        tokenStart = tokenEnd = pos;
+        if (!atLimitAt(pos))
+          eofCount++;
+        break;
+      }
+
+      int end = longestMatch();
+      int kind = lexemeKind;
+
+      if (kind == Lexicon.WHITESPACE) {
+        advance(end, false);
+        runStart = end;
+        continue;
+      } else if (kind == Lexicon.LINE_COMMENT) {
+        pos = end;
+        continue;
+      } else if (kind == Lexicon.COMMENT) {
+        advance(end, true);
+        continue;
+      } else if (kind == Lexicon.UNTERMINATED_COMMENT) {
+        int column = runColumn();
+        if (end == limit && atLimitAt(end)) {
+          // the comment may end after the limit
+          inComment = true;
+          commentLine = lineMap.line(pos);
+          entryColumn = column;
+          runStart = -1;
+        } else
+          errorReporter.reportError(": unterminated comment", "",
+                                    new SourcePosition(lineMap.line(pos), column, column));
+        advance(end, true);
+        continue;
+      }
+
+      if (kind == DFA.NONE) {
+        end = pos + 1;      // an illegal char
+        kind = Token.ERROR;
+      } else if (kind == Token.ID)
+        kind = Token.identifierKind(sourceFile, pos, end);
+
+      tokenStart = pos;
+      tokenEnd = end;
+
+      if (kind == Token.STRINGLITERAL || kind == Lexicon.UNTERMINATED_STRING) {
+        translateString();
+        kind = Token.STRINGLITERAL;
+      }
+      tokenKind = kind;
+      if (kind == Token.INTLITERAL || kind == Token.FLOATLITERAL)
+        decodeLiteral();
+
+      runStart = end;
+      pos = end;
+      break;
+    }
+    return tokenKind;
+  }
+
+  // Translates the escape sequences of the string literal from
+  // tokenStart to tokenEnd into stringValue, reporting illegal escape
+  // sequences and a missing closing quote as Scanner does.
+
+  private void translateString() {
+    for (int i = tokenStart + 1; i < tokenEnd; i++) {
+      char c = sourceFile.charAt(i);
+      if (c == '"')
+        return;
+      if (c == '\\') {
+        char e = sourceFile.charAt(i + 1);
+        char value;
+        switch (e) {
+        case 'b':  value = '\b'; break;
+        case 'f':  value = '\f'; break;
+        case 'n':  value = '\n'; break;
+        case 'r':  value = '\r'; break;
+        case 't':  value = '\t'; break;
+        case '\'': value = '\''; break;
+        case '"':  value = '"'; break;
+        case '\\': value = '\\'; break;
+        default:
+          stringValue.append(c);
+          reportError("\\" + e + ": illegal escape character", tokenStart, i);
+          continue;
+        }
+        stringValue.append(value);
+        i++;
+      } else
+        stringValue.append(c);
+    }
+    reportError(stringValue + ": unterminated string", tokenStart, tokenStart);
+  }
+
+  // Decodes the value of the current int or float literal, so that the
+  // later phases need not parse its spelling, and reports a literal
+  // that is out of range. The value of such a literal is 0.
+
+  private void decodeLiteral() {
+    if (tokenKind == Token.INTLITERAL) {
+      tokenIntValue = Token.intValue(sourceFile, tokenStart, tokenEnd);
+      if (tokenIntValue < 0) {
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": integer literal too large",
+                    tokenStart, tokenEnd - 1);
+        tokenIntValue = 0;
+      }
+    } else {
+      tokenFloatValue = Token.floatValue(sourceFile, tokenStart, tokenEnd);
+      if (Float.isInfinite(tokenFloatValue)) {
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": float literal too large",
+                    tokenStart, tokenEnd - 1);
+        tokenFloatValue = 0;
+      } else if (tokenFloatValue == 0 && Token.isNonzero(sourceFile, tokenStart, tokenEnd))
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": float literal too small",
+                    tokenStart, tokenEnd - 1);
+    }
+  }
+
+  public int tokenKind() {
+    return tokenKind;
+  }
+
+  public int tokenStart() {
+    return tokenStart;
+  }
+
+  public int tokenEnd() {
+    return tokenEnd;
+  }
+
+  public String tokenSpelling() {
+    if (tokenKind == Token.EOF)
+      return Token.spell(Token.EOF);
+    else if (tokenKind == Token.STRINGLITERAL)
+      return stringValue.toString();
+    else
+      return sourceFile.substring(tokenStart, tokenEnd);
+  }
+
+  // The value of the current token if it is an int or a float literal
+
+  public int tokenIntValue() {
+    return tokenIntValue;
+  }
+
+  public float tokenFloatValue() {
+    return tokenFloatValue;
+  }
+
+  public SourcePosition tokenPosition() {
+    if (tokenKind == Token.EOF) {
+      int column = lineMap.column(tokenStart) + eofCount - 1;
+      return new SourcePosition(lineMap.line(tokenStart), column, column);
+    }
+    return lineMap.position(tokenStart, tokenEnd);
+  }
+
+  public Token getToken() {
+    Token tok = new Token(nextKind(), tokenSpelling(), tokenPosition());
+    tok.intValue = tokenIntValue;
+    tok.floatValue = tokenFloatValue;
+
+    if (debug)
+      System.out.println(tok);
+    return tok;
+  }
+
+  // ====================== Checking against Scanner ======================
+
+  // Scans each file with both scanners and reports the first token or
+  // error message on which they differ.
+
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.out.println("Usage: java VC.Scanner.DFAScanner filename ...");
+      System.exit(1);
+    }
+
+    boolean ok = true;
+    for (int i = 0; i < args.length; i++) {
+      StringBuffer expectedErrors = new StringBuffer();
+      StringBuffer actualErrors = new StringBuffer();
+      Scanner expected = new Scanner(new SourceFile(args[i]), collector(expectedErrors));
+      DFAScanner actual = new DFAScanner(new SourceFile(args[i]), collector(actualErrors));
+
+      String result = null;
+      while (true) {
+        String e = describe(expected.nextKind(), expected.tokenStart(), expected.tokenEnd(),
+                            expected.tokenSpelling(), expected.tokenPosition());
+        String a = describe(actual.nextKind(), actual.tokenStart(), actual.tokenEnd(),
+                            actual.tokenSpelling(), actual.tokenPosition());
+        if (!e.equals(a)) {
+          result = "expected " + e + " but found " + a;
+          break;
+        }
+        if (!expectedErrors.toString().equals(actualErrors.toString())) {
+          result = "expected errors\n" + expectedErrors + "but found\n" + actualErrors;
+          break;
+        }
+        if (expected.tokenKind() == Token.EOF)
+          break;
+      }
+      if (result != null)
+        ok = false;
+      System.out.println(args[i] + ": " + (result == null ? "OK" : result));
+    }
+    System.exit(ok ? 0 : 1);
+  }
+
+  private static String describe(int kind, int start, int end, String spelling,
+                                 SourcePosition pos) {
+    return Token.spell(kind) + " [" + start + "," + end + ") \"" + spelling + "\" " + pos;
+  }
+
+  private static ErrorReporter collector(final StringBuffer errors) {
+    return new ErrorReporter() {
+      public void reportError(String message, String tokenName, SourcePosition pos) {
+        errors.append(pos).append(' ').append(message).append('\n');
+        numErrors++;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,361 @@
+/*
+ * IncrementalScanner.java
+ *
+ * Brings the tokens of a program up to date after an edit, scanning
+ * again only the lines around it.
+ *
+ * The tokens of a line only depend on the line and on whether it
+ * starts inside a comment, which the line map records (see
+ * ParallelScanner). So the scan restarts at the start of the line in
+ * which the edit starts, or, if that line starts inside a comment, of
+ * the line in which the comment starts. It stops at the first line
+ * start after the edit that is also a line start of the old program,
+ * not inside a comment in either. The old tokens from there on are
+ * the same, only moved by the chars and lines inserted or removed.
+ * The lines are scanned in chunks that double in size, so the work is
+ * proportional to the lines that have really changed.
+ *
+ * The tokens of the unedited program are those of ParallelScanner.scan.
+ * The program, its line map and its TokenArray are edited in place.
+ * Each keeps a gap, which is first moved to where the scan restarts,
+ * and what comes after the gap is kept from the end, so it moves with
+ * the edit. So the chars, lines and tokens that are copied are the ones
+ * between the old place of the gap and the new one, and the ones that
+ * are replaced, rather than all those of the program.
+ */
+
+package VC.Scanner;
+
+import java.util.Random;
+
+import VC.ErrorReporter;
+
+public final class IncrementalScanner {
+
+  // The result of rescan: the tokens firstToken to firstToken+newCount-1
+  // of tokens have replaced the oldCount tokens from firstToken on that
+  // it had before. The tokens before them are the same, and so are the
+  // ones after them, apart from their offsets.
+
+  public static final class Result {
+    public TokenArray tokens;
+    public int firstToken, oldCount, newCount;
+  }
+
+  // Replaces the count chars from offset on of the program of tokens by
+  // text, and brings tokens up to date.
+
+  public static Result rescan(TokenArray tokens, int offset, int count, String text) {
+    SourceFile source = tokens.sourceFile();
+    LineMap lines = tokens.lineMap();
+
+    int first = lines.index(offset);
+    while (first > 0 && lines.startsInComment(first))
+      first--;
+    int restart = lines.start(first);
+    int from = firstTokenAt(tokens, 0, restart);
+
+    // From here on the lines from first on, and the tokens from from on,
+    // are those of the old program moved by the chars inserted or removed.
+    lines.moveGap(first);
+    tokens.moveGap(from);
+    int inserted = source.edit(offset, count, text);
+    int length = source.length();
+
+    int line = lines.firstLine() + first;
+    boolean inComment = false;
+    int commentLine = 0, commentColumn = 0;
+
+    TokenArray middle = null;
+    LineMap middleLines = null;
+    int resume = -1;  // the index of the old line from which the old tokens are kept
+    int start = restart;
+    int end = offset + inserted;
+
+    while (true) {
+      end = Math.min(Math.max(end, start + 1), length);
+      while (end < length && source.charAt(end - 1) != '\n')
+        end++;
+
+      ParallelScanner.Chunk chunk = new ParallelScanner.Chunk(start, end);
+      chunk.scan(source, line, inComment, commentLine, commentColumn);
+      if (middle == null) {
+        middle = chunk.tokens;
+        middleLines = chunk.lineMap;
+      } else {
+        middle.append(chunk.tokens, 0);
+        middleLines.append(chunk.lineMap);
+      }
+      if (chunk.atEnd)
+        break;
+      line += chunk.lines;
+      inComment = chunk.inComment;
+      commentLine = chunk.commentLine;
+      commentColumn = chunk.commentColumn;
+
+      if (!inComment) {
+        int k = firstLineAt(lines, first, end);
+        if (k < lines.lineCount() && lines.start(k) == end && !lines.startsInComment(k)) {
+          resume = k;
+          break;
+        }
+      }
+      start = end;
+      end = start + (start - restart);
+    }
+
+    int to = tokens.size();
+    int lastLine = lines.lineCount() - 1;
+    if (resume >= 0) {
+      to = firstTokenAt(tokens, from, lines.start(resume));
+      lastLine = resume;
+    }
+
+    lines.replace(first, lastLine, middleLines);
+    tokens.replace(from, to, middle);
+    Result result = new Result();
+    result.tokens = tokens;
+    result.firstToken = from;
+    result.oldCount = to - from;
+    result.newCount = middle.size();
+    return result;
+  }
+
+  // the index of the first token from token lo on that starts at or
+  // after offset
+
+  private static int firstTokenAt(TokenArray tokens, int lo, int offset) {
+    int hi = tokens.size() - 1;
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (tokens.start(mid) < offset)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  // the index of the first line from line lo on that starts at or after
+  // offset, or lineCount() if there is none
+
+  private static int firstLineAt(LineMap lines, int lo, int offset) {
+    int hi = lines.lineCount();
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (lines.start(mid) < offset)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  // ==================== Checking against ParallelScanner ===================
+
+  // Edits each file and checks that rescan gives the tokens, errors and
+  // line starts that ParallelScanner.scan gives for the edited program.
+  // Each fragment below is inserted at the start and end of the program,
+  // at a few offsets in between and at every line end, and each line
+  // end, comment delimiter and quote is deleted, all on the program as
+  // it is: each of these edits is undone by another rescan, which must
+  // give the tokens of the program again. Then the given number of
+  // random edits, of the fragments or of random chars, are made one
+  // after the other, each on the result of the one before.
+  //
+  //   java VC.Scanner.IncrementalScanner [-edits n] [-seed n] filename ...
+
+  private static final String[] FRAGMENTS = {
+    "/*", "*/", "/* a\n b */", "//", "// c\n", "\"", "\"s\"", "\"\\", "\\\"",
+    "\n", "\n\n", " ", "\t", "x", "1", "1.", "e5", ".5", "==", "&", "{", "}", ";"
+  };
+
+  private static final String CHARS = "/*\"\\\n\t .e19xif=&|;{}";
+
+  public static void main(String[] args) {
+    int edits = 1000;
+    long seed = 9102;
+    int i = 0;
+
+    while (i + 1 < args.length && args[i].startsWith("-")) {
+      if (args[i].equals("-edits"))
+        edits = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-seed"))
+        seed = Long.parseLong(args[i + 1]);
+      else
+        break;
+      i += 2;
+    }
+    if (i == args.length || args[i].startsWith("-")) {
+      System.out.println("Usage: java VC.Scanner.IncrementalScanner [-edits n] [-seed n] "
+                         + "filename ...");
+      System.exit(1);
+    }
+
+    boolean ok = true;
+    for (; i < args.length; i++) {
+      TokenArray tokens = ParallelScanner.scan(new SourceFile(args[i]));
+      String result = checkEdits(tokens);
+      if (result == null)
+        result = checkRandomEdits(tokens, edits, new Random(seed));
+      if (result != null)
+        ok = false;
+      System.out.println(args[i] + ": " + (result == null ? "OK" : result));
+    }
+    System.exit(ok ? 0 : 1);
+  }
+
+  // The edits made on the program as it is. Returns the first that
+  // rescan gets wrong, or null.
+
+  private static String checkEdits(TokenArray tokens) {
+    SourceFile source = tokens.sourceFile();
+    int length = source.length();
+    String original = describe(tokens);
+
+    for (int f = 0; f < FRAGMENTS.length; f++) {
+      String text = FRAGMENTS[f];
+      for (int k = 0; k <= 8; k++) {
+        String result = checkUndone(tokens, original, length * k / 8, 0, text);
+        if (result != null)
+          return result;
+      }
+      for (int offset = 0; offset < length; offset++)
+        if (source.charAt(offset) == '\n') {
+          String result = checkUndone(tokens, original, offset, 0, text);
+          if (result != null)
+            return result;
+        }
+    }
+
+    for (int offset = 0; offset < length; offset++) {
+      char c = source.charAt(offset);
+      char d = source.charAt(offset + 1);
+      String result = null;
+      if (c == '\n' || c == '"')
+        result = checkUndone(tokens, original, offset, 1, "");
+      else if ((c == '/' && (d == '*' || d == '/')) || (c == '*' && d == '/'))
+        result = checkUndone(tokens, original, offset, 2, "");
+      if (result != null)
+        return result;
+    }
+
+    if (length > 0) {
+      String result = checkUndone(tokens, original, length - 1, 1, "");
+      if (result == null)
+        result = checkUndone(tokens, original, 0, length, "");
+      if (result == null)
+        result = checkUndone(tokens, original, 0, length, source.substring(0, length));
+      if (result != null)
+        return result;
+    }
+    return null;
+  }
+
+  // Edits made one after the other. Returns the first that rescan gets
+  // wrong, or null.
+
+  private static String checkRandomEdits(TokenArray tokens, int edits, Random random) {
+    for (int e = 0; e < edits; e++) {
+      int length = tokens.sourceFile().length();
+      int offset = random.nextInt(length + 1);
+      int count = random.nextInt(Math.min(length - offset, 8) + 1);
+      String text;
+      if (random.nextBoolean())
+        text = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+      else {
+        StringBuffer b = new StringBuffer();
+        for (int n = random.nextInt(6); n > 0; n--)
+          b.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        text = b.toString();
+      }
+
+      String result = check(tokens, offset, count, text);
+      if (result != null)
+        return "after " + e + " random edits, " + result;
+    }
+    return null;
+  }
+
+  // Replaces the count chars from offset on of the program of tokens by
+  // text with rescan. Returns null if that gives the tokens that
+  // ParallelScanner.scan gives for the edited program, or else how they
+  // differ.
+
+  private static String check(TokenArray tokens, int offset, int count, String text) {
+    TokenArray expected = ParallelScanner.scan(tokens.sourceFile().replace(offset, count, text));
+    rescan(tokens, offset, count, text);
+    return differ(edit(offset, count, text), describe(expected), describe(tokens));
+  }
+
+  // As check, and then puts back the chars replaced with rescan, which
+  // must give the tokens described by original.
+
+  private static String checkUndone(TokenArray tokens, String original,
+                                    int offset, int count, String text) {
+    SourceFile source = tokens.sourceFile();
+    String replaced = source.substring(offset, offset + count);
+    int length = source.length();
+
+    String result = check(tokens, offset, count, text);
+    if (result != null)
+      return result;
+    int inserted = source.length() - length + count;
+    rescan(tokens, offset, inserted, replaced);
+    return differ(edit(offset, count, text) + "then back: ", original, describe(tokens));
+  }
+
+  private static String edit(int offset, int count, String text) {
+    return "replacing " + count + " chars at " + offset + " by \"" + escape(text) + "\": ";
+  }
+
+  // null if the descriptions e, expected, and a, found, are the same,
+  // or else the first line in which they differ
+
+  private static String differ(String edit, String e, String a) {
+    if (!e.equals(a)) {
+      int i = 0;
+      while (i < e.length() && i < a.length() && e.charAt(i) == a.charAt(i))
+        i++;
+      int from = e.lastIndexOf('\n', i) + 1;
+      int eEnd = e.indexOf('\n', i), aEnd = a.indexOf('\n', i);
+      return edit + "expected " + e.substring(from, eEnd < 0 ? e.length() : eEnd)
+             + " but found " + a.substring(from, aEnd < 0 ? a.length() : aEnd);
+    }
+    return null;
+  }
+
+  // The tokens and errors of tokens, as a reader hands them out, and the
+  // starts of its lines, one to a line.
+
+  private static String describe(TokenArray tokens) {
+    final StringBuffer b = new StringBuffer();
+    TokenSource reader = tokens.reader(new ErrorReporter() {
+      public void reportError(String message, String tokenName, SourcePosition pos) {
+        b.append("error ").append(pos).append(' ').append(message).append(' ')
+         .append(tokenName).append('\n');
+      }
+    });
+
+    for (int i = 0; i < tokens.size(); i++) {
+      Token tok = reader.getToken();
+      b.append(Token.spell(tok.kind)).append(" [").append(tokens.start(i)).append(',')
+       .append(tokens.end(i)).append(") \"").append(escape(tok.spelling)).append("\" ")
+       .append(tok.position).append(' ').append(tok.intValue).append(' ')
+       .append(tok.floatValue).append('\n');
+    }
+    LineMap lines = tokens.lineMap();
+    for (int k = 0; k < lines.lineCount(); k++)
+      b.append("line ").append(lines.firstLine() + k).append(" at ").append(lines.start(k))
+       .append(lines.startsInComment(k) ? " in a comment" : "").append('\n');
+    return b.toString();
+  }
+
+  private static String escape(String s) {
+    return s.replace("\\", "\\\\").replace("\n", "\\n").replace("\t", "\\t")
+            .replace("\"", "\\\"");
+  }
+
+}
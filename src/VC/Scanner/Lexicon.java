@@ -0,0 +1,128 @@
+/*
+ * Lexicon.java
+ *
+ * The lexical specification of VC, from which DFAGenerator builds the
+ * transition table run by DFAScanner.
+ *
+ * Each rule pairs a token kind with a regular expression. When several
+ * rules match the longest possible lexeme, the one listed first wins.
+ * Reserved words and boolean literals are matched as identifiers and
+ * told apart afterwards by Token.identifierKind.
+ *
+ * Regular expressions are written as follows (blanks are ignored):
+ *
+ *   'abc'        the literal string abc (use \' and \\ inside quotes)
+ *   [a-z_]       a char class; [^...] is its complement
+ *   {name}       a macro defined below
+ *   r s, r | s, r*, r+, r?, (r)
+ *
+ * Inside a char class, \n, \t, \\, \], \- and \^ stand for themselves,
+ * and \L, \D and \U stand for every non-ASCII char for which
+ * Character.isLetter holds, for which only Character.isLetterOrDigit
+ * holds, and for which neither holds. The eof char '\u0000' belongs to
+ * no class, so that it ends every lexeme.
+ */
+
+package VC.Scanner;
+
+final class Lexicon {
+
+  // Kinds of lexemes that are not tokens. They are either skipped by
+  // the scanner or turned into tokens after an error has been reported.
+
+  static final int
+    WHITESPACE           = -2,
+    LINE_COMMENT         = -3,
+    COMMENT              = -4,
+    UNTERMINATED_COMMENT = -5,
+    UNTERMINATED_STRING  = -6;
+
+  static final String[][] macros = {
+    { "letter",   "[a-zA-Z_\\L]" },
+    { "digit",    "[0-9]" },
+    { "digits",   "{digit}+" },
+    { "exponent", "[eE] [+\\-]? {digits}" },
+    // a char of a string literal, or an escape sequence; an illegal
+    // escape sequence such as \c is reported by the scanner
+    { "schar",    "[^\"\\\\\\n] | '\\\\' [^\\n]" },
+    // the body of a comment, up to the stars of its terminating "*/"
+    { "cbody",    "( [^*] | '*'+ [^*/] )*" },
+  };
+
+  static final int[] kinds = {
+    WHITESPACE,
+    LINE_COMMENT,
+    COMMENT,
+    UNTERMINATED_COMMENT,
+
+    Token.ID,
+    Token.INTLITERAL,
+    Token.FLOATLITERAL,
+    Token.STRINGLITERAL,
+    UNTERMINATED_STRING,
+
+    Token.PLUS,
+    Token.MINUS,
+    Token.MULT,
+    Token.DIV,
+    Token.NOT,
+    Token.NOTEQ,
+    Token.EQ,
+    Token.EQEQ,
+    Token.LT,
+    Token.LTEQ,
+    Token.GT,
+    Token.GTEQ,
+    Token.ANDAND,
+    Token.OROR,
+    Token.ERROR,   // a single & or |
+
+    Token.LCURLY,
+    Token.RCURLY,
+    Token.LPAREN,
+    Token.RPAREN,
+    Token.LBRACKET,
+    Token.RBRACKET,
+    Token.SEMICOLON,
+    Token.COMMA,
+  };
+
+  static final String[] patterns = {
+    "[ \\t\\n]+",
+    "'//' [^\\n]*",
+    "'/*' {cbody} '*'+ '/'",
+    "'/*' {cbody} '*'*",
+
+    "{letter} ( {letter} | [0-9\\D] )*",
+    "{digits}",
+    "{digits} '.' {digit}* {exponent}? | '.' {digits} {exponent}? | {digits} {exponent}",
+    "'\"' {schar}* '\"'",
+    "'\"' {schar}* '\\\\'?",
+
+    "'+'",
+    "'-'",
+    "'*'",
+    "'/'",
+    "'!'",
+    "'!='",
+    "'='",
+    "'=='",
+    "'<'",
+    "'<='",
+    "'>'",
+    "'>='",
+    "'&&'",
+    "'||'",
+    "[&|]",
+
+    "'{'",
+    "'}'",
+    "'('",
+    "')'",
+    "'['",
+    "']'",
+    "';'",
+    "','",
+  };
+
+}
@@ -0,0 +1,281 @@
+/*
+ * LineMap.java
+ *
+ * The offsets at which the lines of a program start, recorded by the
+ * scanner as it passes each line terminator, from which the line and
+ * column of any offset are computed when they are asked for. Tokens
+ * themselves only carry their offsets.
+ *
+ * Lines are found by binary search. Columns are counted from the start
+ * of the line the way the scanner has always counted them:
+ *
+ *   - a tab outside a string literal moves to the next tab stop
+ *     (the columns 9, 17, 25, ...), and counts as 1 inside one;
+ *   - the chars of a // comment take no columns;
+ *   - any other char takes one column.
+ *
+ * Since whether a line starts inside a comment cannot be seen from the
+ * line itself, the scanner records that too.
+ *
+ * Counting columns walks along the line. A walker remembers where it
+ * stopped, so that asking for the columns of the tokens of a line in
+ * order walks along the line once. A walker is not thread-safe; each
+ * thread should use its own (see walker).
+ *
+ * The line starts are kept with a gap, as SourceFile keeps its chars,
+ * so that IncrementalScanner can replace the lines around an edit in
+ * place. The starts of the lines after the gap are kept as offsets from
+ * the end of the program, which the edit moves, so that they need not
+ * be changed when chars are inserted or removed before them.
+ */
+
+package VC.Scanner;
+
+public final class LineMap {
+
+  private SourceFile sourceFile;
+  private int firstLine;
+  private int count;
+  private int[] starts;
+  private boolean[] inComment;
+  private int gapStart, gapEnd; // the gap, as indices into starts
+
+  private Walker walker; // used by line, column and position
+
+  // A map whose first line, numbered firstLine, starts at offset start.
+
+  LineMap(SourceFile source, int firstLine, int start, boolean startsInComment) {
+    starts = new int[64];
+    inComment = new boolean[64];
+    walker = new Walker();
+    reset(source, firstLine, start, startsInComment);
+  }
+
+  // Empties the map for another program, keeping its storage.
+
+  void reset(SourceFile source, int firstLine, int start, boolean startsInComment) {
+    sourceFile = source;
+    this.firstLine = firstLine;
+    count = 0;
+    gapStart = 0;
+    gapEnd = starts.length;
+    addLine(start, startsInComment);
+    walker.line = -1;
+  }
+
+  void addLine(int start, boolean startsInComment) {
+    if (gapStart < count)
+      moveGap(count);
+    insert(start, startsInComment);
+  }
+
+  // Adds a line at the start of the gap.
+
+  private void insert(int start, boolean startsInComment) {
+    if (gapStart == gapEnd) {
+      int after = starts.length - gapEnd;
+      int[] s = new int[starts.length * 2];
+      boolean[] c = new boolean[s.length];
+      System.arraycopy(starts, 0, s, 0, gapStart);
+      System.arraycopy(inComment, 0, c, 0, gapStart);
+      System.arraycopy(starts, gapEnd, s, s.length - after, after);
+      System.arraycopy(inComment, gapEnd, c, s.length - after, after);
+      starts = s;
+      inComment = c;
+      gapEnd = s.length - after;
+    }
+    starts[gapStart] = start;
+    inComment[gapStart] = startsInComment;
+    gapStart++;
+    count++;
+  }
+
+  // Moves the gap to before the line of the given index, changing the
+  // starts of the lines it passes from offsets from the end of the
+  // program to offsets from its start, or the other way round.
+
+  void moveGap(int index) {
+    int length = sourceFile.length();
+
+    while (gapStart > index) {
+      gapStart--;
+      gapEnd--;
+      starts[gapEnd] = starts[gapStart] - length;
+      inComment[gapEnd] = inComment[gapStart];
+    }
+    while (gapStart < index) {
+      starts[gapStart] = starts[gapEnd] + length;
+      inComment[gapStart] = inComment[gapEnd];
+      gapStart++;
+      gapEnd++;
+    }
+  }
+
+  // Appends the lines of other, which must start where this map ends.
+
+  void append(LineMap other) {
+    for (int i = 1; i < other.count; i++)
+      addLine(other.start(i), other.startsInComment(i));
+  }
+
+  // Replaces the lines of index from to to (inclusive) by the lines of
+  // middle, which starts where line from starts. middle must end where
+  // the line after to starts, if there is one. The gap must have been
+  // moved to line from before the program was edited, and the lines
+  // after to are then those of the edited program.
+
+  void replace(int from, int to, LineMap middle) {
+    gapEnd += to + 1 - from;
+    count -= to + 1 - from;
+    for (int i = 0; i < middle.count; i++)
+      insert(middle.start(i), middle.startsInComment(i));
+    walker.line = -1;
+  }
+
+  public int lineCount() {
+    return count;
+  }
+
+  public int firstLine() {
+    return firstLine;
+  }
+
+  public int lastLine() {
+    return firstLine + count - 1;
+  }
+
+  public int line(int offset) {
+    return firstLine + index(offset);
+  }
+
+  public int column(int offset) {
+    return walker.column(offset);
+  }
+
+  // The position of the token from start to end (exclusive).
+
+  public SourcePosition position(int start, int end) {
+    return walker.position(start, end);
+  }
+
+  public Walker walker() {
+    return new Walker();
+  }
+
+  // the offset at which the line of the given index starts, and
+  // whether it starts inside a comment
+
+  int start(int index) {
+    if (index < gapStart)
+      return starts[index];
+    else
+      return starts[index + gapEnd - gapStart] + sourceFile.length();
+  }
+
+  boolean startsInComment(int index) {
+    return inComment[index < gapStart ? index : index + gapEnd - gapStart];
+  }
+
+  // the index of the line in which offset lies
+
+  int index(int offset) {
+    int lo = 0, hi = gapStart - 1;
+
+    if (gapStart < count && (gapStart == 0 || offset >= start(gapStart))) {
+      // it lies in a line after the gap, whose start is kept from the end
+      lo = gapEnd;
+      hi = gapEnd + count - gapStart - 1;
+      offset -= sourceFile.length();
+    }
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= offset)
+        lo = mid;
+      else
+        hi = mid - 1;
+    }
+    return lo < gapStart ? lo : lo - (gapEnd - gapStart);
+  }
+
+  public final class Walker {
+
+    private static final int CODE = 0, STRING = 1, COMMENT = 2, LINE_COMMENT = 3;
+
+    private int line = -1;   // the index of the line walked along
+    private int offset;      // where the walk stopped
+    private int column;      // the column at offset
+    private int state;       // what the walk is inside at offset
+
+    private Walker() {
+    }
+
+    public int column(int target) {
+      int i = index(target);
+      boolean resume = true;
+
+      if (i != line || target < offset) {
+        line = i;
+        offset = start(i);
+        column = 1;
+        state = startsInComment(i) ? COMMENT : CODE;
+      }
+      while (offset < target) {
+        char c = sourceFile.charAt(offset);
+        // a pair of chars such as "/*" is only taken together if the
+        // walk does not stop between them, in which case it must not
+        // be resumed from there
+        char d = SourceFile.eof;
+        if (offset + 1 < target)
+          d = sourceFile.charAt(offset + 1);
+        else if (c == '/' || c == '*' || c == '\\')
+          resume = false;
+
+        switch (state) {
+        case CODE:
+          if (c == '"')
+            state = STRING;
+          else if (c == '/' && d == '*') {
+            state = COMMENT;
+            offset++;
+            column++;
+          } else if (c == '/' && d == '/')
+            state = LINE_COMMENT;
+          break;
+        case STRING:
+          if (c == '"')
+            state = CODE;
+          else if (c == '\\' && d != SourceFile.eof) {
+            offset++;
+            column++;
+          }
+          break;
+        case COMMENT:
+          if (c == '*' && d == '/') {
+            state = CODE;
+            offset++;
+            column++;
+          }
+          break;
+        }
+
+        if (state == LINE_COMMENT)
+          ; // takes no columns
+        else if (c == '\t' && state != STRING)
+          column = column + 8 - column % 8 + 1;
+        else
+          column++;
+        offset++;
+      }
+      int result = column;
+      if (!resume)
+        line = -1;
+      return result;
+    }
+
+    public SourcePosition position(int start, int end) {
+      int col = column(start);
+      return new SourcePosition(line(start), col, col + (end - start) - 1);
+    }
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * ParallelScanner.java
+ *
+ * Scans a large program on several threads and returns its tokens in a
+ * TokenArray, with the same positions, spellings and errors as if it
+ * had been scanned by one DFAScanner.
+ *
+ * The program is cut into chunks of whole lines, which are scanned in
+ * parallel on a ForkJoinPool. A token never spans two lines, so the
+ * only thing a chunk needs to know about the chunks before it is
+ * whether it starts inside a comment. Each chunk is first scanned on
+ * the guess that it does not, with its lines numbered from 1. The
+ * chunks are then joined in order: the line maps of the chunks are
+ * joined into one, the errors in a chunk whose guess was right are
+ * moved down by the lines before it, and a chunk that turns out to
+ * start inside a comment is scanned again.
+ */
+
+package VC.Scanner;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+public final class ParallelScanner {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20; // chars
+
+  // the lines from start to end, see also IncrementalScanner
+
+  static final class Chunk {
+    int start, end;
+    TokenArray tokens;
+    LineMap lineMap;
+    int lines;             // the number of lines the chunk ends after
+    boolean inComment;     // whether it ends inside a comment
+    int commentLine, commentColumn;
+    boolean atEnd;         // whether it reached the end of the program
+
+    Chunk(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    void scan(SourceFile source, int line, boolean inComment,
+              int commentLine, int commentColumn) {
+      TokenArray tokens = new TokenArray(source, null, (end - start) / 8);
+      DFAScanner scanner = new DFAScanner(source, tokens.errorCollector(), start, end,
+                                          line, inComment, commentLine, commentColumn);
+      while (true) {
+        int kind = scanner.nextKind();
+        if (kind == Token.EOF && scanner.atLimit())
+          break;
+        tokens.add(scanner);
+        if (kind == Token.EOF)
+          break;
+      }
+      this.tokens = tokens;
+      lineMap = scanner.lineMap();
+      atEnd = !scanner.atLimit();
+      lines = lineMap.lineCount() - 1;
+      this.inComment = scanner.inComment();
+      this.commentLine = scanner.commentLine();
+      this.commentColumn = scanner.commentColumn();
+    }
+  }
+
+  private static final class ScanChunks extends RecursiveAction {
+    private SourceFile source;
+    private Chunk[] chunks;
+    private int from, to;
+
+    ScanChunks(SourceFile source, Chunk[] chunks, int from, int to) {
+      this.source = source;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to - from == 1)
+        chunks[from].scan(source, 1, false, 0, 0);
+      else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ScanChunks(source, chunks, from, mid),
+                  new ScanChunks(source, chunks, mid, to));
+      }
+    }
+  }
+
+  public static TokenArray scan(SourceFile source) {
+    return scan(source, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  public static TokenArray scan(SourceFile source, ForkJoinPool pool, int chunkSize) {
+    Chunk[] chunks = split(source, chunkSize);
+
+    pool.invoke(new ScanChunks(source, chunks, 0, chunks.length));
+
+    int size = 0;
+    for (int i = 0; i < chunks.length; i++)
+      size += chunks[i].tokens.size();
+
+    LineMap lines = new LineMap(source, 1, 0, false);
+    TokenArray result = new TokenArray(source, lines, size);
+    int line = 1;
+    boolean inComment = false;
+    int commentLine = 0, commentColumn = 0;
+
+    for (int i = 0; i < chunks.length; i++) {
+      Chunk chunk = chunks[i];
+      int shift = line - 1;
+      if (inComment) {
+        chunk.scan(source, line, true, commentLine, commentColumn);
+        shift = 0;
+      }
+      lines.append(chunk.lineMap);
+      result.append(chunk.tokens, shift);
+      if (chunk.atEnd)
+        break;
+      line += chunk.lines;
+      inComment = chunk.inComment;
+      commentLine = chunk.commentLine + shift;
+      commentColumn = chunk.commentColumn;
+    }
+    return result;
+  }
+
+  // Cuts the program after the first line terminator at or after every
+  // multiple of chunkSize.
+
+  private static Chunk[] split(SourceFile source, int chunkSize) {
+    ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+    int length = source.length();
+    int start = 0;
+
+    while (start < length) {
+      int end = Math.min(start + Math.max(chunkSize, 1), length);
+      while (end < length && source.charAt(end - 1) != '\n')
+        end++;
+      chunks.add(new Chunk(start, end));
+      start = end;
+    }
+    if (chunks.isEmpty())
+      chunks.add(new Chunk(0, 0));
+    return chunks.toArray(new Chunk[chunks.size()]);
+  }
+
+}
@@ -5,33 +5,61 @@
 package VC.Scanner;
 
 import VC.ErrorReporter;
+import VC.NamePool;
 
-public final class Scanner { 
+public final class Scanner implements TokenSource {
 
   private SourceFile sourceFile;
   private boolean debug;
 
   private ErrorReporter errorReporter;
+  private NamePool names;
   private StringBuffer currentSpelling;
   private char currentChar;
-  private SourcePosition sourcePos;
-  private int cur_line, finish_line, cur_column_start, cur_column_finish;
-  private int spell_len;
+
+  // Lines and columns are not counted as the chars are read. Instead,
+  // the start of each line is recorded in lineMap, from which the
+  // position of a token is computed when it is asked for.
+  private LineMap lineMap;
+  private int runStart; // see skipSpaceAndComments
+  private int eofCount; // the number of EOF tokens returned
+
+  // the current token of the token stream, see nextKind
+  private int tokenKind, tokenStart, tokenEnd;
+  private int tokenName; // the id of an identifier in names
+  private int tokenIntValue;
+  private float tokenFloatValue;
 // =========================================================
 
   public Scanner(SourceFile source, ErrorReporter reporter) {
+    currentSpelling = new StringBuffer();
+    debug = false;
+    reset(source, reporter, null);
+  }
+
+  // Identifiers are entered into names, and the pooled String is
+  // used as their spelling.
+
+  public Scanner(SourceFile source, ErrorReporter reporter, NamePool names) {
+    this(source, reporter);
+    this.names = names;
+  }
+
+  // Makes this scanner ready to scan another program, reusing its
+  // buffers. The line map of the last program is reused too.
+
+  public void reset(SourceFile source, ErrorReporter reporter, NamePool names) {
     sourceFile = source;
     errorReporter = reporter;
+    this.names = names;
     currentChar = sourceFile.getNextChar();
-    debug = false;
-    //sourcePos = new SourcePosition(1, 1, 1);
-    // you may initialise your counters for line and column numbers here
-    cur_line = 1;
-    finish_line =1;
-    cur_column_start = 1;
-    cur_column_finish = 1;
-    spell_len = 0;
-    sourcePos = new SourcePosition(1,1,1);
+    if (lineMap == null)
+      lineMap = new LineMap(source, 1, 0, false);
+    else
+      lineMap.reset(source, 1, 0, false);
+    runStart = 0;
+    eofCount = 0;
+    currentSpelling.setLength(0);
   }
 
   public void enableDebugging() {
@@ -44,11 +72,6 @@ public final class Scanner {
 	currentSpelling.append(currentChar);
 	
     currentChar = sourceFile.getNextChar();
-    cur_column_finish = cur_column_finish+1;
-  // you may save the lexeme of the current token incrementally here
-  // you may also increment your line and column counters here
-    
-    
   }
 
   // inspectChar returns the n-th character after currentChar
@@ -244,7 +267,6 @@ public final class Scanner {
 
     case '"':
     	currentChar = sourceFile.getNextChar();
-        cur_column_finish = cur_column_finish+1;
     	escape = false;
     	char temp;
     	//int flag_s = 1;
@@ -259,87 +281,66 @@ public final class Scanner {
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;   			
     			case 'f':
     				temp = '\f';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			case 'n':
     				temp = '\n';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			case 'r':
     				temp = '\r';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			case 't': 
     				temp = '\t';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			case '\'':
     				temp = '\'';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			case '\"':
     				temp = '\"';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;	
     			case '\\':
     				temp = '\\';
     				currentSpelling.append(temp);
     				currentChar = sourceFile.getNextChar();
     			    currentChar = sourceFile.getNextChar();
-    			    cur_column_finish = cur_column_finish+2;    				
     				break;
     			default:
     				accept();
     				String error = "\\"+ String.valueOf(currentChar);
-    				sourcePos.lineStart = cur_line;
-            		sourcePos.lineFinish = cur_line;
-            		sourcePos.charStart = cur_column_start;
-            		sourcePos.charFinish = cur_column_finish-1;
-            		errorReporter.reportError(error+": illegal escape character", "", sourcePos);
+    				reportError(error+": illegal escape character", tokenStart, sourceFile.position() - 2);
     			}
     			break;
         	case '"':
         		currentChar = sourceFile.getNextChar();
-        	    cur_column_finish = cur_column_finish+1;
     			escape = true;
     			return Token.STRINGLITERAL;
         	case SourceFile.eof:
         		escape = true;
-        		sourcePos.lineStart = cur_line;
-        		sourcePos.lineFinish = cur_line;
-        		sourcePos.charStart = cur_column_start;
-        		sourcePos.charFinish = cur_column_start;
-        		errorReporter.reportError(currentSpelling+": unterminated string", "", sourcePos);
+        		reportError(currentSpelling+": unterminated string", tokenStart, tokenStart);
         		return Token.STRINGLITERAL;
         	case '\n':
         		escape = true;
-        		sourcePos.lineStart = cur_line;
-        		sourcePos.lineFinish = cur_line;
-        		sourcePos.charStart = cur_column_start;
-        		sourcePos.charFinish = cur_column_start;
-        		errorReporter.reportError(currentSpelling+": unterminated string", "", sourcePos);
+        		reportError(currentSpelling+": unterminated string", tokenStart, tokenStart);
         		return Token.STRINGLITERAL;
         	default:
         		//System.out.println("now is: "+currentChar);
@@ -351,26 +352,16 @@ public final class Scanner {
     // ....
     case SourceFile.eof:	
 		currentSpelling.append(Token.spell(Token.EOF));
-		cur_column_finish = cur_column_start+1;
 		return Token.EOF;
     default:
     	if(Character.isLetter(currentChar)|| currentChar == '_'){
+    		int start = sourceFile.position() - 1;
     		accept();
     		while(Character.isLetterOrDigit(currentChar) || currentChar == '_') {
 				accept();
 			}
-    		//Check keywords:  int float ....
-    		for(int i = 0; i <= 10; i++) {
-    			if(Token.spell(i).equals(currentSpelling)) {
-    				return i;
-    			}
-    		}
-    		//Check boolean-literal: true false
-    		if(currentSpelling.toString().equals("true") || currentSpelling.toString().equals("false")) {
-    			return Token.BOOLEANLITERAL;
-    		} else {
-    			return Token.ID;
-    		}
+    		//keywords, boolean-literals (true false) and identifiers
+    		return Token.identifierKind(sourceFile, start, sourceFile.position() - 1);
     	}else{
     		//Other conditions which are error
     		break;
@@ -425,165 +416,175 @@ public final class Scanner {
 		}	
 	  return flag;
   }
+  // runStart is the offset whose column is reported for an
+  // unterminated comment: the end of the last token or blank before
+  // the comment, or of the line terminator that ended the last line.
+  // A closed comment does not move it.
+  //
+  // Blanks, comment bodies and line comments are skipped with the bulk
+  // scans of SourceFile, which find the next char of interest in the
+  // source buffer without reading the chars before it one by one. The
+  // only chars looked at one by one are the line terminators, each of
+  // which starts a line in lineMap.
+
   void skipSpaceAndComments() {
-	  //Comments case 1: /* */ case 2:// (case: /* .....? )(case: / .....)
-	  //space: case 1: ' '; case 2: '\n'; case 3: '\t'
-	  //flag = 1, case: /* .....
-	  //flag = 0, new begin with any 
-	  //flag = 2 terminal of comments
-	  int flag = 0;
-	  while(flag != 2  ){
-		  switch (currentChar) {
-		  case '/':
-			  //System.out.println("Check / begin");
-			  if(flag == 1){
-				  currentChar = sourceFile.getNextChar();
-				  cur_column_finish = cur_column_finish + 1;
-			  }else{
-				  switch(inspectChar(1)){
-				  case '*':
-					  //System.out.println("begin *: "+currentChar);
-					  currentChar = sourceFile.getNextChar();
-					  currentChar = sourceFile.getNextChar();
-					  cur_column_finish = cur_column_finish + 2; 
-					  while(currentChar != '*' && currentChar != '\u0000' && currentChar != '\n' && currentChar != '\t'){
-						  
-						  currentChar = sourceFile.getNextChar();
-						  cur_column_finish = cur_column_finish + 1;
-						  //System.out.println("inside begin *: "+currentChar);
-						  
-						  
-					  }
-					  //System.out.println("After *: "+cur_column);
-					  flag = 1;
-					  break;
-				  case '/':
-					  while(currentChar!='\n'&& currentChar != '\u0000'){
-						  currentChar = sourceFile.getNextChar();
-						  
-					  }
-					  break;
-				  default:
-					  flag = 2;
-					  break;
-				  }
-			  }  
-			  break;
-		  case '\n':
-			  //System.out.println("ii");
-			  while(currentChar == '\n'){
-				  currentChar = sourceFile.getNextChar();
-				  if(flag == 1){
-					  finish_line = finish_line+1;
-					  cur_column_finish = 1;
-				  }else{
-					  cur_line = cur_line+1;
-					  finish_line = cur_line;
-					  cur_column_start = 1;
-					  cur_column_finish = 1;
-				  }
-				  
-			  } 
+	  int p = sourceFile.position() - 1; // the offset of currentChar
+	  boolean inComment = false;
+	  int commentStart = 0;
 
-			  break;
-		  case ' ':
-			  while(currentChar == ' '){
-				  currentChar = sourceFile.getNextChar();
-				  cur_column_finish = cur_column_finish + 1;
-				  if(flag != 1){
-					  cur_column_start = cur_column_finish;
-				  }
-			  }
-			  //System.out.println("This is end of space: "+currentChar);
-			  break;
-		  case '\t':
-			  while(currentChar == '\t'){
-				  currentChar = sourceFile.getNextChar();
-				  cur_column_finish = cur_column_finish+8-cur_column_finish%8+1;  
-
-				  if(flag != 1){
-					  cur_column_start = cur_column_finish;
-				  }
+	  while (true) {
+		  char c = sourceFile.charAt(p);
+		  if (c == ' ' || c == '\t') {
+			  p = sourceFile.skipBlanks(p);
+			  if (!inComment)
+				  runStart = p;
+		  } else if (c == '\n') {
+			  while (sourceFile.charAt(p) == '\n') {
+				  p++;
+				  lineMap.addLine(p, inComment);
 			  }
+			  if (!inComment)
+				  runStart = p;
+		  } else if (inComment) {
+			  if (c == '*' && sourceFile.charAt(p + 1) == '/') {
+				  p += 2;
+				  inComment = false;
+			  } else if (c == SourceFile.eof) {
+				  int column = lineMap.column(runStart);
+				  errorReporter.reportError(": unterminated comment", "",
+				      new SourcePosition(lineMap.line(commentStart), column, column));
+				  break;
+			  } else
+				  p = sourceFile.indexOf(p + 1, '*', '\n');
+		  } else if (c == '/' && sourceFile.charAt(p + 1) == '*') {
+			  commentStart = p;
+			  p = sourceFile.indexOf(p + 2, '*', '\n');
+			  inComment = true;
+		  } else if (c == '/' && sourceFile.charAt(p + 1) == '/') {
+			  p = sourceFile.indexOf(p + 2, '\n', '\n');
+		  } else
 			  break;
-		  case '*':
-			  // case 1: */  case 2: *? ----------error if the end--------0
-			  if(flag == 1){
-				  if(inspectChar(1) == '/' ){
-					  currentChar = sourceFile.getNextChar();
-					  currentChar = sourceFile.getNextChar();
-					  cur_column_finish = cur_column_finish + 2;
-					  cur_line = finish_line;
-					  //System.out.println(cur_column);
-					  flag = 0;
-				  }else{
-					  currentChar = sourceFile.getNextChar();
-					  cur_column_finish = cur_column_finish + 1;
-				  }
-			  }else{
-				  flag = 2;
-			  }		  
-			  break;
-		  case SourceFile.eof:
-			  if(flag == 1){
-				  //System.out.println("Error :"+currentChar);
-				  //cur_line = finish_line;
-				  sourcePos.lineStart = cur_line;
-				  sourcePos.lineFinish = cur_line;
-				  sourcePos.charStart = cur_column_start;
-				  sourcePos.charFinish = cur_column_start;
-				  errorReporter.reportError(": unterminated comment", "", sourcePos);
-			  }
-			  cur_line = finish_line;
-			  flag = 2;
-			  break;
-		  default:
-			  if(flag == 1){
-				  currentChar = sourceFile.getNextChar();
-				  cur_column_finish = cur_column_finish + 1;
-			  }else{
-				  flag = 2;
-			  }
-			  break;
-		  }  
 	  }
+	  currentChar = sourceFile.moveTo(p);
+  }
+
+  // Reports an error in the token being scanned, from offset start to
+  // offset finish (inclusive).
+
+  private void reportError(String message, int start, int finish) {
+    errorReporter.reportError(message, "", lineMap.position(start, finish + 1));
+  }
+
+  // The token stream: nextKind scans the next token and returns its
+  // kind, without allocating a Token, a String or a SourcePosition.
+  // The offsets of the current token in the source buffer are given
+  // by tokenStart and tokenEnd (exclusive). Its spelling and position
+  // are only built when tokenSpelling and tokenPosition are called,
+  // and each call returns a fresh object. They are valid until the
+  // next call to nextKind.
+
+  public int nextKind() {
+    currentSpelling.setLength(0);
+    runStart = sourceFile.position() - 1;
+    skipSpaceAndComments();
 
+    tokenStart = sourceFile.position() - 1;
+    tokenKind = nextToken();
+    tokenEnd = sourceFile.position() - 1;
+
+    if (tokenKind == Token.ID && names != null)
+      tokenName = names.id(sourceFile, tokenStart, tokenEnd);
+    else if (tokenKind == Token.INTLITERAL || tokenKind == Token.FLOATLITERAL)
+      decodeLiteral();
+    else if (tokenKind == Token.EOF)
+      eofCount++;
+    return tokenKind;
+  }
+
+  // Decodes the value of the current int or float literal, so that the
+  // later phases need not parse its spelling, and reports a literal
+  // that is out of range. The value of such a literal is 0.
+
+  private void decodeLiteral() {
+    if (tokenKind == Token.INTLITERAL) {
+      tokenIntValue = Token.intValue(sourceFile, tokenStart, tokenEnd);
+      if (tokenIntValue < 0) {
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": integer literal too large",
+                    tokenStart, tokenEnd - 1);
+        tokenIntValue = 0;
+      }
+    } else {
+      tokenFloatValue = Token.floatValue(sourceFile, tokenStart, tokenEnd);
+      if (Float.isInfinite(tokenFloatValue)) {
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": float literal too large",
+                    tokenStart, tokenEnd - 1);
+        tokenFloatValue = 0;
+      } else if (tokenFloatValue == 0 && Token.isNonzero(sourceFile, tokenStart, tokenEnd))
+        reportError(sourceFile.substring(tokenStart, tokenEnd) + ": float literal too small",
+                    tokenStart, tokenEnd - 1);
+    }
+  }
+
+  public int tokenKind() {
+    return tokenKind;
+  }
+
+  public int tokenStart() {
+    return tokenStart;
+  }
+
+  public int tokenEnd() {
+    return tokenEnd;
+  }
+
+  // The lexeme, with escape sequences in string literals translated
+
+  public String tokenSpelling() {
+    if (tokenKind == Token.ID && names != null)
+      return names.name(tokenName);
+    return currentSpelling.toString();
+  }
+
+  // The value of the current token if it is an int or a float literal
+
+  public int tokenIntValue() {
+    return tokenIntValue;
+  }
+
+  public float tokenFloatValue() {
+    return tokenFloatValue;
+  }
+
+  public SourcePosition tokenPosition() {
+    if (tokenKind == Token.EOF) {
+      // each EOF token is one column further on
+      int column = lineMap.column(tokenStart) + eofCount - 1;
+      return new SourcePosition(lineMap.line(tokenStart), column, column);
+    }
+    return lineMap.position(tokenStart, tokenEnd);
+  }
+
+  // The lines of the program scanned so far
+
+  public LineMap lineMap() {
+    return lineMap;
   }
 
   public Token getToken() {
     Token tok;
     int kind;
-    //System.out.println("This is a new getToken process");
-    //System.out.println("This is currentChar: "+currentChar);
-    // skip white space and comments
-    currentSpelling = new StringBuffer("");
-   skipSpaceAndComments();
-   cur_column_start = cur_column_finish;
-
-   
-
-   
-
-   // You must record the position of the current token somehow
-   
-   
-   
-   kind = nextToken();
-   
-   sourcePos.lineStart = cur_line;
-   sourcePos.lineFinish = cur_line;
-   sourcePos.charStart = cur_column_start;
-   sourcePos.charFinish = cur_column_finish-1;
-
-   tok = new Token(kind, currentSpelling.toString(), sourcePos);
-   spell_len = currentSpelling.length();
-   cur_column_start = cur_column_finish;
-   
-   // * do not remove these three lines
-   if (debug)
-     System.out.println(tok);
-   return tok;
-   
-   }
-  
+
+    // Every token gets its own SourcePosition, so the parser can keep
+    // a reference to it without copying.
+    kind = nextKind();
+    tok = new Token(kind, tokenSpelling(), tokenPosition());
+    tok.intValue = tokenIntValue;
+    tok.floatValue = tokenFloatValue;
+
+    // * do not remove these three lines
+    if (debug)
+      System.out.println(tok);
+    return tok;
+  }
+
 }
@@ -1,59 +1,489 @@
 /*
- * SourceFile.java                   
+ * SourceFile.java
  */
 
 package VC.Scanner;
 
-import java.io.FileReader;
-import java.io.BufferedReader;
-import java.io.LineNumberReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class SourceFile {
 
   static final char eof = '\u0000';
-  private LineNumberReader reader;
+
+  // The whole program is memory-mapped and decoded into one buffer
+  // when the file is opened, so that getNextChar and inspectChar are
+  // plain index reads. Line terminators are normalised to '\n' in the
+  // same way as LineNumberReader used to do it.
+  //
+  // The buffer is a byte array holding each char in two bytes, little
+  // endian, read through the views chars and words: a char is one
+  // element of chars, and four chars are one long of words, so that
+  // skipBlanks and indexOf can look at four chars at a time.
+  //
+  // The buffer is a gap buffer, so that edit can replace chars in place
+  // (see IncrementalScanner). The chars from offset gapStart on are
+  // kept after a gap of unused room, which edit moves to where it
+  // replaces chars, copying only the chars between the old and the new
+  // place. A program that has not been edited has its gap at the end.
+  //
+  // FileReader decodes with the platform charset, and so do we. But
+  // if the charset encodes the ASCII chars as themselves, as nearly all
+  // do, the runs of ASCII bytes (found eight at a time) are widened to
+  // chars directly, while line terminators are normalised, and only
+  // the bytes in between go through the charset decoder.
+
+  private static final Charset charset = Charset.defaultCharset();
+  private static final boolean asciiCompatible = isAsciiCompatible(charset);
+
+  // the most bytes a program can have: the buffer holds two bytes for
+  // each char, and no byte is decoded to more than one char
+  private static final int MAX_SIZE = (Integer.MAX_VALUE - 8) / 2;
+
+  private static final VarHandle chars =
+      MethodHandles.byteArrayViewVarHandle(char[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle words =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private byte[] buffer;  // the chars, two bytes each
+  private int length;     // in chars
+  private int gapStart, gapEnd; // the gap, as indices into the buffer in chars
+  private int pos; // index of the next char to be returned by getNextChar
 
   public SourceFile(String filename) {
+    this(Paths.get(filename));
+  }
+
+  // The program may be on any file system, such as a zip or jar archive
+  // opened with FileSystems.newFileSystem. A file of the default file
+  // system is mapped; any other is read as a stream into one heap
+  // buffer, which an archive entry is inflated into as it is read.
+
+  public SourceFile(Path path) {
     try {
-      reader = new LineNumberReader(new BufferedReader(new FileReader(filename)));
-    } catch (java.io.FileNotFoundException e) {
-      System.out.println("[# vc #]: can't read: " + filename);
+      load(path);
+    } catch (NoSuchFileException e) {
+      System.out.println("[# vc #]: can't read: " + path);
       System.exit(1);
-    } catch (Exception e) {
+    } catch (IOException e) {
       e.printStackTrace();
       System.out.println("Caught IOException: " + e.getMessage());
       System.exit(1);
     }
   }
 
+  // As new SourceFile(path), but a file that cannot be read is reported
+  // by throwing an IOException, instead of by exiting, for a caller that
+  // reads many programs in one JVM and goes on to the next one.
+
+  public static SourceFile open(Path path) throws IOException {
+    SourceFile source = new SourceFile(null, 0);
+    source.load(path);
+    return source;
+  }
+
+  private void load(Path path) throws IOException {
+    ByteBuffer bytes;
+
+    if (path.getFileSystem() == FileSystems.getDefault()) {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try {
+        if (channel.size() > MAX_SIZE)
+          throw new IOException("file too large: " + path);
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+        channel.close();
+      }
+    } else {
+      long size = Files.size(path);
+      if (size > MAX_SIZE)
+        throw new IOException("file too large: " + path);
+      ReadableByteChannel channel = Channels.newChannel(Files.newInputStream(path));
+      try {
+        bytes = readFully(channel, size);
+      } finally {
+        channel.close();
+      }
+    }
+    if (asciiCompatible)
+      read(bytes);
+    else {
+      CharBuffer decoded = charset.decode(bytes);
+      buffer = new byte[2 * decoded.limit()];
+      length = normalise(decoded.array(), decoded.arrayOffset(), decoded.limit(), buffer, 0);
+    }
+    gapStart = length;
+    gapEnd = buffer.length / 2;
+    pos = 0;
+  }
+
+  // Reads the channel to its end into a heap buffer, which is flipped.
+  // The size the file system reports is only taken as a hint. A program
+  // of more than MAX_SIZE bytes, the most the buffer can hold, is
+  // reported by throwing an IOException.
+
+  private static ByteBuffer readFully(ReadableByteChannel channel, long size)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(Math.max(size, 0) + 1, MAX_SIZE));
+
+    while (channel.read(bytes) >= 0) {
+      if (!bytes.hasRemaining()) {
+        if (bytes.capacity() == MAX_SIZE)
+          throw new IOException("file too large");
+        ByteBuffer b = ByteBuffer.allocate((int) Math.min(Math.max(2L * bytes.capacity(), 8192),
+                                                          MAX_SIZE));
+        bytes.flip();
+        b.put(bytes);
+        bytes = b;
+      }
+    }
+    bytes.flip();
+    return bytes;
+  }
+
+  private SourceFile(byte[] buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+    gapStart = length;
+    gapEnd = buffer == null ? 0 : buffer.length / 2;
+    pos = 0;
+  }
+
+  // Returns a copy of this program in which the count chars from
+  // offset on are replaced by text, whose line terminators are
+  // normalised. This program is left as it is.
+
+  public SourceFile replace(int offset, int count, String text) {
+    SourceFile copy = new SourceFile(new byte[buffer.length], 0);
+
+    System.arraycopy(buffer, 0, copy.buffer, 0, 2 * gapStart);
+    System.arraycopy(buffer, 2 * gapEnd, copy.buffer, 2 * gapStart,
+                     2 * (length - gapStart));
+    copy.length = copy.gapStart = length;
+    copy.gapEnd = copy.buffer.length / 2;
+    copy.edit(offset, count, text);
+    copy.moveGap(copy.length);
+    return copy;
+  }
+
+  // Replaces the count chars from offset on by text, whose line
+  // terminators are normalised, in place, and returns the number of
+  // chars inserted. Only the chars between the gap and offset are
+  // moved, unless the gap has to grow to hold text.
+
+  int edit(int offset, int count, String text) {
+    if (offset < 0 || count < 0 || offset + count > length)
+      throw new IndexOutOfBoundsException("cannot replace [" + offset + ", "
+                                          + (offset + count) + ") of " + length + " chars");
+    char[] t = text.toCharArray();
+
+    moveGap(offset);
+    gapEnd += count;
+    length -= count;
+    if (gapEnd - gapStart < t.length) {
+      if ((long) length + t.length > MAX_SIZE)
+        throw new IndexOutOfBoundsException("cannot hold " + ((long) length + t.length)
+                                            + " chars");
+      // at least twice the room there was, in chars
+      int capacity = (int) Math.min(Math.max((long) buffer.length, length + t.length), MAX_SIZE);
+      byte[] b = new byte[2 * capacity];
+      int after = buffer.length / 2 - gapEnd;
+      System.arraycopy(buffer, 0, b, 0, 2 * gapStart);
+      System.arraycopy(buffer, 2 * gapEnd, b, 2 * (capacity - after), 2 * after);
+      buffer = b;
+      gapEnd = capacity - after;
+    }
+    int end = normalise(t, 0, t.length, buffer, gapStart);
+    int inserted = end - gapStart;
+    gapStart = end;
+    length += inserted;
+    return inserted;
+  }
+
+  // Moves the gap to offset.
+
+  private void moveGap(int offset) {
+    int gap = gapEnd - gapStart;
+
+    if (offset < gapStart)
+      System.arraycopy(buffer, 2 * offset, buffer, 2 * (offset + gap),
+                       2 * (gapStart - offset));
+    else
+      System.arraycopy(buffer, 2 * gapEnd, buffer, 2 * gapStart, 2 * (offset - gapStart));
+    gapStart = offset;
+    gapEnd = offset + gap;
+  }
+
+  private static boolean isAsciiCompatible(Charset charset) {
+    byte[] ascii = new byte[128];
+    for (int i = 0; i < ascii.length; i++)
+      ascii[i] = (byte) i;
+    String s = new String(ascii, charset);
+    if (s.length() != ascii.length)
+      return false;
+    for (int i = 0; i < ascii.length; i++)
+      if (s.charAt(i) != i)
+        return false;
+    return true;
+  }
+
+  private void read(ByteBuffer bytes) {
+    int n = bytes.limit();
+    int i = 0;
+
+    buffer = new byte[2 * n];
+    length = 0;
+    while (i < n) {
+      int end = asciiEnd(bytes, i, n);
+      widen(bytes, i, end);
+      if (end == n)
+        break;
+
+      // A UTF-8 char is encoded in bytes that are all non-ASCII, so any
+      // ASCII byte ends it. In other charsets an ASCII byte may follow
+      // the first byte of a char, so the rest is decoded in one go.
+      i = n;
+      if (charset.equals(StandardCharsets.UTF_8)) {
+        i = end;
+        while (i < n && bytes.get(i) < 0)
+          i++;
+      }
+      ByteBuffer slice = bytes.duplicate();
+      slice.position(end);
+      slice.limit(i);
+      CharBuffer decoded = charset.decode(slice);
+      ensureCapacity(length + decoded.remaining() + (n - i));
+      length = normalise(decoded.array(), decoded.arrayOffset(), decoded.limit(), buffer, length);
+    }
+  }
+
+  // Returns the offset of the first non-ASCII byte in bytes[from ..
+  // to-1], or to if there is none.
+
+  private static int asciiEnd(ByteBuffer bytes, int from, int to) {
+    int i = from;
+
+    while (i + 8 <= to && (bytes.getLong(i) & 0x8080808080808080L) == 0)
+      i += 8;
+    while (i < to && bytes.get(i) >= 0)
+      i++;
+    return i;
+  }
+
+  // Appends the ASCII bytes[from .. to-1] to the buffer as chars.
+
+  private void widen(ByteBuffer bytes, int from, int to) {
+    byte[] buf = buffer;
+    int at = length;
+
+    for (int i = from; i < to; i++) {
+      char c = (char) bytes.get(i);
+      if (c == '\r') {
+        c = '\n';
+        if (i + 1 < to && bytes.get(i + 1) == '\n')
+          i++;
+      }
+      chars.set(buf, 2 * at++, c);
+    }
+    length = at;
+  }
+
+  // capacity is in chars
+
+  private void ensureCapacity(int capacity) {
+    if (2 * capacity > buffer.length) {
+      byte[] b = new byte[2 * capacity];
+      System.arraycopy(buffer, 0, b, 0, 2 * length);
+      buffer = b;
+    }
+  }
+
+  // Copies src[from .. from+len-1] to the buffer dst from char offset
+  // at on, replacing "\r\n" and a lone '\r' by '\n', and returns the
+  // offset after the last char copied.
+
+  private static int normalise(char[] src, int from, int len, byte[] dst, int at) {
+    int end = from + len;
+
+    for (int i = from; i < end; i++) {
+      char c = src[i];
+      if (c == '\r') {
+        c = '\n';
+        if (i + 1 < end && src[i + 1] == '\n')
+          i++;
+      }
+      chars.set(dst, 2 * at++, c);
+    }
+    return at;
+  }
+
   char getNextChar() {
-    try {
-      int  c = reader.read();
-      if (c == -1) c = eof;
-      return (char) c;
-    } catch (java.io.IOException e) {
-      System.out.println("Caught IOException: " + e.getMessage());
+    if (pos < length)
+      return charAt(pos++);
+    pos = length + 1; // past eof, see inspectChar
+    return eof;
+  }
+
+  // The offsets below are indices into the normalised buffer. The char
+  // last returned by getNextChar is at position() - 1, with eof at
+  // offset length().
+
+  int position() {
+    return pos;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public char charAt(int offset) {
+    if (offset < gapStart)
+      return (char) chars.get(buffer, 2 * offset);
+    else if (offset < length)
+      return (char) chars.get(buffer, 2 * (offset + gapEnd - gapStart));
+    else
       return eof;
+  }
+
+  // The chars are copied out one by one: decoding the bytes as UTF-16
+  // goes through a charset decoder, which is slow for the few chars of
+  // a spelling.
+
+  public String substring(int start, int end) {
+    char[] s = new char[end - start];
+    for (int i = 0; i < s.length; i++)
+      s[i] = charAt(start + i);
+    return new String(s);
+  }
+
+  // Makes the char at offset the last one returned by getNextChar, and
+  // returns it.
+
+  char moveTo(int offset) {
+    pos = offset + 1;
+    return charAt(offset);
+  }
+
+  // The bulk scans below read the buffer directly, without going
+  // through getNextChar, and do not move the position. They read four
+  // chars at a time as a long word, of which each char is a 16-bit
+  // lane, the first char in the lowest, and find the lanes that hold
+  // certain chars with the bit tricks of zeroLanes below (SWAR). The
+  // chars before the first offset that is a multiple of four, and the
+  // last chars, fewer than four, are read one by one, so that the words
+  // read are aligned and a scan that stops at once costs no more than a
+  // char compare.
+
+  private static final long ONES = 0x0001000100010001L;  // a 1 in each lane
+  private static final long LOWS = 0x7fff7fff7fff7fffL;  // the low 15 bits of each
+  private static final long TOPS = 0x8000800080008000L;  // the top bit of each
+
+  private static final long BLANKS = ' ' * ONES, TABS = '\t' * ONES;
+
+  // The top bit of each lane of w that is 0. Unlike the usual
+  // (w - ONES) & ~w & TOPS, no borrow crosses from one lane to the next,
+  // so every lane is told exactly.
+
+  private static long zeroLanes(long w) {
+    return ~(((w & LOWS) + LOWS) | w | LOWS);
+  }
+
+  // Returns the offset of the first char from offset from on that is
+  // neither a blank nor a tab.
+
+  int skipBlanks(int from) {
+    int gap = gapEnd - gapStart;
+
+    if (from < gapStart) {
+      int i = blanksEnd(buffer, from, gapStart);
+      if (i < gapStart)
+        return i;
+      from = gapStart;
     }
+    return blanksEnd(buffer, from + gap, length + gap) - gap;
   }
 
-  char inspectChar(int nthChar) {
-  // nthChar must be >= 1.
-    int c;
+  // Returns the offset of the first char from offset from on that is c,
+  // d or eof, or length() if there is none.
 
-    try {
-    reader.mark(nthChar);
-    do {
-      c = reader.read();
-      nthChar --;
-    } while (nthChar != 0);
-    reader.reset();
-    if (c == -1) c = eof;
-    return (char) c;
-    } catch (java.io.IOException e) {
-      System.out.println("Caught IOException: " + e.getMessage());
-      return eof;
+  int indexOf(int from, char c, char d) {
+    int gap = gapEnd - gapStart;
+
+    if (from < gapStart) {
+      int i = find(buffer, from, gapStart, c, d);
+      if (i < gapStart)
+        return i;
+      from = gapStart;
     }
+    return find(buffer, from + gap, length + gap, c, d) - gap;
+  }
+
+  // As skipBlanks and indexOf, on the chars from index from up to index
+  // to of buf, returning to if there is no such char.
+
+  private static int blanksEnd(byte[] buf, int from, int to) {
+    int i = from;
+
+    for (; (i & 3) != 0 && i < to; i++) {
+      char x = (char) chars.get(buf, 2 * i);
+      if (x != ' ' && x != '\t')
+        return i;
+    }
+    for (; i + 4 <= to; i += 4) {
+      long w = (long) words.get(buf, 2 * i);
+      long others = ~(zeroLanes(w ^ BLANKS) | zeroLanes(w ^ TABS)) & TOPS;
+      if (others != 0)
+        return i + (Long.numberOfTrailingZeros(others) >>> 4);
+    }
+    for (; i < to; i++) {
+      char x = (char) chars.get(buf, 2 * i);
+      if (x != ' ' && x != '\t')
+        return i;
+    }
+    return to;
+  }
+
+  private static int find(byte[] buf, int from, int to, char c, char d) {
+    long cs = c * ONES, ds = d * ONES;
+    int i = from;
+
+    for (; (i & 3) != 0 && i < to; i++) {
+      char x = (char) chars.get(buf, 2 * i);
+      if (x == c || x == d || x == eof)
+        return i;
+    }
+    for (; i + 4 <= to; i += 4) {
+      long w = (long) words.get(buf, 2 * i);
+      long found = zeroLanes(w ^ cs) | zeroLanes(w ^ ds) | zeroLanes(w);
+      if (found != 0)
+        return i + (Long.numberOfTrailingZeros(found) >>> 4);
+    }
+    for (; i < to; i++) {
+      char x = (char) chars.get(buf, 2 * i);
+      if (x == c || x == d || x == eof)
+        return i;
+    }
+    return to;
+  }
+
+  char inspectChar(int nthChar) {
+  // nthChar must be >= 1.
+    return charAt(pos + nthChar - 1);
   }
 
 }
@@ -12,28 +12,15 @@ public final class Token extends Object {
   public String spelling; // lexeme 
   public SourcePosition position;
 
-  public Token(int kind, String spelling, SourcePosition position) {
+  // the value of an int or a float literal, decoded by the scanner
+  public int intValue;
+  public float floatValue;
 
-    if (kind == Token.ID) {
-      
-      int currentKind = firstReservedWord;
-      boolean searching = true;
-
-      while (searching) {
-        int comparison = keywords[currentKind].compareTo(spelling);
-        if (comparison == 0) {
-          this.kind = currentKind;
-          searching = false;
-        } else if (comparison > 0 || currentKind == lastReservedWord) {
-          this.kind = Token.ID;
-          searching = false;
-        } else {
-          currentKind++;
-        }
-      }
-    } else
-      this.kind = kind;
+  public Token(int kind, String spelling, SourcePosition position) {
 
+    // reserved words and boolean literals have already been told apart
+    // from identifiers by the scanner, see identifierKind
+    this.kind = kind;
     this.spelling = spelling;
     this.position = position;
 
@@ -148,6 +135,169 @@ public final class Token extends Object {
     "$"
   };
 
-    private final static int      firstReservedWord = Token.BOOLEAN,
-    			          lastReservedWord  = Token.WHILE;
+  // Classifies the identifier src[start .. end-1] in one pass: returns
+  // the kind of the reserved word it spells, BOOLEANLITERAL for true and
+  // false, and ID otherwise. The length and the first character select
+  // the only candidate, which is then compared char by char.
+
+  static int identifierKind(SourceFile src, int start, int end) {
+    int kind;
+
+    switch (end - start) {
+    case 2:
+      kind = IF;
+      break;
+    case 3:
+      kind = (src.charAt(start) == 'f') ? FOR : INT;
+      break;
+    case 4:
+      switch (src.charAt(start)) {
+      case 'e':
+        kind = ELSE;
+        break;
+      case 'v':
+        kind = VOID;
+        break;
+      case 't':
+        return matches(src, start, "true") ? BOOLEANLITERAL : ID;
+      default:
+        return ID;
+      }
+      break;
+    case 5:
+      switch (src.charAt(start)) {
+      case 'b':
+        kind = BREAK;
+        break;
+      case 'w':
+        kind = WHILE;
+        break;
+      case 'f':
+        if (src.charAt(start + 1) == 'a')
+          return matches(src, start, "false") ? BOOLEANLITERAL : ID;
+        kind = FLOAT;
+        break;
+      default:
+        return ID;
+      }
+      break;
+    case 6:
+      kind = RETURN;
+      break;
+    case 7:
+      kind = BOOLEAN;
+      break;
+    case 8:
+      kind = CONTINUE;
+      break;
+    default:
+      return ID;
+    }
+    return matches(src, start, keywords[kind]) ? kind : ID;
+  }
+
+  // Decodes the int literal src[start .. end-1], or returns -1 if it
+  // is greater than the largest int.
+
+  static int intValue(SourceFile src, int start, int end) {
+    int value = 0;
+
+    for (int i = start; i < end; i++) {
+      int digit = src.charAt(i) - '0';
+      if (value > (Integer.MAX_VALUE - digit) / 10)
+        return -1;
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  // Decodes the float literal src[start .. end-1], rounding it to the
+  // nearest float: infinity if it is too large, and 0 if it is too small.
+  //
+  // The literal is read as digits * 10^exponent, straight from the
+  // source, and computed in double arithmetic, which is off by at most
+  // a few units in the last place of the double. Rounding the double to
+  // a float then gives the nearest float unless the double is within a
+  // few units of halfway between two floats, as its lower 29 bits, which
+  // a float does not keep, tell. Only then, or for a literal of more
+  // than 18 digits or whose float is not a normal one, is a String built
+  // for Float.parseFloat to round.
+
+  private static final double[] powersOf10 = new double[64];
+
+  static {
+    for (int i = 0; i < powersOf10.length; i++)
+      powersOf10[i] = Double.parseDouble("1e" + i);
+  }
+
+  private static final long HALFWAY = 1L << 28;  // the lower 29 bits halfway between floats
+  private static final long SLACK = 8;           // how far the double may be off
+
+  static float floatValue(SourceFile src, int start, int end) {
+    long digits = 0;
+    int count = 0;  // the digits in digits, after the leading zeros
+    int exponent = 0;
+    boolean fraction = false;
+    int i = start;
+
+    for (; i < end; i++) {
+      char c = src.charAt(i);
+      if (c == '.') {
+        fraction = true;
+        continue;
+      }
+      if (c == 'e' || c == 'E')
+        break;
+      if (digits != 0 || c != '0')
+        count++;
+      if (count > 18)
+        return Float.parseFloat(src.substring(start, end));
+      digits = digits * 10 + (c - '0');
+      if (fraction)
+        exponent--;
+    }
+    if (i < end) {
+      boolean negative = src.charAt(++i) == '-';
+      if (src.charAt(i) == '-' || src.charAt(i) == '+')
+        i++;
+      if (end - i > 4)
+        return Float.parseFloat(src.substring(start, end));
+      int e = 0;
+      for (; i < end; i++)
+        e = e * 10 + (src.charAt(i) - '0');
+      exponent += negative ? -e : e;
+    }
+
+    if (digits == 0)
+      return 0;
+    if (Math.abs(exponent) < powersOf10.length) {
+      double value = exponent >= 0 ? digits * powersOf10[exponent]
+                                   : digits / powersOf10[-exponent];
+      long lower = Double.doubleToRawLongBits(value) & ((1L << 29) - 1);
+      if (value >= Float.MIN_NORMAL && value <= Float.MAX_VALUE
+          && Math.abs(lower - HALFWAY) > SLACK)
+        return (float) value;
+    }
+    return Float.parseFloat(src.substring(start, end));
+  }
+
+  // Whether the float literal src[start .. end-1] has a nonzero digit
+
+  static boolean isNonzero(SourceFile src, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = src.charAt(i);
+      if (c == 'e' || c == 'E')
+        break;
+      if (c >= '1' && c <= '9')
+        return true;
+    }
+    return false;
+  }
+
+  private static boolean matches(SourceFile src, int start, String word) {
+    for (int i = 0; i < word.length(); i++)
+      if (src.charAt(start + i) != word.charAt(i))
+        return false;
+    return true;
+  }
 }
@@ -0,0 +1,493 @@
+/*
+ * TokenArray.java
+ *
+ * The tokens of a whole program, stored column by column in parallel
+ * arrays indexed by token number: kind and offsets in the source
+ * buffer, and the values of int and float literals, a float being kept
+ * by its bits. Positions are computed from the line map of the program, and
+ * spellings are taken from the source buffer, when they are asked for,
+ * except for string literals, whose escape sequences have been
+ * translated by the scanner.
+ *
+ * The lexical errors found while the tokens were scanned are kept with
+ * the number of the token being scanned when they were found, and are
+ * reported by a cursor (see reader) when it reaches that token, so that
+ * they are interleaved with the parser's errors as if the parser had
+ * been reading from a Scanner.
+ *
+ * The columns and the errors are kept with a gap, as SourceFile keeps
+ * its chars, so that IncrementalScanner can replace the tokens around an
+ * edit in place. After the gap, the offsets of a token are kept from
+ * the end of the program, and the token number and lines of an error
+ * from the end of the array and the last line, so that they need not
+ * be changed when tokens and lines are inserted or removed before them.
+ */
+
+package VC.Scanner;
+
+import VC.ErrorReporter;
+import VC.NamePool;
+
+public final class TokenArray {
+
+  private SourceFile sourceFile;
+  private LineMap lineMap;
+
+  private int size;
+  private int gapStart, gapEnd; // the gap, as indices into the columns
+  private int[] kinds, starts, ends, values;
+  private String[] strings;
+
+  private int errorCount;
+  private int errorGapStart, errorGapEnd;
+  private int[] errorTokens;
+  private String[] errorMessages, errorTokenNames;
+  private SourcePosition[] errorPositions;
+
+  private int[] nameIds; // the ids of the identifiers, see enterNames
+
+  TokenArray(SourceFile source, LineMap lines, int capacity) {
+    sourceFile = source;
+    lineMap = lines;
+    capacity = Math.max(capacity, 16);
+    kinds = new int[capacity];
+    starts = new int[capacity];
+    ends = new int[capacity];
+    values = new int[capacity];
+    strings = new String[capacity];
+    gapEnd = capacity;
+    errorTokens = new int[4];
+    errorMessages = new String[4];
+    errorTokenNames = new String[4];
+    errorPositions = new SourcePosition[4];
+    errorGapEnd = errorTokens.length;
+  }
+
+  public SourceFile sourceFile() {
+    return sourceFile;
+  }
+
+  public LineMap lineMap() {
+    return lineMap;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // the index into the columns of token i
+
+  private int at(int i) {
+    return i < gapStart ? i : i + gapEnd - gapStart;
+  }
+
+  public int kind(int i) {
+    return kinds[at(i)];
+  }
+
+  public int start(int i) {
+    if (i < gapStart)
+      return starts[i];
+    else
+      return starts[i + gapEnd - gapStart] + sourceFile.length();
+  }
+
+  public int end(int i) {
+    if (i < gapStart)
+      return ends[i];
+    else
+      return ends[i + gapEnd - gapStart] + sourceFile.length();
+  }
+
+  public int intValue(int i) {
+    return values[at(i)];
+  }
+
+  public float floatValue(int i) {
+    return Float.intBitsToFloat(values[at(i)]);
+  }
+
+  public String spelling(int i) {
+    int kind = kind(i);
+
+    if (kind == Token.EOF)
+      return Token.spell(Token.EOF);
+    else if (kind == Token.STRINGLITERAL)
+      return strings[at(i)];
+    else
+      return sourceFile.substring(start(i), end(i));
+  }
+
+  public SourcePosition position(int i) {
+    return position(i, lineMap.walker());
+  }
+
+  private SourcePosition position(int i, LineMap.Walker walker) {
+    if (kind(i) == Token.EOF) {
+      int column = walker.column(start(i));
+      return new SourcePosition(lineMap.line(start(i)), column, column);
+    }
+    return walker.position(start(i), end(i));
+  }
+
+  public Token token(int i) {
+    return withValue(new Token(kind(i), spelling(i), position(i)), i);
+  }
+
+  private Token withValue(Token tok, int i) {
+    if (tok.kind == Token.INTLITERAL)
+      tok.intValue = intValue(i);
+    else if (tok.kind == Token.FLOATLITERAL)
+      tok.floatValue = floatValue(i);
+    return tok;
+  }
+
+  // the number of the token error j was found in, and where
+
+  private int errorToken(int j) {
+    if (j < errorGapStart)
+      return errorTokens[j];
+    else
+      return errorTokens[j + errorGapEnd - errorGapStart] + size;
+  }
+
+  private SourcePosition errorPosition(int j) {
+    if (j < errorGapStart)
+      return errorPositions[j];
+    return moved(errorPositions[j + errorGapEnd - errorGapStart], lineMap.lastLine());
+  }
+
+  private static SourcePosition moved(SourcePosition pos, int lineShift) {
+    SourcePosition moved = new SourcePosition(pos.lineStart + lineShift,
+                                              pos.charStart, pos.charFinish);
+    moved.lineFinish = pos.lineFinish + lineShift;
+    return moved;
+  }
+
+  private int errorAt(int j) {
+    return j < errorGapStart ? j : j + errorGapEnd - errorGapStart;
+  }
+
+  // ============================ Building ============================
+
+  // Makes the gap at least n tokens long.
+
+  private void grow(int n) {
+    int capacity = Math.max(kinds.length * 2, size + n);
+    kinds = copyOf(kinds, gapStart, gapEnd, capacity);
+    starts = copyOf(starts, gapStart, gapEnd, capacity);
+    ends = copyOf(ends, gapStart, gapEnd, capacity);
+    values = copyOf(values, gapStart, gapEnd, capacity);
+    int after = strings.length - gapEnd;
+    String[] s = new String[capacity];
+    System.arraycopy(strings, 0, s, 0, gapStart);
+    System.arraycopy(strings, gapEnd, s, capacity - after, after);
+    strings = s;
+    gapEnd = capacity - after;
+  }
+
+  // a copy of a with room for capacity elements, keeping the elements
+  // from gapEnd on at the end
+
+  private static int[] copyOf(int[] a, int gapStart, int gapEnd, int capacity) {
+    int after = a.length - gapEnd;
+    int[] b = new int[capacity];
+    System.arraycopy(a, 0, b, 0, gapStart);
+    System.arraycopy(a, gapEnd, b, capacity - after, after);
+    return b;
+  }
+
+  void add(int kind, int start, int end, int value, String string) {
+    if (gapStart < size)
+      moveGap(size);
+    insert(kind, start, end, value, string);
+  }
+
+  // Adds a token at the start of the gap.
+
+  private void insert(int kind, int start, int end, int value, String string) {
+    if (gapStart == gapEnd)
+      grow(1);
+    kinds[gapStart] = kind;
+    starts[gapStart] = start;
+    ends[gapStart] = end;
+    values[gapStart] = value;
+    strings[gapStart] = string;
+    gapStart++;
+    size++;
+  }
+
+  // Adds the current token of the scanner.
+
+  void add(DFAScanner scanner) {
+    int kind = scanner.tokenKind();
+    int value = 0;
+
+    if (kind == Token.INTLITERAL)
+      value = scanner.tokenIntValue();
+    else if (kind == Token.FLOATLITERAL)
+      value = Float.floatToRawIntBits(scanner.tokenFloatValue());
+    add(kind, scanner.tokenStart(), scanner.tokenEnd(), value,
+        kind == Token.STRINGLITERAL ? scanner.tokenSpelling() : null);
+  }
+
+  private void addError(int token, String message, String tokenName, SourcePosition pos) {
+    if (errorGapStart < errorCount)
+      moveErrorGap(errorCount);
+    insertError(token, message, tokenName, pos);
+  }
+
+  // Adds an error at the start of the gap.
+
+  private void insertError(int token, String message, String tokenName, SourcePosition pos) {
+    if (errorGapStart == errorGapEnd) {
+      int capacity = errorTokens.length * 2;
+      int after = errorTokens.length - errorGapEnd;
+      errorTokens = copyOf(errorTokens, errorGapStart, errorGapEnd, capacity);
+      String[] m = new String[capacity], n = new String[capacity];
+      SourcePosition[] p = new SourcePosition[capacity];
+      System.arraycopy(errorMessages, 0, m, 0, errorGapStart);
+      System.arraycopy(errorTokenNames, 0, n, 0, errorGapStart);
+      System.arraycopy(errorPositions, 0, p, 0, errorGapStart);
+      System.arraycopy(errorMessages, errorGapEnd, m, capacity - after, after);
+      System.arraycopy(errorTokenNames, errorGapEnd, n, capacity - after, after);
+      System.arraycopy(errorPositions, errorGapEnd, p, capacity - after, after);
+      errorMessages = m;
+      errorTokenNames = n;
+      errorPositions = p;
+      errorGapEnd = capacity - after;
+    }
+    errorTokens[errorGapStart] = token;
+    errorMessages[errorGapStart] = message;
+    errorTokenNames[errorGapStart] = tokenName;
+    errorPositions[errorGapStart] = pos;
+    errorGapStart++;
+    errorCount++;
+  }
+
+  // Moves the gap to before token i, and the gap in the errors to before
+  // the first error found in token i or after it, changing what they
+  // pass from being kept from the end to being kept from the start, or
+  // the other way round.
+
+  void moveGap(int i) {
+    int length = sourceFile.length();
+
+    while (gapStart > i) {
+      gapStart--;
+      gapEnd--;
+      kinds[gapEnd] = kinds[gapStart];
+      starts[gapEnd] = starts[gapStart] - length;
+      ends[gapEnd] = ends[gapStart] - length;
+      values[gapEnd] = values[gapStart];
+      strings[gapEnd] = strings[gapStart];
+      if (gapStart != gapEnd)
+        strings[gapStart] = null;
+    }
+    while (gapStart < i) {
+      kinds[gapStart] = kinds[gapEnd];
+      starts[gapStart] = starts[gapEnd] + length;
+      ends[gapStart] = ends[gapEnd] + length;
+      values[gapStart] = values[gapEnd];
+      strings[gapStart] = strings[gapEnd];
+      if (gapStart != gapEnd)
+        strings[gapEnd] = null;
+      gapStart++;
+      gapEnd++;
+    }
+
+    int j = errorGapStart;
+    while (j > 0 && errorToken(j - 1) >= i)
+      j--;
+    while (j < errorCount && errorToken(j) < i)
+      j++;
+    moveErrorGap(j);
+  }
+
+  private void moveErrorGap(int j) {
+    int lastLine = lineMap.lastLine();
+
+    while (errorGapStart > j) {
+      errorGapStart--;
+      errorGapEnd--;
+      moveError(errorGapStart, errorGapEnd, -size, -lastLine);
+    }
+    while (errorGapStart < j) {
+      moveError(errorGapEnd, errorGapStart, size, lastLine);
+      errorGapStart++;
+      errorGapEnd++;
+    }
+  }
+
+  private void moveError(int from, int to, int tokenShift, int lineShift) {
+    errorTokens[to] = errorTokens[from] + tokenShift;
+    errorMessages[to] = errorMessages[from];
+    errorTokenNames[to] = errorTokenNames[from];
+    errorPositions[to] = moved(errorPositions[from], lineShift);
+    if (from != to) {
+      errorMessages[from] = errorTokenNames[from] = null;
+      errorPositions[from] = null;
+    }
+  }
+
+  // An error reporter that keeps the errors found while scanning the
+  // next token in this array.
+
+  ErrorReporter errorCollector() {
+    return new ErrorReporter() {
+      public void reportError(String message, String tokenName, SourcePosition pos) {
+        addError(size, message, tokenName, pos);
+        numErrors++;
+      }
+    };
+  }
+
+  // Appends the tokens and errors of other, moving its errors down by
+  // lineShift lines. The lines of other must have been appended to the
+  // line map of this array.
+
+  void append(TokenArray other, int lineShift) {
+    for (int j = 0; j < other.errorCount; j++) {
+      SourcePosition pos = other.errorPosition(j);
+      pos.lineStart += lineShift;
+      pos.lineFinish += lineShift;
+      int e = other.errorAt(j);
+      addError(size + other.errorToken(j), other.errorMessages[e], other.errorTokenNames[e],
+               pos);
+    }
+    for (int i = 0; i < other.size; i++) {
+      int k = other.at(i);
+      add(other.kinds[k], other.start(i), other.end(i), other.values[k], other.strings[k]);
+    }
+  }
+
+  // Replaces the tokens from to to-1, and the errors found in them, by
+  // those of middle, which are those of the same lines of the edited
+  // program. The gaps must have been moved to token from before the
+  // program was edited, and the tokens from to on, with their errors,
+  // are then those of the edited program, as the lines of the line map
+  // must be. The ids kept by enterNames are dropped.
+
+  void replace(int from, int to, TokenArray middle) {
+    while (errorGapStart < errorCount && errorToken(errorGapStart) < to) {
+      errorMessages[errorGapEnd] = errorTokenNames[errorGapEnd] = null;
+      errorPositions[errorGapEnd] = null;
+      errorGapEnd++;
+      errorCount--;
+    }
+    for (int k = gapEnd; k < gapEnd + to - from; k++)
+      strings[k] = null;
+    gapEnd += to - from;
+    size -= to - from;
+
+    if (gapEnd - gapStart < middle.size)
+      grow(middle.size);
+    for (int j = 0; j < middle.errorCount; j++) {
+      int e = middle.errorAt(j);
+      insertError(from + middle.errorToken(j), middle.errorMessages[e],
+                  middle.errorTokenNames[e], middle.errorPosition(j));
+    }
+    for (int i = 0; i < middle.size; i++) {
+      int k = middle.at(i);
+      insert(middle.kinds[k], middle.start(i), middle.end(i), middle.values[k],
+             middle.strings[k]);
+    }
+    nameIds = null;
+  }
+
+  // ============================= Reading ============================
+
+  // Returns a cursor that hands out the tokens one by one, reporting
+  // each lexical error to reporter just before the token it was found
+  // in. The last token, EOF, is handed out again and again.
+
+  public TokenSource reader(ErrorReporter reporter) {
+    return reader(reporter, null);
+  }
+
+  // As above, but identifiers are entered into names, and the pooled
+  // String is used as their spelling.
+
+  public TokenSource reader(final ErrorReporter reporter, final NamePool names) {
+    return new TokenSource() {
+      private int next = 0, nextError = 0;
+      private LineMap.Walker walker = lineMap.walker();
+
+      public Token getToken() {
+        while (nextError < errorCount && errorToken(nextError) <= next) {
+          reportError(reporter, nextError);
+          nextError++;
+        }
+        Token tok;
+        if (kind(next) == Token.ID && names != null)
+          tok = new Token(Token.ID, names.name(names.id(sourceFile, start(next), end(next))),
+                          position(next, walker));
+        else
+          tok = withValue(new Token(kind(next), spelling(next), position(next, walker)), next);
+        if (next < size - 1)
+          next++;
+        return tok;
+      }
+    };
+  }
+
+  private void reportError(ErrorReporter reporter, int j) {
+    int e = errorAt(j);
+    reporter.reportError(errorMessages[e], errorTokenNames[e], errorPosition(j));
+  }
+
+  // Enters the identifiers into names in the order in which they
+  // appear, as a reader would, and keeps their ids for the readers of
+  // ranges below, until the array is edited.
+
+  public void enterNames(NamePool names) {
+    nameIds = new int[size];
+    for (int i = 0; i < size; i++)
+      if (kind(i) == Token.ID)
+        nameIds[i] = names.id(sourceFile, start(i), end(i));
+  }
+
+  // Returns a cursor that hands out the tokens from to to-1 and then an
+  // EOF at the position of token to, again and again, reporting the
+  // lexical errors found in those tokens only, and in the EOF if token
+  // to is the last one. If names is not null,
+  // the identifiers must have been entered into it with enterNames; it
+  // is then only read, so that several ranges can be read at once on
+  // different threads.
+
+  public TokenSource reader(final ErrorReporter reporter, final NamePool names,
+                            final int from, final int to) {
+    int first = 0, last = errorCount;
+    while (first < last) {
+      int mid = (first + last) >>> 1;
+      if (errorToken(mid) < from)
+        first = mid + 1;
+      else
+        last = mid;
+    }
+    final int firstError = first;
+    final int lastToken = to < size - 1 ? to - 1 : to;
+
+    return new TokenSource() {
+      private int next = from, nextError = firstError;
+      private LineMap.Walker walker = lineMap.walker();
+
+      public Token getToken() {
+        while (nextError < errorCount && errorToken(nextError) <= Math.min(next, lastToken)) {
+          reportError(reporter, nextError);
+          nextError++;
+        }
+        if (next == to)
+          return new Token(Token.EOF, Token.spell(Token.EOF), position(to, walker));
+        Token tok;
+        if (kind(next) == Token.ID && names != null)
+          tok = new Token(Token.ID, names.name(nameIds[next]), position(next, walker));
+        else
+          tok = withValue(new Token(kind(next), spelling(next), position(next, walker)), next);
+        next++;
+        return tok;
+      }
+    };
+  }
+
+}
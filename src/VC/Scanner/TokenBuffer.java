@@ -0,0 +1,119 @@
+/*
+ * TokenBuffer.java
+ *
+ * A fixed-size ring of tokens between a token source and a parser, so
+ * that the parser can look at the tokens ahead of the one it is at
+ * (see peek) and can go back to a token it has already been handed
+ * (see mark and rewind), without the source scanning anything twice.
+ *
+ * A speculative parse marks where it starts, is rewound there if it
+ * fails, and releases the mark when it is decided:
+ *
+ *   int m = tokens.mark();
+ *   ... parse, reading tokens with getToken ...
+ *   tokens.rewind(m);   // if the guess was wrong
+ *   tokens.release();
+ *
+ * Marks may be nested. While a mark is held, the tokens from it on are
+ * kept, so a speculative parse may run at most capacity tokens ahead
+ * of the mark it started at.
+ *
+ * The ring is allocated once; a buffer can be reused for another
+ * source with reset.
+ */
+
+package VC.Scanner;
+
+public final class TokenBuffer implements TokenSource {
+
+  public static final int DEFAULT_CAPACITY = 16;
+
+  private TokenSource source;
+  private Token[] ring;
+  private int mask;
+
+  // tokens are numbered from 0 in the order they are read
+  private int next;       // the number of the next token to hand out
+  private int filled;     // the number of tokens read from source
+  private int marks;      // the number of marks held
+  private int held;       // the number of the first token kept for them
+
+  public TokenBuffer(TokenSource source) {
+    this(source, DEFAULT_CAPACITY);
+  }
+
+  // The capacity is rounded up to a power of two.
+
+  public TokenBuffer(TokenSource source, int capacity) {
+    int size = 1;
+    while (size < capacity)
+      size *= 2;
+    ring = new Token[size];
+    mask = size - 1;
+    reset(source);
+  }
+
+  // Empties the buffer and starts reading from source.
+
+  public void reset(TokenSource source) {
+    this.source = source;
+    for (int i = 0; i < ring.length; i++)
+      ring[i] = null;
+    next = 0;
+    filled = 0;
+    marks = 0;
+    held = 0;
+  }
+
+  public int capacity() {
+    return ring.length;
+  }
+
+  public Token getToken() {
+    Token tok = peek(1);
+    next++;
+    return tok;
+  }
+
+  // Returns the token the k-th next call of getToken will return,
+  // where 1 <= k <= capacity.
+
+  public Token peek(int k) {
+    if (k < 1 || k > ring.length)
+      throw new IllegalArgumentException("cannot look " + k + " tokens ahead");
+    while (filled < next + k) {
+      if (marks > 0 && filled - held >= ring.length)
+        throw new IllegalStateException("speculation beyond " + ring.length + " tokens");
+      ring[filled & mask] = source.getToken();
+      filled++;
+    }
+    return ring[(next + k - 1) & mask];
+  }
+
+  // Returns the mark of the next token, which is kept until the mark
+  // is released.
+
+  public int mark() {
+    if (marks == 0)
+      held = next;
+    marks++;
+    return next;
+  }
+
+  // Makes the token at mark the next one to be handed out.
+
+  public void rewind(int mark) {
+    if (marks == 0 || mark < held || mark > filled)
+      throw new IllegalStateException("no mark " + mark);
+    next = mark;
+  }
+
+  // Releases the last mark taken.
+
+  public void release() {
+    if (marks == 0)
+      throw new IllegalStateException("no mark to release");
+    marks--;
+  }
+
+}
@@ -0,0 +1,17 @@
+/*
+ * TokenSource.java
+ */
+
+// Anything the parser can fetch tokens from: a scanner, or a cursor
+// over tokens that have already been scanned (see TokenArray).
+
+package VC.Scanner;
+
+public interface TokenSource {
+
+  // Returns the next token; at the end of the input, an EOF token
+  // is returned on every call.
+
+  Token getToken();
+
+}
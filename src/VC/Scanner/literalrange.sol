@@ -0,0 +1,14 @@
+======= The VC compiler =======
+Kind = 34 [<int-literal>], spelling = "2147483647", position = 4(1)..4(10)
+ERROR: 5(1)..5(10): 2147483648: integer literal too large
+Kind = 34 [<int-literal>], spelling = "2147483648", position = 5(1)..5(10)
+ERROR: 6(1)..6(20): 99999999999999999999: integer literal too large
+Kind = 34 [<int-literal>], spelling = "99999999999999999999", position = 6(1)..6(20)
+Kind = 35 [<float-literal>], spelling = "3.4028235e38", position = 7(1)..7(12)
+ERROR: 8(1)..8(4): 1e39: float literal too large
+Kind = 35 [<float-literal>], spelling = "1e39", position = 8(1)..8(4)
+Kind = 35 [<float-literal>], spelling = "1.4e-45", position = 9(1)..9(7)
+ERROR: 10(1)..10(5): 1e-50: float literal too small
+Kind = 35 [<float-literal>], spelling = "1e-50", position = 10(1)..10(5)
+Kind = 35 [<float-literal>], spelling = "0.0e-50", position = 11(1)..11(7)
+Kind = 39 [$], spelling = "$", position = 12(1)..12(1)
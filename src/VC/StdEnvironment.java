@@ -22,12 +22,17 @@
  * explicitly its "declaration" and enter the name of the corresponding 
  * function into the symbol table. This is accomplished by the method
  * establishStdEnvironment of the class Checker in Checker.java.
+ *
+ * The types and declarations are built once, when this class is
+ * loaded, and are shared by all the compilations in the JVM. No pass
+ * modifies them.
  * 
  */
 
 package VC;
 
 import VC.ASTs.*;
+import VC.Scanner.SourcePosition;
 
 public final class StdEnvironment {
 
@@ -41,4 +46,53 @@ public final class StdEnvironment {
     getFloatDecl, putFloatDecl, putFloatLnDecl, 
     putStringDecl, putStringLnDecl, putLnDecl;
 
+  // all of them, in the order in which the checker enters them
+  public static FuncDecl[] stdFunctions;
+
+  private static SourcePosition dummyPos = new SourcePosition();
+  private static Ident dummyI = new Ident("x", dummyPos);
+
+  static {
+
+    // Define four primitive types
+    // errorType is assigned to ill-typed expressions
+
+    booleanType = new BooleanType(dummyPos);
+    intType = new IntType(dummyPos);
+    floatType = new FloatType(dummyPos);
+    stringType = new StringType(dummyPos);
+    voidType = new VoidType(dummyPos);
+    errorType = new ErrorType(dummyPos);
+
+    getIntDecl = stdFunc(intType, "getInt", new EmptyParaList(dummyPos));
+    putIntDecl = stdFunc(voidType, "putInt", parameter(intType));
+    putIntLnDecl = stdFunc(voidType, "putIntLn", parameter(intType));
+    getFloatDecl = stdFunc(floatType, "getFloat", new EmptyParaList(dummyPos));
+    putFloatDecl = stdFunc(voidType, "putFloat", parameter(floatType));
+    putFloatLnDecl = stdFunc(voidType, "putFloatLn", parameter(floatType));
+    putBoolDecl = stdFunc(voidType, "putBool", parameter(booleanType));
+    putBoolLnDecl = stdFunc(voidType, "putBoolLn", parameter(booleanType));
+    putStringLnDecl = stdFunc(voidType, "putStringLn", parameter(stringType));
+    putStringDecl = stdFunc(voidType, "putString", parameter(stringType));
+    putLnDecl = stdFunc(voidType, "putLn", new EmptyParaList(dummyPos));
+
+    stdFunctions = new FuncDecl[] {
+      getIntDecl, putIntDecl, putIntLnDecl, getFloatDecl, putFloatDecl, putFloatLnDecl,
+      putBoolDecl, putBoolLnDecl, putStringLnDecl, putStringDecl, putLnDecl
+    };
+  }
+
+  // Creates a small AST to represent the "declaration" of a built-in
+  // function.
+
+  private static FuncDecl stdFunc(Type resultType, String id, List pl) {
+    return new FuncDecl(resultType, new Ident(id, dummyPos), pl,
+                        new EmptyStmt(dummyPos), dummyPos);
+  }
+
+  private static List parameter(Type t) {
+    return new ParaList(new ParaDecl(t, dummyI, dummyPos),
+                        new EmptyParaList(dummyPos), dummyPos);
+  }
+
 }
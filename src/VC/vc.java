@@ -6,9 +6,21 @@
 
 package VC;
 
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderNotFoundException;
+
 import VC.Scanner.Scanner;
 import VC.Scanner.SourceFile;
+import VC.Scanner.SourcePosition;
+import VC.Scanner.ParallelScanner;
+import VC.Scanner.TokenArray;
 import VC.Parser.Parser;
+import VC.Parser.ParallelParser;
+import VC.Recogniser.Recogniser;
 import VC.ASTs.AST;
 import VC.TreeDrawer.Drawer;
 import VC.TreePrinter.Printer;
@@ -20,6 +32,7 @@ public class vc {
 
     private static Scanner scanner;
     private static ErrorReporter reporter;
+    private static NamePool names;
     private static Parser parser;
     private static Drawer drawer; 
     private static Printer printer;
@@ -30,6 +43,9 @@ public class vc {
     private static int drawingAST = 0;
     private static boolean printingAST = false;
     private static boolean unparsingAST = false;
+    private static boolean parallelScanning = false;
+    private static boolean errorRecovery = false;
+    private static boolean syntaxOnly = false;
     private static String inputFilename; 
     private static String astFilename = ""; 
     private static String unparsingFilename = ""; 
@@ -38,6 +54,7 @@ public class vc {
  
     private static void cmdLineOptions() {
       System.out.println("\nUsage: java VC.vc [-options] filename");
+      System.out.println("   or  java VC.vc [-options] archive!/entry   (an entry of a zip or jar file)");
       System.out.println();
       System.out.println("where options include:");
       System.out.println("	-d [1234]           display the AST (without SourcePosition)");
@@ -49,7 +66,36 @@ public class vc {
       System.out.println("	                    (or filename + \"t\" if <file> is unspecified)"); 
       System.out.println("	-u [file]  	    unparse the (non-annotated) AST into <file>");
       System.out.println("	                    (or filename + \"u\" if <file> is unspecified)"); 
+      System.out.println("	-j                  scan and parse the input on all processors");
+      System.out.println("	-r                  recover from syntax errors to report them all");
+      System.out.println("	--syntax-only       only check the syntax of one or more files, and exit");
+      System.out.println("	                    with status 1 if any of them has an error");
+      System.exit(1);
+    }
+
+    // The input is a file name or, for an entry of a zip or jar archive,
+    // archive!/entry, which is read from the archive without extracting
+    // it. The output files of an entry are named after the entry alone
+    // and written to the current directory.
+
+    private static Path inputPath(String name) {
+      int i = name.indexOf("!/");
+      if (i < 0)
+        return Paths.get(name);
+      try {
+        FileSystem archive = FileSystems.newFileSystem(Paths.get(name.substring(0, i)),
+                                                       (ClassLoader) null);
+        Path entry = archive.getPath(name.substring(i + 1));
+        if (entry.getFileName() != null) {
+          inputFilename = entry.getFileName().toString();
+          return entry;
+        }
+      } catch (IOException e) {
+      } catch (ProviderNotFoundException e) {
+      }
+      System.out.println("[# vc #]: can't read: " + name);
       System.exit(1);
+      return null;
     }
 
     public static void main(String[] args) {
@@ -61,7 +107,9 @@ public class vc {
         while (i < args.length && args[i].startsWith("-")) {
           arg = args[i++];
           
-          if (arg.startsWith("-d") && !arg.equals("-d")) {
+          if (arg.equals("--syntax-only")) {
+            syntaxOnly = true;
+          } else if (arg.startsWith("-d") && !arg.equals("-d")) {
             int n = 0;
             try {
               n = Integer.parseInt(arg.substring(2));
@@ -108,6 +156,10 @@ public class vc {
             if (i < args.length && !args[i].startsWith("-"))
               unparsingFilename = args[i++];
             // the default is inputFilename + "u"
+          } else if (arg.equals("-j")) {
+            parallelScanning = true;
+          } else if (arg.equals("-r")) {
+            errorRecovery = true;
           } else {
             System.out.println("[# vc #]: invalid option " + arg); 
             cmdLineOptions();
@@ -119,15 +171,31 @@ public class vc {
         } else
            inputFilename = args[i];
 
-        SourceFile source = new SourceFile(inputFilename);
+        if (syntaxOnly) {
+          checkSyntax(args, i);
+          return;
+        }
+
+        SourceFile source = new SourceFile(inputPath(inputFilename));
 
         reporter = new ErrorReporter();
+        names = new NamePool(); // shared by all passes
 
         System.out.println("Pass 1: Lexical and syntactic Analysis");
-        scanner  = new Scanner(source, reporter);
-        parser   = new Parser(scanner, reporter);
-
-	theAST = parser.parseProgram();
+        if (parallelScanning && !errorRecovery) {
+          TokenArray tokens = ParallelScanner.scan(source);
+          theAST = ParallelParser.parse(tokens, reporter, names);
+        } else {
+          if (parallelScanning) {
+            TokenArray tokens = ParallelScanner.scan(source);
+            parser = new Parser(tokens.reader(reporter, names), reporter);
+          } else {
+            scanner  = new Scanner(source, reporter, names);
+            parser   = new Parser(scanner, reporter);
+          }
+          parser.setErrorRecovery(errorRecovery);
+          theAST = parser.parseProgram();
+        }
 
         if (reporter.numErrors == 0) {
           // We unparse and print the AST created by the parser. Both 
@@ -157,13 +225,13 @@ public class vc {
           }
 
           System.out.println("Pass 2: Semantic Analysis");
-          checker  = new Checker(reporter);
+          checker  = new Checker(reporter, names);
           checker.check(theAST);
 
           if (reporter.numErrors == 0) {
             System.out.println("Pass 3: Code Generation");
             System.out.println();
-            emitter = new Emitter(inputFilename, reporter);
+            emitter = new Emitter(inputFilename, reporter, names);
             emitter.gen(theAST);
             if (reporter.numErrors == 0) 
               System.out.println ("Compilation was successful.");
@@ -183,5 +251,45 @@ public class vc {
          System.out.println ("Compilation was unsuccessful.");
     }
 
-}
+    // Checks the syntax of the files args[first..] with a Recogniser,
+    // which builds no AST. The errors in a file follow its name. The
+    // scanner and the recogniser are reused from file to file.
+
+    private static void checkSyntax(String[] args, int first) {
+      Recogniser recogniser = null;
+      int failed = 0;
+
+      for (int i = first; i < args.length; i++) {
+        final String name = args[i];
+        SourceFile source = new SourceFile(inputPath(name));
+        reporter = new ErrorReporter() {
+          public void reportError(String message, String tokenName, SourcePosition pos) {
+            if (numErrors == 0)
+              System.out.println(name + ":");
+            super.reportError(message, tokenName, pos);
+          }
+        };
 
+        if (scanner == null) {
+          scanner = new Scanner(source, reporter);
+          recogniser = new Recogniser(scanner, reporter);
+        } else {
+          scanner.reset(source, reporter, null);
+          recogniser.reset(scanner, reporter);
+        }
+        if (!recogniser.parseProgram() || reporter.numErrors > 0)
+          failed++;
+      }
+
+      int files = args.length - first;
+      if (failed == 0)
+        System.out.println("[# vc #]: " + files + (files == 1 ? " file has" : " files have")
+                           + " no syntax errors");
+      else {
+        System.out.println("[# vc #]: " + failed + " of " + files
+                           + (files == 1 ? " file has" : " files have") + " errors");
+        System.exit(1);
+      }
+    }
+
+}